@@ -0,0 +1,34 @@
+package com.bettercloud.santa.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "santa.cache")
+public class AssignmentCacheProperties {
+    /**
+     * Assignments held in the year cache across all groups and years; the least used years are
+     * evicted beyond it.
+     */
+    private long maxAssignments = 1_000_000;
+
+    /**
+     * How long a cached year is served before it is read again. Invalidation only reaches the
+     * node that changed a year, so this bounds how long other nodes serve the old one.
+     */
+    private Duration expireAfterWrite = Duration.ofMinutes(1);
+
+    /**
+     * Santa-recipient pairs held in the gift history index across all groups; the least used
+     * groups are evicted beyond it.
+     */
+    private long maxHistoryPairs = 2_000_000;
+
+    /**
+     * Encoded response bodies, plain and compressed, kept for the cached years.
+     */
+    private DataSize maxPayloadSize = DataSize.ofMegabytes(64);
+}
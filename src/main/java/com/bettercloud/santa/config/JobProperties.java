@@ -0,0 +1,31 @@
+package com.bettercloud.santa.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "santa.jobs")
+public class JobProperties {
+    /**
+     * How often the node running a job writes its phase and search progress to the jobs table.
+     */
+    private Duration progressInterval = Duration.ofSeconds(1);
+
+    /**
+     * How often a server-sent event stream reads a job's row for changes.
+     */
+    private Duration pollInterval = Duration.ofSeconds(1);
+
+    /**
+     * A running job whose row was not updated for this long is reported as failed, since the node
+     * running it has stopped.
+     */
+    private Duration staleAfter = Duration.ofSeconds(30);
+
+    /**
+     * Jobs a node runs at once; further jobs wait for a slot.
+     */
+    private int maxConcurrent = Runtime.getRuntime().availableProcessors();
+}
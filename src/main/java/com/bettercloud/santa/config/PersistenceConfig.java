@@ -0,0 +1,9 @@
+package com.bettercloud.santa.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(PersistenceProperties.class)
+public class PersistenceConfig {
+}
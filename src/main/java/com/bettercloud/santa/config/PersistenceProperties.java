@@ -0,0 +1,19 @@
+package com.bettercloud.santa.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "santa.persistence")
+public class PersistenceProperties {
+    /**
+     * Assignments written per INSERT statement when a year is saved.
+     */
+    private int insertBatchSize = 1000;
+
+    /**
+     * Rows fetched from the server per round trip, and requested from it at most, when a year
+     * is streamed to the client.
+     */
+    private int streamFetchSize = 256;
+}
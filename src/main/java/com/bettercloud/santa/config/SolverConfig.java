@@ -0,0 +1,61 @@
+package com.bettercloud.santa.config;
+
+import com.bettercloud.santa.service.AssignmentStrategy;
+import com.bettercloud.santa.service.AssignmentStrategyType;
+import com.bettercloud.santa.service.BipartiteMatchingStrategy;
+import com.bettercloud.santa.service.FallbackChainStrategy;
+import com.bettercloud.santa.service.FamilyAggregatedStrategy;
+import com.bettercloud.santa.service.HamiltonianCycleStrategy;
+import com.bettercloud.santa.service.OptimizingStrategy;
+import com.bettercloud.santa.service.PortfolioStrategy;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+@Configuration
+@EnableConfigurationProperties(SolverProperties.class)
+public class SolverConfig {
+
+    /**
+     * Builds the assignment strategy used by the service: {@code santa.solver.strategy} followed by
+     * the {@code santa.solver.fallback} chain, all under the {@code santa.solver.budget} limits.
+     *
+     * @param properties  The solver properties.
+     * @param hamiltonian The single-cycle strategy.
+     * @param matching    The multi-cycle matching strategy.
+     * @param family      The family-level aggregated strategy.
+     * @param portfolio   The strategy racing several of the others in parallel.
+     * @param optimizing  The strategy minimizing soft penalties within a time limit.
+     * @return The configured assignment strategy.
+     */
+    @Bean
+    @Primary
+    public AssignmentStrategy assignmentStrategy(
+            SolverProperties properties,
+            HamiltonianCycleStrategy hamiltonian,
+            BipartiteMatchingStrategy matching,
+            FamilyAggregatedStrategy family,
+            PortfolioStrategy portfolio,
+            OptimizingStrategy optimizing
+    ) {
+        Map<AssignmentStrategyType, AssignmentStrategy> strategies = new EnumMap<>(AssignmentStrategyType.class);
+        strategies.put(AssignmentStrategyType.HAMILTONIAN_CYCLE, hamiltonian);
+        strategies.put(AssignmentStrategyType.MATCHING, matching);
+        strategies.put(AssignmentStrategyType.FAMILY_AGGREGATED, family);
+        strategies.put(AssignmentStrategyType.PORTFOLIO, portfolio);
+        strategies.put(AssignmentStrategyType.OPTIMIZING, optimizing);
+
+        List<AssignmentStrategyType> chain = new ArrayList<>();
+        chain.add(properties.getStrategy());
+        properties.getFallback().stream()
+                .filter(type -> !chain.contains(type))
+                .forEach(chain::add);
+        return new FallbackChainStrategy(chain, strategies, properties.getBudget());
+    }
+}
@@ -0,0 +1,223 @@
+package com.bettercloud.santa.config;
+
+import com.bettercloud.santa.service.AssignmentStrategyType;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "santa.solver")
+public class SolverProperties {
+    /**
+     * Strategy used to generate assignments: a single gift cycle or a multi-cycle matching.
+     */
+    private AssignmentStrategyType strategy = AssignmentStrategyType.HAMILTONIAN_CYCLE;
+
+    /**
+     * Strategies tried in order when the main strategy fails or runs out of its share of the budget.
+     */
+    private List<AssignmentStrategyType> fallback = List.of(AssignmentStrategyType.MATCHING);
+
+    /**
+     * Time and node-expansion budget of a single generation request.
+     */
+    private Budget budget = new Budget();
+
+    /**
+     * Node-expansion unit of the Luby restart schedule; restart i may expand
+     * luby(i) * (restartUnit + pool size) nodes before the search restarts.
+     */
+    private long restartUnit = 1000;
+
+    /**
+     * Strategies raced by the PORTFOLIO strategy; repeated entries run with different seeds.
+     */
+    private List<AssignmentStrategyType> portfolio = List.of(
+            AssignmentStrategyType.HAMILTONIAN_CYCLE,
+            AssignmentStrategyType.HAMILTONIAN_CYCLE,
+            AssignmentStrategyType.HAMILTONIAN_CYCLE,
+            AssignmentStrategyType.MATCHING
+    );
+
+    /**
+     * Threads shared by all portfolio solves, created on the first one. They compete for the same
+     * cores as the solver threads, so size it together with {@code scheduler.threads}.
+     */
+    private int portfolioParallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Worker threads and admission limits for solving, kept off the request threads.
+     */
+    private Scheduler scheduler = new Scheduler();
+
+    /**
+     * How far back a santa may not give to the same recipient again.
+     */
+    private History history = new History();
+
+    /**
+     * Optional rules applied on top of the family and history rules.
+     */
+    private Rules rules = new Rules();
+
+    /**
+     * Search limits and soft penalties of the OPTIMIZING strategy.
+     */
+    private Optimizing optimizing = new Optimizing();
+
+    /**
+     * Limits of multi-year planning.
+     */
+    private Planning planning = new Planning();
+
+    @Data
+    public static class Budget {
+        /**
+         * Wall-clock time a generation request may spend solving.
+         */
+        private Duration timeout = Duration.ofSeconds(10);
+
+        /**
+         * Search nodes a generation request may expand.
+         */
+        private long maxExpansions = 100_000_000L;
+    }
+
+    @Data
+    public static class Scheduler {
+        /**
+         * Threads solving requests concurrently.
+         */
+        private int threads = Runtime.getRuntime().availableProcessors();
+
+        /**
+         * Requests allowed to wait for a solver thread; further requests are rejected.
+         */
+        private int queueCapacity = 32;
+
+        /**
+         * Delay suggested to rejected clients through the Retry-After header.
+         */
+        private Duration retryAfter = Duration.ofSeconds(5);
+
+        /**
+         * Exchange groups a bulk request generates at the same time.
+         */
+        private int bulkConcurrency = Runtime.getRuntime().availableProcessors();
+    }
+
+    @Data
+    public static class History {
+        /**
+         * Number of preceding years whose pairs may not be repeated; 0 allows any repeat.
+         */
+        private int window = 3;
+
+        /**
+         * Never repeat a pair, whatever the window.
+         */
+        private boolean neverRepeat = false;
+
+        /**
+         * Tells whether any past pair constrains a year.
+         *
+         * @return False if repeats are always allowed, true otherwise.
+         */
+        public boolean isEnabled() {
+            return neverRepeat || window > 0;
+        }
+
+        /**
+         * Returns the first past year whose pairs may not be repeated in the given year.
+         *
+         * @param year The year being solved.
+         * @return The first remembered year, {@link Integer#MIN_VALUE} with never-repeat.
+         */
+        public int firstRememberedYear(int year) {
+            return neverRepeat ? Integer.MIN_VALUE : year - window;
+        }
+    }
+
+    @Data
+    public static class Planning {
+        /**
+         * Years a single planning request may cover.
+         */
+        private int maxYears = 10;
+
+        /**
+         * Times a planning run may go back and solve an earlier year again when a later year has no
+         * valid assignment.
+         */
+        private int maxBacktracks = 20;
+    }
+
+    @Data
+    public static class Rules {
+        /**
+         * Forbid giving back to a santa who gave to you within the history window.
+         */
+        private boolean noReciprocal = false;
+
+        /**
+         * Pairs that may never be assigned.
+         */
+        private List<BlockedPair> blocklist = List.of();
+    }
+
+    @Data
+    public static class Optimizing {
+        /**
+         * Wall-clock time spent improving an assignment; the best one found by then is returned.
+         */
+        private Duration timeLimit = Duration.ofSeconds(2);
+
+        /**
+         * Moves per member the annealing schedule cools over; more moves find lower penalties.
+         */
+        private long movesPerMember = 10_000;
+
+        /**
+         * Turn the history and no-reciprocal rules into penalties when no assignment satisfies them;
+         * when OPTIMIZING is the strategy, the feasibility check then only enforces the family and
+         * blocklist rules.
+         */
+        private boolean relaxRules = false;
+
+        /**
+         * Penalty of every kind of undesirable pair.
+         */
+        private Penalties penalties = new Penalties();
+    }
+
+    @Data
+    public static class Penalties {
+        /**
+         * Santa and recipient are both tagged EXTENDED_FAMILY.
+         */
+        private int extendedFamily = 1;
+
+        /**
+         * Santa gave to a member of the recipient's family within the history window.
+         */
+        private int recentFamily = 2;
+
+        /**
+         * Recipient gives back to the santa this year, or did within the history window.
+         */
+        private int reciprocal = 4;
+
+        /**
+         * Pair breaks a relaxed rule; only applies with relax-rules.
+         */
+        private int relaxedRule = 100;
+    }
+
+    @Data
+    public static class BlockedPair {
+        private Long santaId;
+        private Long recipientId;
+    }
+}
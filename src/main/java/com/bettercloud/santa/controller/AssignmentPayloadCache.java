@@ -0,0 +1,105 @@
+package com.bettercloud.santa.controller;
+
+import com.bettercloud.santa.config.AssignmentCacheProperties;
+import com.bettercloud.santa.dto.FamilyAssignmentDTO;
+import com.bettercloud.santa.service.AssignmentCache;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Encoded JSON response bodies of generated years, keyed by ETag.
+ * <p>
+ * A year is mapped to DTOs and serialized once, together with a gzip variant compressed at the
+ * highest level; later requests write the same arrays to the response without touching Jackson.
+ * The ETag is a hash of the content, so an entry can never go stale: a repaired year gets a new
+ * tag and the old entry is simply evicted once {@code santa.cache.max-payload-size} is reached.
+ * Whether a year gets a gzip variant depends only on its size, so a conditional request can be
+ * answered without encoding anything.
+ */
+@Component
+public class AssignmentPayloadCache {
+    // Every element carries six named fields, so ten of them already exceed 1 KB of JSON
+    private static final int MIN_COMPRESSIBLE_ASSIGNMENTS = 10;
+
+    private final ObjectMapper objectMapper;
+    private final Cache<String, Payload> cache;
+
+    public AssignmentPayloadCache(ObjectMapper objectMapper, AssignmentCacheProperties properties) {
+        if (properties.getMaxPayloadSize().isNegative()) {
+            throw new IllegalArgumentException("santa.cache.max-payload-size must not be negative");
+        }
+        this.objectMapper = objectMapper;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(properties.getMaxPayloadSize().toBytes())
+                .weigher((String etag, Payload payload) -> payload.weight())
+                .build();
+    }
+
+    /**
+     * Returns the encoded body of a year, encoding it on first use.
+     *
+     * @param cachedYear The year's assignments and ETag.
+     * @return The encoded payload.
+     */
+    public Payload get(AssignmentCache.CachedYear cachedYear) {
+        return cache.get(cachedYear.etag(), etag -> encode(cachedYear));
+    }
+
+    /**
+     * Checks whether the payload of a year has a gzip variant, without encoding it.
+     *
+     * @param cachedYear The year's assignments and ETag.
+     * @return True if {@link Payload#gzip()} will be set, false otherwise.
+     */
+    public boolean compressible(AssignmentCache.CachedYear cachedYear) {
+        return cachedYear.assignments().size() >= MIN_COMPRESSIBLE_ASSIGNMENTS;
+    }
+
+    private Payload encode(AssignmentCache.CachedYear cachedYear) {
+        List<FamilyAssignmentDTO> body = cachedYear.assignments().stream()
+                .map(FamilyAssignmentDTO::from)
+                .toList();
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(body);
+            return new Payload(json, compressible(cachedYear) ? gzip(json) : null);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to encode assignments", e);
+        }
+    }
+
+    private static byte[] gzip(byte[] json) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            gzip.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * The encoded body of a year. The arrays are shared between requests and must not be modified.
+     *
+     * @param json The UTF-8 JSON array.
+     * @param gzip The gzip-compressed JSON, or null if the body is too small to be worth compressing.
+     */
+    public record Payload(byte[] json, byte[] gzip) {
+        int weight() {
+            return json.length + (gzip != null ? gzip.length : 0);
+        }
+    }
+}
@@ -1,17 +1,25 @@
 package com.bettercloud.santa.controller;
 
-import com.bettercloud.santa.exception.AssignmentImpossibleException;
 import com.bettercloud.santa.exception.ErrorResponse;
-import com.bettercloud.santa.exception.InvalidParticipantsException;
-import com.bettercloud.santa.exception.NoAssignmentsException;
+import com.bettercloud.santa.exception.GlobalExceptionHandler;
+import com.bettercloud.santa.model.GroupAssignments;
+import com.bettercloud.santa.service.AssignmentCache;
+import com.bettercloud.santa.service.AssignmentPlanner;
+import com.bettercloud.santa.service.GenerationJobService;
 import com.bettercloud.santa.service.SecretSantaService;
 import com.bettercloud.santa.dto.FamilyAssignmentDTO;
+import com.bettercloud.santa.dto.GenerationJobDTO;
+import com.bettercloud.santa.dto.GroupAssignmentsDTO;
+import com.bettercloud.santa.dto.PlannedYearDTO;
 import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -21,6 +29,9 @@ import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 
+import java.net.URI;
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/v1/secret-santa")
 @Tag(name = "Secret Santa", description = "API for managing Secret Santa assignments")
@@ -28,13 +39,18 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 @Slf4j
 public class SecretSantaController {
     private final SecretSantaService secretSantaService;
+    private final AssignmentPayloadCache payloadCache;
+    private final AssignmentPlanner planner;
+    private final GenerationJobService jobService;
 
     /**
      * Endpoint to create Secret Santa assignments for a given year.
      *
-     * @param year       The year for which assignments are to be created.
-     * @param apiVersion The API version (default is 1).
-     * @return A Flux of FamilyAssignmentDTO objects.
+     * @param year           The year for which assignments are to be created.
+     * @param apiVersion     The API version (default is 1).
+     * @param ifNoneMatch    The entity tags the client already holds, if any.
+     * @param acceptEncoding The content codings the client accepts, if any.
+     * @return The encoded FamilyAssignmentDTO array with its ETag, or 304 if the client's copy is current.
      */
     @Operation(
             summary = "Get yearly assignments",
@@ -49,6 +65,10 @@ public class SecretSantaController {
                             array = @ArraySchema(schema = @Schema(implementation = FamilyAssignmentDTO.class))
                     )
             ),
+            @ApiResponse(
+                    responseCode = "304",
+                    description = "The assignments match the ETag sent in If-None-Match"
+            ),
             @ApiResponse(
                     responseCode = "400",
                     description = "Invalid request - Occurs when there aren't enough participants or assignments are impossible",
@@ -57,6 +77,14 @@ public class SecretSantaController {
                             schema = @Schema(implementation = ErrorResponse.class)
                     )
             ),
+            @ApiResponse(
+                    responseCode = "503",
+                    description = "No assignment could be generated within the solver budget, or the solver queue is full",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = ErrorResponse.class)
+                    )
+            ),
             @ApiResponse(
                     responseCode = "500",
                     description = "Internal server error",
@@ -70,28 +98,629 @@ public class SecretSantaController {
             value = "/assignments/{year}",
             produces = MediaType.APPLICATION_JSON_VALUE
     )
-    public Flux<FamilyAssignmentDTO> getAssignments(
+    public Mono<ResponseEntity<byte[]>> getAssignments(
             @Parameter(description = "Year for assignments", example = "2024")
             @PathVariable Integer year,
             @Parameter(description = "API Version", example = "1")
-            @RequestHeader(value = "API-Version", defaultValue = "1") String apiVersion
+            @RequestHeader(value = "API-Version", defaultValue = "1") String apiVersion,
+            @Parameter(description = "ETag of a previously returned response")
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @Parameter(hidden = true)
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding
     ) {
         log.info("Retrieving Secret Santa assignments for year: {}, API Version: {}", year, apiVersion);
-        return secretSantaService.createAssignments(year)
+        return secretSantaService.getAssignments(SecretSantaService.DEFAULT_GROUP_ID, year)
+                .map(cachedYear -> toResponse(cachedYear, ifNoneMatch, acceptEncoding))
+                .doOnSuccess(response -> log.info("Completed retrieving assignments for year: {}", year))
+                .onErrorResume(this::handleError);
+    }
+
+    /**
+     * Endpoint to create Secret Santa assignments of an exchange group for a given year.
+     *
+     * @param groupId        The exchange group ID.
+     * @param year           The year for which assignments are to be created.
+     * @param ifNoneMatch    The entity tags the client already holds, if any.
+     * @param acceptEncoding The content codings the client accepts, if any.
+     * @return The encoded FamilyAssignmentDTO array with its ETag, or 304 if the client's copy is current.
+     */
+    @Operation(
+            summary = "Get yearly assignments of an exchange group",
+            description = "Retrieves existing Secret Santa assignments of the exchange group for the specified year or creates new ones if none exist"
+    )
+    @GetMapping(
+            value = "/groups/{groupId}/assignments/{year}",
+            produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    public Mono<ResponseEntity<byte[]>> getGroupAssignments(
+            @Parameter(description = "Exchange group ID", example = "1")
+            @PathVariable Long groupId,
+            @Parameter(description = "Year for assignments", example = "2024")
+            @PathVariable Integer year,
+            @Parameter(description = "ETag of a previously returned response")
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @Parameter(hidden = true)
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding
+    ) {
+        log.info("Retrieving Secret Santa assignments for group: {}, year: {}", groupId, year);
+        return secretSantaService.getAssignments(groupId, year)
+                .map(cachedYear -> toResponse(cachedYear, ifNoneMatch, acceptEncoding))
+                .onErrorResume(this::handleError);
+    }
+
+    /**
+     * Endpoint to look up one santa's assignment for a given year.
+     *
+     * @param year     The assignment year.
+     * @param memberId The member ID of the santa.
+     * @return A Mono of the santa's FamilyAssignmentDTO.
+     */
+    @Operation(
+            summary = "Get a santa's yearly assignment",
+            description = "Returns whom the member gives to in the specified year, creating the year's assignments if none exist"
+    )
+    @ApiResponse(
+            responseCode = "404",
+            description = "The member has no assignment in the year",
+            content = @Content(
+                    mediaType = "application/json",
+                    schema = @Schema(implementation = ErrorResponse.class)
+            )
+    )
+    @GetMapping(
+            value = "/assignments/{year}/santa/{memberId}",
+            produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    public Mono<FamilyAssignmentDTO> getSantaAssignment(
+            @Parameter(description = "Year for assignments", example = "2024")
+            @PathVariable Integer year,
+            @Parameter(description = "Member ID of the santa", example = "1")
+            @PathVariable Long memberId
+    ) {
+        return getGroupSantaAssignment(SecretSantaService.DEFAULT_GROUP_ID, year, memberId);
+    }
+
+    /**
+     * Endpoint to look up one santa's assignment of an exchange group for a given year.
+     *
+     * @param groupId  The exchange group ID.
+     * @param year     The assignment year.
+     * @param memberId The member ID of the santa.
+     * @return A Mono of the santa's FamilyAssignmentDTO.
+     */
+    @Operation(
+            summary = "Get a santa's yearly assignment in an exchange group",
+            description = "Returns whom the member gives to in the exchange group's specified year, creating the year's assignments if none exist"
+    )
+    @ApiResponse(
+            responseCode = "404",
+            description = "The member has no assignment in the year",
+            content = @Content(
+                    mediaType = "application/json",
+                    schema = @Schema(implementation = ErrorResponse.class)
+            )
+    )
+    @GetMapping(
+            value = "/groups/{groupId}/assignments/{year}/santa/{memberId}",
+            produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    public Mono<FamilyAssignmentDTO> getGroupSantaAssignment(
+            @Parameter(description = "Exchange group ID", example = "1")
+            @PathVariable Long groupId,
+            @Parameter(description = "Year for assignments", example = "2024")
+            @PathVariable Integer year,
+            @Parameter(description = "Member ID of the santa", example = "1")
+            @PathVariable Long memberId
+    ) {
+        log.info("Retrieving Secret Santa assignment of member: {} for group: {}, year: {}", memberId, groupId, year);
+        return secretSantaService.getAssignment(groupId, year, memberId)
+                .map(FamilyAssignmentDTO::from)
+                .onErrorResume(this::handleError);
+    }
+
+    /**
+     * Endpoint to stream Secret Santa assignments for a given year.
+     *
+     * @param year The year for which assignments are to be streamed.
+     * @return A Flux of FamilyAssignmentDTO objects, written as each one is read.
+     */
+    @Operation(
+            summary = "Stream yearly assignments",
+            description = "Same as the JSON variant, but every assignment is written as a separate JSON line or " +
+                    "server-sent event as soon as it is read, at the pace the client consumes them"
+    )
+    @GetMapping(
+            value = "/assignments/{year}",
+            produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE}
+    )
+    public Flux<FamilyAssignmentDTO> streamAssignments(
+            @Parameter(description = "Year for assignments", example = "2024")
+            @PathVariable Integer year
+    ) {
+        return streamGroupAssignments(SecretSantaService.DEFAULT_GROUP_ID, year);
+    }
+
+    /**
+     * Endpoint to stream Secret Santa assignments of an exchange group for a given year.
+     *
+     * @param groupId The exchange group ID.
+     * @param year    The year for which assignments are to be streamed.
+     * @return A Flux of FamilyAssignmentDTO objects, written as each one is read.
+     */
+    @Operation(
+            summary = "Stream yearly assignments of an exchange group",
+            description = "Same as the JSON variant, but every assignment is written as a separate JSON line or " +
+                    "server-sent event as soon as it is read, at the pace the client consumes them"
+    )
+    @GetMapping(
+            value = "/groups/{groupId}/assignments/{year}",
+            produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE}
+    )
+    public Flux<FamilyAssignmentDTO> streamGroupAssignments(
+            @Parameter(description = "Exchange group ID", example = "1")
+            @PathVariable Long groupId,
+            @Parameter(description = "Year for assignments", example = "2024")
+            @PathVariable Integer year
+    ) {
+        log.info("Streaming Secret Santa assignments for group: {}, year: {}", groupId, year);
+        return secretSantaService.streamAssignments(groupId, year)
+                .map(FamilyAssignmentDTO::from)
+                .onErrorResume(this::handleError);
+    }
+
+    /**
+     * Endpoint to repair an exchange group's assignments after members joined or left.
+     *
+     * @param groupId The exchange group ID.
+     * @param year    The year whose assignments are repaired.
+     * @return A Flux of FamilyAssignmentDTO objects.
+     */
+    @Operation(
+            summary = "Repair yearly assignments of an exchange group",
+            description = "Adapts the exchange group's assignments for the specified year to the current members, " +
+                    "changing only the affected assignments; solves the year again only when no local repair exists"
+    )
+    @PostMapping(
+            value = "/groups/{groupId}/assignments/{year}/repair",
+            produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    public Flux<FamilyAssignmentDTO> repairGroupAssignments(
+            @Parameter(description = "Exchange group ID", example = "1")
+            @PathVariable Long groupId,
+            @Parameter(description = "Year for assignments", example = "2024")
+            @PathVariable Integer year
+    ) {
+        log.info("Repairing Secret Santa assignments for group: {}, year: {}", groupId, year);
+        return secretSantaService.repairAssignments(groupId, year)
+                .map(FamilyAssignmentDTO::from)
+                .onErrorResume(this::handleError);
+    }
+
+    /**
+     * Endpoint to plan several consecutive years of an exchange group at once.
+     *
+     * @param groupId   The exchange group ID.
+     * @param firstYear The first year to plan.
+     * @param years     The number of years to plan.
+     * @return A Flux of PlannedYearDTO objects, in year order.
+     */
+    @Operation(
+            summary = "Plan consecutive years of an exchange group",
+            description = "Solves the years jointly, each respecting the history window over the years planned " +
+                    "before it, and stores them as tentative plans that replace any earlier plan of those years"
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Too many years requested, or no plan satisfies the rules",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = ErrorResponse.class)
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "409",
+                    description = "A year of the range was already generated",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = ErrorResponse.class)
+                    )
+            )
+    })
+    @PostMapping(
+            value = "/groups/{groupId}/plans",
+            produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    public Flux<PlannedYearDTO> planGroupAssignments(
+            @Parameter(description = "Exchange group ID", example = "1")
+            @PathVariable Long groupId,
+            @Parameter(description = "First year to plan", example = "2025")
+            @RequestParam Integer firstYear,
+            @Parameter(description = "Number of years to plan", example = "3")
+            @RequestParam Integer years
+    ) {
+        log.info("Planning Secret Santa assignments for group: {}, years: {} from {}", groupId, years, firstYear);
+        return planner.planAssignments(groupId, firstYear, years)
+                .map(PlannedYearDTO::from)
+                .onErrorResume(this::handleError);
+    }
+
+    /**
+     * Endpoint to read the tentative plan of an exchange group's year.
+     *
+     * @param groupId The exchange group ID.
+     * @param year    The planned year.
+     * @return A Mono of the PlannedYearDTO.
+     */
+    @Operation(
+            summary = "Get the plan of a year of an exchange group",
+            description = "Returns the tentative assignments of a planned year that has not been confirmed yet"
+    )
+    @ApiResponse(
+            responseCode = "404",
+            description = "The year has no plan",
+            content = @Content(
+                    mediaType = "application/json",
+                    schema = @Schema(implementation = ErrorResponse.class)
+            )
+    )
+    @GetMapping(
+            value = "/groups/{groupId}/plans/{year}",
+            produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    public Mono<PlannedYearDTO> getGroupPlan(
+            @Parameter(description = "Exchange group ID", example = "1")
+            @PathVariable Long groupId,
+            @Parameter(description = "Planned year", example = "2025")
+            @PathVariable Integer year
+    ) {
+        return planner.getPlan(groupId, year)
+                .map(PlannedYearDTO::from)
+                .onErrorResume(this::handleError);
+    }
+
+    /**
+     * Endpoint to confirm the plan of an exchange group's year.
+     *
+     * @param groupId The exchange group ID.
+     * @param year    The planned year.
+     * @return A Flux of the year's FamilyAssignmentDTO objects.
+     */
+    @Operation(
+            summary = "Confirm the plan of a year of an exchange group",
+            description = "Turns the tentative assignments of a planned year into the year's assignments without solving again"
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "404",
+                    description = "The year has no plan",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = ErrorResponse.class)
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "409",
+                    description = "The year was generated since, or the plan no longer fits the members or history",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = ErrorResponse.class)
+                    )
+            )
+    })
+    @PostMapping(
+            value = "/groups/{groupId}/plans/{year}/confirm",
+            produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    public Flux<FamilyAssignmentDTO> confirmGroupPlan(
+            @Parameter(description = "Exchange group ID", example = "1")
+            @PathVariable Long groupId,
+            @Parameter(description = "Planned year", example = "2025")
+            @PathVariable Integer year
+    ) {
+        log.info("Confirming planned Secret Santa assignments for group: {}, year: {}", groupId, year);
+        return planner.confirmPlan(groupId, year)
                 .map(FamilyAssignmentDTO::from)
-                .doOnComplete(() -> log.info("Completed retrieving assignments for year: {}", year))
                 .onErrorResume(this::handleError);
     }
 
+    /**
+     * Endpoint to start generating an exchange group's year in the background.
+     *
+     * @param groupId The exchange group ID.
+     * @param year    The year for which assignments are to be generated.
+     * @return The queued GenerationJobDTO with 202 and the job's location.
+     */
+    @Operation(
+            summary = "Start generating yearly assignments of an exchange group",
+            description = "Queues a job that generates or retrieves the year's assignments and returns at once. " +
+                    "Poll or subscribe to the job for its phase and search progress, and fetch its result once it succeeded"
+    )
+    @ApiResponse(
+            responseCode = "202",
+            description = "The job was queued",
+            content = @Content(
+                    mediaType = "application/json",
+                    schema = @Schema(implementation = GenerationJobDTO.class)
+            )
+    )
+    @PostMapping(
+            value = "/groups/{groupId}/assignments/{year}/jobs",
+            produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    public Mono<ResponseEntity<GenerationJobDTO>> submitGenerationJob(
+            @Parameter(description = "Exchange group ID", example = "1")
+            @PathVariable Long groupId,
+            @Parameter(description = "Year for assignments", example = "2024")
+            @PathVariable Integer year
+    ) {
+        log.info("Queueing Secret Santa generation job for group: {}, year: {}", groupId, year);
+        return jobService.submit(groupId, year)
+                .map(job -> ResponseEntity.accepted()
+                        .location(URI.create("/api/v1/secret-santa/jobs/" + job.getId()))
+                        .body(GenerationJobDTO.from(job)))
+                .onErrorResume(this::handleError);
+    }
+
+    /**
+     * Endpoint to read the state of a generation job.
+     *
+     * @param jobId The job ID.
+     * @return A Mono of the job's GenerationJobDTO.
+     */
+    @Operation(
+            summary = "Get a generation job",
+            description = "Returns the job's phase, the search nodes expanded so far and, for a failed job, its error"
+    )
+    @ApiResponse(
+            responseCode = "404",
+            description = "No job has this ID",
+            content = @Content(
+                    mediaType = "application/json",
+                    schema = @Schema(implementation = ErrorResponse.class)
+            )
+    )
+    @GetMapping(
+            value = "/jobs/{jobId}",
+            produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    public Mono<GenerationJobDTO> getGenerationJob(
+            @Parameter(description = "Job ID", example = "1")
+            @PathVariable Long jobId
+    ) {
+        return jobService.getJob(jobId)
+                .map(GenerationJobDTO::from)
+                .onErrorResume(this::handleError);
+    }
+
+    /**
+     * Endpoint to follow a generation job as server-sent events.
+     *
+     * @param jobId The job ID.
+     * @return A Flux of GenerationJobDTO objects, one per change, ending with the terminal state.
+     */
+    @Operation(
+            summary = "Follow a generation job",
+            description = "Sends an event whenever the job's phase or progress changes and closes the stream once it succeeded or failed"
+    )
+    @GetMapping(
+            value = "/jobs/{jobId}",
+            produces = MediaType.TEXT_EVENT_STREAM_VALUE
+    )
+    public Flux<GenerationJobDTO> watchGenerationJob(
+            @Parameter(description = "Job ID", example = "1")
+            @PathVariable Long jobId
+    ) {
+        return jobService.watchJob(jobId)
+                .map(GenerationJobDTO::from)
+                .onErrorResume(this::handleError);
+    }
+
+    /**
+     * Endpoint to fetch the assignments a generation job produced.
+     *
+     * @param jobId          The job ID.
+     * @param ifNoneMatch    The entity tags the client already holds, if any.
+     * @param acceptEncoding The content codings the client accepts, if any.
+     * @return The encoded FamilyAssignmentDTO array with its ETag, or 304 if the client's copy is current.
+     */
+    @Operation(
+            summary = "Get the result of a generation job",
+            description = "Returns the year's assignments once the job succeeded, exactly as the group's assignments endpoint would"
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "404",
+                    description = "No job has this ID",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = ErrorResponse.class)
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "409",
+                    description = "The job is still running or failed",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = ErrorResponse.class)
+                    )
+            )
+    })
+    @GetMapping(
+            value = "/jobs/{jobId}/result",
+            produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    public Mono<ResponseEntity<byte[]>> getGenerationJobResult(
+            @Parameter(description = "Job ID", example = "1")
+            @PathVariable Long jobId,
+            @Parameter(description = "ETag of a previously returned response")
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @Parameter(hidden = true)
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding
+    ) {
+        return jobService.getResult(jobId)
+                .map(cachedYear -> toResponse(cachedYear, ifNoneMatch, acceptEncoding))
+                .onErrorResume(this::handleError);
+    }
+
+    /**
+     * Endpoint to create Secret Santa assignments of many exchange groups for a given year.
+     *
+     * @param year     The year for which assignments are to be created.
+     * @param groupIds The exchange group IDs.
+     * @return A Flux of GroupAssignmentsDTO objects, streamed as each group finishes.
+     */
+    @Operation(
+            summary = "Generate yearly assignments of many exchange groups",
+            description = "Generates or retrieves the assignments of every listed exchange group. Groups are solved " +
+                    "in parallel and each group's result is streamed as a separate JSON line as soon as it is ready; " +
+                    "a group that fails carries its error instead of assignments"
+    )
+    @ApiResponse(
+            responseCode = "200",
+            description = "One line per exchange group, in completion order",
+            content = @Content(
+                    mediaType = MediaType.APPLICATION_NDJSON_VALUE,
+                    schema = @Schema(implementation = GroupAssignmentsDTO.class)
+            )
+    )
+    @PostMapping(
+            value = "/groups/assignments/{year}",
+            consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = MediaType.APPLICATION_NDJSON_VALUE
+    )
+    public Flux<GroupAssignmentsDTO> createGroupAssignments(
+            @Parameter(description = "Year for assignments", example = "2024")
+            @PathVariable Integer year,
+            @RequestBody List<Long> groupIds
+    ) {
+        log.info("Generating Secret Santa assignments for {} groups, year: {}", groupIds.size(), year);
+        return secretSantaService.createAssignments(groupIds, year)
+                .map(groupAssignments -> GroupAssignmentsDTO.from(groupAssignments, toErrorResponse(groupAssignments)))
+                .doOnComplete(() -> log.info("Completed generating assignments for {} groups, year: {}", groupIds.size(), year));
+    }
+
+    /**
+     * Describes the error of a failed group the way the exception handler would for a single request.
+     *
+     * @param groupAssignments The outcome of one group.
+     * @return The error response, or null if the group succeeded.
+     */
+    private ErrorResponse toErrorResponse(GroupAssignments groupAssignments) {
+        Throwable error = groupAssignments.getError();
+        if (error == null) {
+            return null;
+        }
+        log.error("Error creating assignments for group {}: {}", groupAssignments.getGroupId(), error.getMessage());
+        return GlobalExceptionHandler.toErrorResponse(error);
+    }
+
+    /**
+     * Builds the response for a year, answering 304 when the client already holds its ETag.
+     * <p>
+     * The body is the year's pre-encoded JSON, gzip-compressed when the client accepts it. The two
+     * encodings are different representations, so each has its own strong ETag. The payload is only
+     * looked up, and encoded on a cache miss, when a body is actually sent.
+     *
+     * @param cachedYear     The year's assignments and ETag.
+     * @param ifNoneMatch    The If-None-Match header, or null.
+     * @param acceptEncoding The Accept-Encoding header, or null.
+     * @return The response entity.
+     */
+    private ResponseEntity<byte[]> toResponse(AssignmentCache.CachedYear cachedYear, String ifNoneMatch, String acceptEncoding) {
+        boolean gzip = payloadCache.compressible(cachedYear) && acceptsGzip(acceptEncoding);
+        String etag = "\"" + cachedYear.etag() + (gzip ? "-gzip" : "") + "\"";
+        boolean notModified = ifNoneMatch != null && matchesAny(ifNoneMatch, etag);
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(notModified ? HttpStatus.NOT_MODIFIED : HttpStatus.OK)
+                .eTag(etag)
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (notModified) {
+            return response.build();
+        }
+        AssignmentPayloadCache.Payload payload = payloadCache.get(cachedYear);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(gzip ? payload.gzip() : payload.json());
+    }
+
+    /**
+     * Checks whether an Accept-Encoding header allows gzip, following RFC 9110: an explicit gzip
+     * entry decides, otherwise a {@code *} entry does, and a coding is refused by a zero q-value.
+     *
+     * @param acceptEncoding The header value, or null.
+     * @return True if gzip is acceptable with a non-zero quality, false otherwise.
+     */
+    private boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        double gzipQuality = -1;
+        double wildcardQuality = -1;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim();
+            if (name.equalsIgnoreCase("gzip") || name.equalsIgnoreCase("x-gzip")) {
+                gzipQuality = Math.max(gzipQuality, quality(parts));
+            } else if (name.equals("*")) {
+                wildcardQuality = Math.max(wildcardQuality, quality(parts));
+            }
+        }
+        return (gzipQuality >= 0 ? gzipQuality : wildcardQuality) > 0;
+    }
+
+    /**
+     * Reads the q-value of an Accept-Encoding entry.
+     *
+     * @param parts The entry split at {@code ;}, the coding first.
+     * @return The quality, 1 if none is given, or 0 if it is malformed.
+     */
+    private double quality(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String parameter = parts[i].trim();
+            if (parameter.regionMatches(true, 0, "q=", 0, 2)) {
+                String value = parameter.substring(2).trim();
+                return value.matches("0(\\.\\d{0,3})?|1(\\.0{0,3})?") ? Double.parseDouble(value) : 0;
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * Compares an If-None-Match header with an entity tag, using weak comparison as RFC 9110
+     * requires for this header.
+     *
+     * @param ifNoneMatch The header value, a comma-separated list of tags or {@code *}.
+     * @param etag        The quoted entity tag of the current representation.
+     * @return True if any listed tag matches, false otherwise.
+     */
+    private boolean matchesAny(String ifNoneMatch, String etag) {
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Handles errors that occur during the creation of assignments.
      *
      * @param error The error that occurred.
      * @return A Mono error with the appropriate exception.
      */
-    private Mono<FamilyAssignmentDTO> handleError(Throwable error) {
+    private <T> Mono<T> handleError(Throwable error) {
         log.error("Error creating assignments: {}", error.getMessage());
-        if (error instanceof InvalidParticipantsException || error instanceof AssignmentImpossibleException || error instanceof NoAssignmentsException) {
+        if (GlobalExceptionHandler.isReported(error)) {
             return Mono.error(error);
         }
         return Mono.error(new RuntimeException("Unexpected error occurred"));
@@ -0,0 +1,35 @@
+package com.bettercloud.santa.dto;
+
+import com.bettercloud.santa.model.GenerationJob;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class GenerationJobDTO {
+    private Long id;
+    private Long groupId;
+    private Integer assignmentYear;
+    private String state;
+    private Long expansions;
+    private String error;
+    private Instant createdAt;
+    private Instant updatedAt;
+
+    public static GenerationJobDTO from(GenerationJob job) {
+        GenerationJobDTO dto = new GenerationJobDTO();
+        dto.setId(job.getId());
+        dto.setGroupId(job.getGroupId());
+        dto.setAssignmentYear(job.getAssignmentYear());
+        dto.setState(job.getState().name());
+        dto.setExpansions(job.getExpansions());
+        dto.setError(job.getError());
+        dto.setCreatedAt(job.getCreatedAt());
+        dto.setUpdatedAt(job.getUpdatedAt());
+        return dto;
+    }
+}
@@ -0,0 +1,30 @@
+package com.bettercloud.santa.dto;
+
+import com.bettercloud.santa.exception.ErrorResponse;
+import com.bettercloud.santa.model.GroupAssignments;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class GroupAssignmentsDTO {
+    private Long groupId;
+    private Integer assignmentYear;
+    private List<FamilyAssignmentDTO> assignments;
+    private ErrorResponse error;
+
+    public static GroupAssignmentsDTO from(GroupAssignments groupAssignments, ErrorResponse error) {
+        GroupAssignmentsDTO dto = new GroupAssignmentsDTO();
+        dto.setGroupId(groupAssignments.getGroupId());
+        dto.setAssignmentYear(groupAssignments.getAssignmentYear());
+        dto.setAssignments(groupAssignments.getAssignments().stream()
+                .map(FamilyAssignmentDTO::from)
+                .toList());
+        dto.setError(error);
+        return dto;
+    }
+}
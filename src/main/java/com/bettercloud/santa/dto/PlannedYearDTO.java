@@ -0,0 +1,26 @@
+package com.bettercloud.santa.dto;
+
+import com.bettercloud.santa.model.PlannedYear;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+public class PlannedYearDTO {
+    private Long groupId;
+    private Integer assignmentYear;
+    private String status = "TENTATIVE";
+    private List<FamilyAssignmentDTO> assignments;
+
+    public static PlannedYearDTO from(PlannedYear plannedYear) {
+        PlannedYearDTO dto = new PlannedYearDTO();
+        dto.setGroupId(plannedYear.getGroupId());
+        dto.setAssignmentYear(plannedYear.getAssignmentYear());
+        dto.setAssignments(plannedYear.getAssignments().stream()
+                .map(FamilyAssignmentDTO::from)
+                .toList());
+        return dto;
+    }
+}
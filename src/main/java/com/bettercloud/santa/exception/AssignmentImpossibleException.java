@@ -1,10 +1,28 @@
 package com.bettercloud.santa.exception;
 
+import java.util.List;
+
 /**
  * Exception thrown when it is impossible to assign Secret Santa due to constraints.
  */
 public class AssignmentImpossibleException extends RuntimeException {
+    private final List<Long> conflictingMemberIds;
+
     public AssignmentImpossibleException(String message) {
+        this(message, List.of());
+    }
+
+    /**
+     * @param message              The error message.
+     * @param conflictingMemberIds Members proving the assignment is impossible, e.g. a group of
+     *                             santas with fewer eligible recipients than santas.
+     */
+    public AssignmentImpossibleException(String message, List<Long> conflictingMemberIds) {
         super(message);
+        this.conflictingMemberIds = List.copyOf(conflictingMemberIds);
+    }
+
+    public List<Long> getConflictingMemberIds() {
+        return conflictingMemberIds;
     }
 }
@@ -1,13 +1,16 @@
 package com.bettercloud.santa.exception;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 
 import java.time.LocalDateTime;
+import java.util.Map;
 
 @Data
 @AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
 @Schema(description = "Error Response Structure")
 public class ErrorResponse {
     @Schema(description = "Error code", example = "INVALID_PARTICIPANTS")
@@ -19,9 +22,14 @@ public class ErrorResponse {
     @Schema(description = "Error timestamp", example = "2024-01-01T10:00:00")
     private LocalDateTime timestamp;
 
+    @Schema(description = "Additional error details", example = "{\"expansions\": 100000000}")
+    private Map<String, Object> details;
+
     public ErrorResponse(String code, String message) {
-        this.code = code;
-        this.message = message;
-        this.timestamp = LocalDateTime.now();
+        this(code, message, LocalDateTime.now(), null);
+    }
+
+    public ErrorResponse(String code, String message, Map<String, Object> details) {
+        this(code, message, LocalDateTime.now(), details);
     }
 }
@@ -1,48 +1,102 @@
 package com.bettercloud.santa.exception;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
+import java.util.Map;
+
 @RestControllerAdvice
 public class GlobalExceptionHandler {
+    private static final String UNEXPECTED_ERROR = "Unexpected error occurred";
 
-    @ExceptionHandler(InvalidParticipantsException.class)
-    public ResponseEntity<ErrorResponse> handleInvalidParticipantsException(InvalidParticipantsException ex) {
-        ErrorResponse error = new ErrorResponse(
-                HttpStatus.BAD_REQUEST.toString(),
-                ex.getMessage()
-        );
+    /**
+     * The status of every error the API reports with its own message. Any other error is
+     * reported as an unexpected one, without its message.
+     */
+    private static final Map<Class<? extends RuntimeException>, HttpStatus> STATUSES = Map.ofEntries(
+            Map.entry(InvalidParticipantsException.class, HttpStatus.BAD_REQUEST),
+            Map.entry(AssignmentImpossibleException.class, HttpStatus.BAD_REQUEST),
+            Map.entry(NoAssignmentsException.class, HttpStatus.BAD_REQUEST),
+            Map.entry(InvalidPlanException.class, HttpStatus.BAD_REQUEST),
+            Map.entry(SantaNotFoundException.class, HttpStatus.NOT_FOUND),
+            Map.entry(PlanNotFoundException.class, HttpStatus.NOT_FOUND),
+            Map.entry(JobNotFoundException.class, HttpStatus.NOT_FOUND),
+            Map.entry(PlanConflictException.class, HttpStatus.CONFLICT),
+            Map.entry(JobNotReadyException.class, HttpStatus.CONFLICT),
+            Map.entry(SolverBudgetExceededException.class, HttpStatus.SERVICE_UNAVAILABLE),
+            Map.entry(SolverOverloadedException.class, HttpStatus.SERVICE_UNAVAILABLE)
+    );
+
+    /**
+     * Tells whether an error is one the API reports with its own message.
+     *
+     * @param error The error.
+     * @return True if the error has a mapped status, false otherwise.
+     */
+    public static boolean isReported(Throwable error) {
+        return STATUSES.containsKey(error.getClass());
+    }
+
+    /**
+     * Describes an error the way a response for it would.
+     *
+     * @param error The error.
+     * @return The error response, with a generic message for an unexpected error.
+     */
+    public static ErrorResponse toErrorResponse(Throwable error) {
+        HttpStatus status = STATUSES.get(error.getClass());
+        if (status == null) {
+            return new ErrorResponse(HttpStatus.INTERNAL_SERVER_ERROR.toString(), UNEXPECTED_ERROR);
+        }
+        return new ErrorResponse(status.toString(), error.getMessage());
+    }
+
+    @ExceptionHandler({
+            InvalidParticipantsException.class,
+            AssignmentImpossibleException.class,
+            NoAssignmentsException.class,
+            InvalidPlanException.class,
+            SantaNotFoundException.class,
+            PlanNotFoundException.class,
+            JobNotFoundException.class,
+            PlanConflictException.class,
+            JobNotReadyException.class
+    })
+    public ResponseEntity<ErrorResponse> handleReportedException(RuntimeException ex) {
         return ResponseEntity
-                .badRequest()
+                .status(STATUSES.get(ex.getClass()))
                 .contentType(MediaType.APPLICATION_JSON)
-                .body(error);
+                .body(toErrorResponse(ex));
     }
 
-    @ExceptionHandler(AssignmentImpossibleException.class)
-    public ResponseEntity<ErrorResponse> handleAssignmentImpossibleException(AssignmentImpossibleException ex) {
+    @ExceptionHandler(SolverBudgetExceededException.class)
+    public ResponseEntity<ErrorResponse> handleSolverBudgetExceededException(SolverBudgetExceededException ex) {
         ErrorResponse error = new ErrorResponse(
-                HttpStatus.BAD_REQUEST.toString(),
-                ex.getMessage()
+                HttpStatus.SERVICE_UNAVAILABLE.toString(),
+                ex.getMessage(),
+                Map.of(
+                        "expansions", ex.getExpansions(),
+                        "elapsedMillis", ex.getElapsed().toMillis(),
+                        "attemptedStrategies", ex.getAttemptedStrategies()
+                )
         );
         return ResponseEntity
-                .badRequest()
+                .status(HttpStatus.SERVICE_UNAVAILABLE)
                 .contentType(MediaType.APPLICATION_JSON)
                 .body(error);
     }
 
-    @ExceptionHandler(NoAssignmentsException.class)
-    public ResponseEntity<ErrorResponse> handleNoAssignmentsException(NoAssignmentsException ex) {
-        ErrorResponse error = new ErrorResponse(
-                HttpStatus.BAD_REQUEST.toString(),
-                ex.getMessage()
-        );
+    @ExceptionHandler(SolverOverloadedException.class)
+    public ResponseEntity<ErrorResponse> handleSolverOverloadedException(SolverOverloadedException ex) {
         return ResponseEntity
-                .badRequest()
+                .status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfter().toSeconds()))
                 .contentType(MediaType.APPLICATION_JSON)
-                .body(error);
+                .body(toErrorResponse(ex));
     }
 
     @ExceptionHandler(Exception.class)
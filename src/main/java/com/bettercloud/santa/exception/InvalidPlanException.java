@@ -0,0 +1,10 @@
+package com.bettercloud.santa.exception;
+
+/**
+ * Exception thrown when a planning request asks for an unsupported range of years.
+ */
+public class InvalidPlanException extends RuntimeException {
+    public InvalidPlanException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,10 @@
+package com.bettercloud.santa.exception;
+
+/**
+ * Exception thrown when no generation job has the requested ID.
+ */
+public class JobNotFoundException extends RuntimeException {
+    public JobNotFoundException(String message) {
+        super(message);
+    }
+}
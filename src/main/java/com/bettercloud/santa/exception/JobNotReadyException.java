@@ -0,0 +1,10 @@
+package com.bettercloud.santa.exception;
+
+/**
+ * Exception thrown when the result of a generation job is requested before the job succeeded.
+ */
+public class JobNotReadyException extends RuntimeException {
+    public JobNotReadyException(String message) {
+        super(message);
+    }
+}
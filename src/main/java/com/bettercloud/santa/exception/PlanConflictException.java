@@ -0,0 +1,11 @@
+package com.bettercloud.santa.exception;
+
+/**
+ * Exception thrown when a plan clashes with the stored assignments: a planned year was already generated,
+ * or the roster or history changed since the year was planned.
+ */
+public class PlanConflictException extends RuntimeException {
+    public PlanConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,10 @@
+package com.bettercloud.santa.exception;
+
+/**
+ * Exception thrown when an exchange group has no tentative plan for the requested year.
+ */
+public class PlanNotFoundException extends RuntimeException {
+    public PlanNotFoundException(String message) {
+        super(message);
+    }
+}
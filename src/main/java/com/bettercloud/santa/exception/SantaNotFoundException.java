@@ -0,0 +1,10 @@
+package com.bettercloud.santa.exception;
+
+/**
+ * Exception thrown when a member has no assignment as santa in the requested year.
+ */
+public class SantaNotFoundException extends RuntimeException {
+    public SantaNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,42 @@
+package com.bettercloud.santa.exception;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Exception thrown when assignment generation runs out of its time or node-expansion budget.
+ */
+public class SolverBudgetExceededException extends RuntimeException {
+    private final long expansions;
+    private final Duration elapsed;
+    private final List<String> attemptedStrategies;
+
+    public SolverBudgetExceededException(String message, long expansions, Duration elapsed) {
+        this(message, expansions, elapsed, List.of());
+    }
+
+    /**
+     * @param message             The error message.
+     * @param expansions          The number of search nodes expanded before giving up.
+     * @param elapsed             The wall-clock time spent solving.
+     * @param attemptedStrategies The strategies tried, in order, with how each one ended.
+     */
+    public SolverBudgetExceededException(String message, long expansions, Duration elapsed, List<String> attemptedStrategies) {
+        super(message);
+        this.expansions = expansions;
+        this.elapsed = elapsed;
+        this.attemptedStrategies = List.copyOf(attemptedStrategies);
+    }
+
+    public long getExpansions() {
+        return expansions;
+    }
+
+    public Duration getElapsed() {
+        return elapsed;
+    }
+
+    public List<String> getAttemptedStrategies() {
+        return attemptedStrategies;
+    }
+}
@@ -0,0 +1,23 @@
+package com.bettercloud.santa.exception;
+
+import java.time.Duration;
+
+/**
+ * Exception thrown when a generation request is rejected because the solver queue is full.
+ */
+public class SolverOverloadedException extends RuntimeException {
+    private final Duration retryAfter;
+
+    /**
+     * @param message    The error message.
+     * @param retryAfter The delay after which the client may retry.
+     */
+    public SolverOverloadedException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,41 @@
+package com.bettercloud.santa.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * An assignment joined with the santa and recipient it refers to, read in a single query.
+ */
+@Data
+@NoArgsConstructor
+public class AssignmentDetails {
+    private Long id;
+    private Long groupId;
+    private Integer assignmentYear;
+    private Long solverSeed;
+    private Long santaId;
+    private Integer santaFamilyId;
+    private String santaName;
+    private Long recipientId;
+    private Integer recipientFamilyId;
+    private String recipientName;
+
+    /**
+     * Converts the row into an assignment with its santa and recipient set.
+     *
+     * @return The FamilyAssignment object.
+     */
+    public FamilyAssignment toAssignment() {
+        FamilyAssignment assignment = new FamilyAssignment(assignmentYear, santaId, recipientId);
+        assignment.setId(id);
+        assignment.setGroupId(groupId);
+        assignment.setSolverSeed(solverSeed);
+        FamilyMember santa = new FamilyMember(santaId, santaFamilyId, santaName);
+        santa.setGroupId(groupId);
+        FamilyMember recipient = new FamilyMember(recipientId, recipientFamilyId, recipientName);
+        recipient.setGroupId(groupId);
+        assignment.setSanta(santa);
+        assignment.setRecipient(recipient);
+        return assignment;
+    }
+}
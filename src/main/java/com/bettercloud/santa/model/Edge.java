@@ -19,6 +19,9 @@ public class Edge {
     @Column("member_id")
     private Long memberId;
 
+    @Column("group_id")
+    private Long groupId;
+
     public Edge(RelationType type, Long memberId) {
         this.type = type;
         this.memberId = memberId;
@@ -13,6 +13,10 @@ import org.springframework.data.relational.core.mapping.Table;
 public class FamilyAssignment {
     @Id
     private Long id;
+
+    @Column("group_id")
+    private Long groupId;
+
     private Integer assignmentYear;
 
     @Column("giver_id")
@@ -21,6 +25,9 @@ public class FamilyAssignment {
     @Column("receiver_id")
     private Long recipientId;
 
+    @Column("solver_seed")
+    private Long solverSeed;
+
     @Transient
     private FamilyMember santa;
 
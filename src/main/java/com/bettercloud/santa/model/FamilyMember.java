@@ -15,6 +15,7 @@ import org.springframework.data.relational.core.mapping.Table;
 public class FamilyMember {
     @Id
     private Long id;
+    private Long groupId;
     private Integer familyId;
     private String name;
 
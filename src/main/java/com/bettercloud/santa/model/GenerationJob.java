@@ -0,0 +1,47 @@
+package com.bettercloud.santa.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.Instant;
+
+/**
+ * An asynchronous request to generate a group's year. The node running the job keeps the row up
+ * to date, so any node can report on it.
+ */
+@Data
+@NoArgsConstructor
+@Table("generation_jobs")
+public class GenerationJob {
+    @Id
+    private Long id;
+
+    @Column("group_id")
+    private Long groupId;
+
+    private Integer assignmentYear;
+
+    private JobState state;
+
+    private Long expansions;
+
+    private String error;
+
+    private Instant createdAt;
+
+    private Instant updatedAt;
+
+    public static GenerationJob queued(Long groupId, Integer assignmentYear) {
+        GenerationJob job = new GenerationJob();
+        job.setGroupId(groupId);
+        job.setAssignmentYear(assignmentYear);
+        job.setState(JobState.QUEUED);
+        job.setExpansions(0L);
+        job.setCreatedAt(Instant.now());
+        job.setUpdatedAt(job.getCreatedAt());
+        return job;
+    }
+}
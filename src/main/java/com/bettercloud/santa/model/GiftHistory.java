@@ -0,0 +1,15 @@
+package com.bettercloud.santa.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A santa-recipient pair and the last year of a history window it was given in.
+ */
+@Data
+@NoArgsConstructor
+public class GiftHistory {
+    private Long santaId;
+    private Long recipientId;
+    private Integer lastYear;
+}
@@ -0,0 +1,29 @@
+package com.bettercloud.santa.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * The outcome of generating one exchange group's year as part of a bulk request: either the
+ * group's assignments or the error that stopped them.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GroupAssignments {
+    private Long groupId;
+    private Integer assignmentYear;
+    private List<FamilyAssignment> assignments;
+    private Throwable error;
+
+    public static GroupAssignments succeeded(Long groupId, Integer assignmentYear, List<FamilyAssignment> assignments) {
+        return new GroupAssignments(groupId, assignmentYear, assignments, null);
+    }
+
+    public static GroupAssignments failed(Long groupId, Integer assignmentYear, Throwable error) {
+        return new GroupAssignments(groupId, assignmentYear, List.of(), error);
+    }
+}
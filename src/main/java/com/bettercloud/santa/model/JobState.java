@@ -0,0 +1,17 @@
+package com.bettercloud.santa.model;
+
+/**
+ * The phase of an asynchronous generation job.
+ */
+public enum JobState {
+    QUEUED,
+    LOADING,
+    SOLVING,
+    SAVING,
+    SUCCEEDED,
+    FAILED;
+
+    public boolean isTerminal() {
+        return this == SUCCEEDED || this == FAILED;
+    }
+}
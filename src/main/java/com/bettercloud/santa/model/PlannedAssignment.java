@@ -0,0 +1,50 @@
+package com.bettercloud.santa.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+/**
+ * A tentative assignment of a planned year, kept apart from the confirmed assignments until its
+ * year is confirmed.
+ */
+@Data
+@NoArgsConstructor
+@Table("planned_assignments")
+public class PlannedAssignment {
+    @Id
+    private Long id;
+
+    @Column("group_id")
+    private Long groupId;
+
+    private Integer assignmentYear;
+
+    @Column("giver_id")
+    private Long santaId;
+
+    @Column("receiver_id")
+    private Long recipientId;
+
+    @Column("solver_seed")
+    private Long solverSeed;
+
+    public static PlannedAssignment from(FamilyAssignment assignment) {
+        PlannedAssignment planned = new PlannedAssignment();
+        planned.setGroupId(assignment.getGroupId());
+        planned.setAssignmentYear(assignment.getAssignmentYear());
+        planned.setSantaId(assignment.getSantaId());
+        planned.setRecipientId(assignment.getRecipientId());
+        planned.setSolverSeed(assignment.getSolverSeed());
+        return planned;
+    }
+
+    public FamilyAssignment toAssignment() {
+        FamilyAssignment assignment = new FamilyAssignment(assignmentYear, santaId, recipientId);
+        assignment.setGroupId(groupId);
+        assignment.setSolverSeed(solverSeed);
+        return assignment;
+    }
+}
@@ -0,0 +1,20 @@
+package com.bettercloud.santa.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * The tentative assignments of one planned year of an exchange group. They have no IDs until the
+ * year is confirmed.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PlannedYear {
+    private Long groupId;
+    private Integer assignmentYear;
+    private List<FamilyAssignment> assignments;
+}
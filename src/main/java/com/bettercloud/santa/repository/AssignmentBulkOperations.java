@@ -0,0 +1,28 @@
+package com.bettercloud.santa.repository;
+
+import com.bettercloud.santa.model.AssignmentDetails;
+import com.bettercloud.santa.model.FamilyAssignment;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+public interface AssignmentBulkOperations {
+
+    /**
+     * Inserts assignments in multi-row statements, skipping santas already assigned for the year.
+     *
+     * @param assignments The assignments to insert.
+     * @return A Flux of the inserted assignments with their generated IDs; conflicting rows are omitted.
+     */
+    Flux<FamilyAssignment> insertAllIfAbsent(List<FamilyAssignment> assignments);
+
+    /**
+     * Streams a group's assignments for the year with their santa and recipient, fetching rows
+     * from the server in pages as downstream demand arrives rather than reading the whole year.
+     *
+     * @param groupId The exchange group ID.
+     * @param year    The assignment year.
+     * @return A Flux of AssignmentDetails objects, ordered by assignment ID.
+     */
+    Flux<AssignmentDetails> streamDetailsByYear(Long groupId, Integer year);
+}
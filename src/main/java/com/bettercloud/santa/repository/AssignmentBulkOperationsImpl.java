@@ -0,0 +1,132 @@
+package com.bettercloud.santa.repository;
+
+import com.bettercloud.santa.config.PersistenceProperties;
+import com.bettercloud.santa.model.AssignmentDetails;
+import com.bettercloud.santa.model.FamilyAssignment;
+import io.r2dbc.spi.Row;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+/**
+ * Writes assignments with one {@code INSERT ... SELECT FROM unnest(...)} per batch.
+ * <p>
+ * Every batch binds five arrays rather than five parameters per row, so the statement text and
+ * parameter count stay the same whatever the batch size, and Postgres' bind-parameter limit never
+ * applies. Batches run one after another on the caller's connection, so they join its transaction.
+ * <p>
+ * Streamed reads set the statement fetch size, so Postgres returns the rows through a portal one
+ * page at a time and the driver only asks for the next page once the previous one was consumed.
+ */
+public class AssignmentBulkOperationsImpl implements AssignmentBulkOperations {
+    private static final String INSERT_BATCH =
+            "INSERT INTO assignments (group_id, assignment_year, giver_id, receiver_id, solver_seed) " +
+            "SELECT * FROM unnest(:groupIds::bigint[], :years::int[], :santaIds::bigint[], :recipientIds::bigint[], :solverSeeds::bigint[]) " +
+            "ON CONFLICT (group_id, assignment_year, giver_id) DO NOTHING " +
+            "RETURNING id, group_id, assignment_year, giver_id, receiver_id, solver_seed";
+    private static final String SELECT_DETAILS =
+            "SELECT a.id, a.group_id, a.assignment_year, a.solver_seed, " +
+            "a.giver_id AS santa_id, s.family_id AS santa_family_id, s.name AS santa_name, " +
+            "a.receiver_id AS recipient_id, r.family_id AS recipient_family_id, r.name AS recipient_name " +
+            "FROM assignments a " +
+            "JOIN members s ON s.id = a.giver_id " +
+            "JOIN members r ON r.id = a.receiver_id " +
+            "WHERE a.group_id = :groupId AND a.assignment_year = :year " +
+            "ORDER BY a.id";
+
+    private final DatabaseClient databaseClient;
+    private final int batchSize;
+    private final int fetchSize;
+
+    public AssignmentBulkOperationsImpl(DatabaseClient databaseClient, PersistenceProperties properties) {
+        if (properties.getInsertBatchSize() < 1) {
+            throw new IllegalArgumentException("santa.persistence.insert-batch-size must be positive");
+        }
+        if (properties.getStreamFetchSize() < 1) {
+            throw new IllegalArgumentException("santa.persistence.stream-fetch-size must be positive");
+        }
+        this.databaseClient = databaseClient;
+        this.batchSize = properties.getInsertBatchSize();
+        this.fetchSize = properties.getStreamFetchSize();
+    }
+
+    @Override
+    public Flux<FamilyAssignment> insertAllIfAbsent(List<FamilyAssignment> assignments) {
+        int batches = (assignments.size() + batchSize - 1) / batchSize;
+        return Flux.range(0, batches)
+                .concatMap(batch -> insertBatch(assignments.subList(
+                        batch * batchSize,
+                        Math.min(assignments.size(), (batch + 1) * batchSize))));
+    }
+
+    @Override
+    public Flux<AssignmentDetails> streamDetailsByYear(Long groupId, Integer year) {
+        return databaseClient.sql(SELECT_DETAILS)
+                .bind("groupId", groupId)
+                .bind("year", year)
+                .filter(statement -> statement.fetchSize(fetchSize))
+                .map((row, metadata) -> toDetails(row))
+                .all()
+                .limitRate(fetchSize);
+    }
+
+    /**
+     * Inserts one batch in a single statement.
+     *
+     * @param batch The assignments of the batch.
+     * @return A Flux of the inserted assignments.
+     */
+    private Flux<FamilyAssignment> insertBatch(List<FamilyAssignment> batch) {
+        int size = batch.size();
+        Long[] groupIds = new Long[size];
+        Integer[] years = new Integer[size];
+        Long[] santaIds = new Long[size];
+        Long[] recipientIds = new Long[size];
+        Long[] solverSeeds = new Long[size];
+        for (int i = 0; i < size; i++) {
+            FamilyAssignment assignment = batch.get(i);
+            groupIds[i] = assignment.getGroupId();
+            years[i] = assignment.getAssignmentYear();
+            santaIds[i] = assignment.getSantaId();
+            recipientIds[i] = assignment.getRecipientId();
+            solverSeeds[i] = assignment.getSolverSeed();
+        }
+
+        return databaseClient.sql(INSERT_BATCH)
+                .bind("groupIds", groupIds)
+                .bind("years", years)
+                .bind("santaIds", santaIds)
+                .bind("recipientIds", recipientIds)
+                .bind("solverSeeds", solverSeeds)
+                .map((row, metadata) -> toAssignment(row))
+                .all();
+    }
+
+    private FamilyAssignment toAssignment(Row row) {
+        FamilyAssignment assignment = new FamilyAssignment(
+                row.get("assignment_year", Integer.class),
+                row.get("giver_id", Long.class),
+                row.get("receiver_id", Long.class)
+        );
+        assignment.setId(row.get("id", Long.class));
+        assignment.setGroupId(row.get("group_id", Long.class));
+        assignment.setSolverSeed(row.get("solver_seed", Long.class));
+        return assignment;
+    }
+
+    private AssignmentDetails toDetails(Row row) {
+        AssignmentDetails details = new AssignmentDetails();
+        details.setId(row.get("id", Long.class));
+        details.setGroupId(row.get("group_id", Long.class));
+        details.setAssignmentYear(row.get("assignment_year", Integer.class));
+        details.setSolverSeed(row.get("solver_seed", Long.class));
+        details.setSantaId(row.get("santa_id", Long.class));
+        details.setSantaFamilyId(row.get("santa_family_id", Integer.class));
+        details.setSantaName(row.get("santa_name", String.class));
+        details.setRecipientId(row.get("recipient_id", Long.class));
+        details.setRecipientFamilyId(row.get("recipient_family_id", Integer.class));
+        details.setRecipientName(row.get("recipient_name", String.class));
+        return details;
+    }
+}
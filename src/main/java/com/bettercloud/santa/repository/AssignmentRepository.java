@@ -1,24 +1,112 @@
 package com.bettercloud.santa.repository;
 
+import com.bettercloud.santa.model.AssignmentDetails;
 import com.bettercloud.santa.model.FamilyAssignment;
+import com.bettercloud.santa.model.GiftHistory;
+import org.springframework.data.r2dbc.repository.Modifying;
 import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.r2dbc.repository.R2dbcRepository;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 @Repository
-public interface AssignmentRepository extends R2dbcRepository<FamilyAssignment, Long> {
+public interface AssignmentRepository extends R2dbcRepository<FamilyAssignment, Long>, AssignmentBulkOperations {
 
     /**
-     * Finds FamilyAssignment records where the assignment year is between the specified start and end years.
+     * Finds FamilyAssignment records of an exchange group where the assignment year is between the
+     * specified start and end years.
      *
+     * @param groupId   The exchange group ID.
      * @param startYear The start year of the range.
      * @param endYear   The end year of the range.
      * @return A Flux of FamilyAssignment objects that match the criteria.
      */
-    @Query("SELECT * FROM assignments WHERE assignment_year BETWEEN :startYear AND :endYear")
+    @Query("SELECT * FROM assignments WHERE group_id = :groupId AND assignment_year BETWEEN :startYear AND :endYear")
     Flux<FamilyAssignment> findByYearsBetween(
+            @Param("groupId") Long groupId,
             @Param("startYear") Integer startYear,
             @Param("endYear") Integer endYear);
+
+    /**
+     * Finds the assignments of a group's year together with the santa and recipient details in one query.
+     *
+     * @param groupId The exchange group ID.
+     * @param year    The assignment year.
+     * @return A Flux of AssignmentDetails objects, ordered by assignment ID.
+     */
+    @Query("SELECT a.id, a.group_id, a.assignment_year, a.solver_seed, " +
+            "a.giver_id AS santa_id, s.family_id AS santa_family_id, s.name AS santa_name, " +
+            "a.receiver_id AS recipient_id, r.family_id AS recipient_family_id, r.name AS recipient_name " +
+            "FROM assignments a " +
+            "JOIN members s ON s.id = a.giver_id " +
+            "JOIN members r ON r.id = a.receiver_id " +
+            "WHERE a.group_id = :groupId AND a.assignment_year = :year " +
+            "ORDER BY a.id")
+    Flux<AssignmentDetails> findDetailsByYear(@Param("groupId") Long groupId, @Param("year") Integer year);
+
+    /**
+     * Takes a transaction-scoped advisory lock on a group's year, waiting until any other holder
+     * commits or rolls back. Must run inside a transaction.
+     *
+     * @param groupId The exchange group ID.
+     * @param year    The assignment year.
+     * @return A Mono that completes once the lock is held.
+     */
+    @Query("SELECT 1 FROM pg_advisory_xact_lock(hashtext('assignments:' || :groupId), :year)")
+    Mono<Integer> lockYear(@Param("groupId") Long groupId, @Param("year") Integer year);
+
+    /**
+     * Finds every santa-recipient pair of an exchange group given between the specified years,
+     * with the last year of the range it was given in.
+     * <p>
+     * The pairs are read from the assignments themselves, so a year generated, repaired or
+     * regenerated out of order is seen as it is stored, and the covering
+     * {@code (group_id, assignment_year)} index answers the query without touching the table.
+     *
+     * @param groupId   The exchange group ID.
+     * @param startYear The start year of the range.
+     * @param endYear   The end year of the range.
+     * @return A Flux of GiftHistory objects, one per pair.
+     */
+    @Query("SELECT giver_id AS santa_id, receiver_id AS recipient_id, MAX(assignment_year) AS last_year FROM assignments " +
+            "WHERE group_id = :groupId AND assignment_year BETWEEN :startYear AND :endYear " +
+            "GROUP BY giver_id, receiver_id")
+    Flux<GiftHistory> findGiftHistory(
+            @Param("groupId") Long groupId,
+            @Param("startYear") Integer startYear,
+            @Param("endYear") Integer endYear);
+
+    /**
+     * Finds the latest year an exchange group has assignments for.
+     *
+     * @param groupId The exchange group ID.
+     * @return A Mono of the latest assignment year, or 0 if the group has none.
+     */
+    @Query("SELECT COALESCE(MAX(assignment_year), 0) FROM assignments WHERE group_id = :groupId")
+    Mono<Integer> findLatestYear(@Param("groupId") Long groupId);
+
+    /**
+     * Points an assignment at a new recipient. The row no longer follows from its solver seed, so
+     * the seed is cleared.
+     *
+     * @param id          The assignment ID.
+     * @param recipientId The ID of the new recipient.
+     * @return A Mono of the number of updated rows.
+     */
+    @Modifying
+    @Query("UPDATE assignments SET receiver_id = :recipientId, solver_seed = NULL WHERE id = :id")
+    Mono<Integer> updateRecipient(@Param("id") Long id, @Param("recipientId") Long recipientId);
+
+    /**
+     * Deletes the assignments of a group's year.
+     *
+     * @param groupId The exchange group ID.
+     * @param year    The assignment year.
+     * @return A Mono of the number of deleted rows.
+     */
+    @Modifying
+    @Query("DELETE FROM assignments WHERE group_id = :groupId AND assignment_year = :year")
+    Mono<Integer> deleteByYear(@Param("groupId") Long groupId, @Param("year") Integer year);
 }
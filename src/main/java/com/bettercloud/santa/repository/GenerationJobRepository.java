@@ -0,0 +1,57 @@
+package com.bettercloud.santa.repository;
+
+import com.bettercloud.santa.model.GenerationJob;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+
+@Repository
+public interface GenerationJobRepository extends R2dbcRepository<GenerationJob, Long> {
+
+    /**
+     * Records the phase and search progress of a running job. A job that already finished is left
+     * unchanged, so a late update never overwrites its outcome.
+     *
+     * @param id         The job ID.
+     * @param state      The current phase.
+     * @param expansions The search nodes expanded so far.
+     * @return A Mono of the number of updated rows.
+     */
+    @Modifying
+    @Query("UPDATE generation_jobs SET state = :state, expansions = :expansions, updated_at = now() " +
+            "WHERE id = :id AND state NOT IN ('SUCCEEDED', 'FAILED')")
+    Mono<Integer> updateProgress(@Param("id") Long id, @Param("state") String state, @Param("expansions") long expansions);
+
+    /**
+     * Marks queued jobs as alive while they wait for a slot on the node that accepted them.
+     *
+     * @param ids The IDs of the waiting jobs.
+     * @return A Mono of the number of updated rows.
+     */
+    @Modifying
+    @Query("UPDATE generation_jobs SET updated_at = now() WHERE id IN (:ids) AND state = 'QUEUED'")
+    Mono<Integer> touchQueued(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Records the outcome of a job.
+     *
+     * @param id         The job ID.
+     * @param state      SUCCEEDED or FAILED.
+     * @param expansions The search nodes expanded in total.
+     * @param error      The error message of a failed job, or null.
+     * @return A Mono of the number of updated rows.
+     */
+    @Modifying
+    @Query("UPDATE generation_jobs SET state = :state, expansions = :expansions, error = :error, updated_at = now() " +
+            "WHERE id = :id")
+    Mono<Integer> finish(
+            @Param("id") Long id,
+            @Param("state") String state,
+            @Param("expansions") long expansions,
+            @Param("error") String error);
+}
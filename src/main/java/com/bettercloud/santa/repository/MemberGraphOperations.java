@@ -0,0 +1,15 @@
+package com.bettercloud.santa.repository;
+
+import com.bettercloud.santa.model.FamilyMember;
+import reactor.core.publisher.Flux;
+
+public interface MemberGraphOperations {
+
+    /**
+     * Finds all FamilyMember records of an exchange group with their relations, one row per member.
+     *
+     * @param groupId The exchange group ID.
+     * @return A Flux of FamilyMember objects with their relations, ordered by ID.
+     */
+    Flux<FamilyMember> findAllWithRelations(Long groupId);
+}
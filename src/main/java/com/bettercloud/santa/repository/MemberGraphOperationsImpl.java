@@ -0,0 +1,59 @@
+package com.bettercloud.santa.repository;
+
+import com.bettercloud.santa.model.Edge;
+import com.bettercloud.santa.model.FamilyMember;
+import com.bettercloud.santa.model.RelationType;
+import io.r2dbc.spi.Row;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Loads the member graph in a single query that aggregates every member's edges server-side,
+ * so the result has exactly one row per member and each row maps to a complete FamilyMember.
+ */
+public class MemberGraphOperationsImpl implements MemberGraphOperations {
+    private static final String FIND_ALL_WITH_RELATIONS =
+            "SELECT m.id, m.group_id, m.family_id, m.name, " +
+            "COALESCE(array_agg(e.edge_id ORDER BY e.edge_id) FILTER (WHERE e.edge_id IS NOT NULL), '{}') AS edge_ids, " +
+            "COALESCE(array_agg(e.type ORDER BY e.edge_id) FILTER (WHERE e.edge_id IS NOT NULL), '{}') AS edge_types " +
+            "FROM members m LEFT JOIN edges e ON e.member_id = m.id AND e.group_id = m.group_id " +
+            "WHERE m.group_id = :groupId " +
+            "GROUP BY m.id " +
+            "ORDER BY m.id";
+
+    private final DatabaseClient databaseClient;
+
+    public MemberGraphOperationsImpl(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    @Override
+    public Flux<FamilyMember> findAllWithRelations(Long groupId) {
+        return databaseClient.sql(FIND_ALL_WITH_RELATIONS)
+                .bind("groupId", groupId)
+                .map((row, metadata) -> toMember(row))
+                .all();
+    }
+
+    private FamilyMember toMember(Row row) {
+        Long id = row.get("id", Long.class);
+        Long groupId = row.get("group_id", Long.class);
+        FamilyMember member = new FamilyMember(id, row.get("family_id", Integer.class), row.get("name", String.class));
+        member.setGroupId(groupId);
+        Long[] edgeIds = row.get("edge_ids", Long[].class);
+        String[] edgeTypes = row.get("edge_types", String[].class);
+
+        List<Edge> relations = new ArrayList<>(edgeIds.length);
+        for (int i = 0; i < edgeIds.length; i++) {
+            Edge edge = new Edge(RelationType.valueOf(edgeTypes[i]), id);
+            edge.setEdgeId(edgeIds[i]);
+            edge.setGroupId(groupId);
+            relations.add(edge);
+        }
+        member.setRelations(relations);
+        return member;
+    }
+}
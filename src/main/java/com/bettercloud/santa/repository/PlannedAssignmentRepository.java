@@ -0,0 +1,85 @@
+package com.bettercloud.santa.repository;
+
+import com.bettercloud.santa.model.PlannedAssignment;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+@Repository
+public interface PlannedAssignmentRepository extends R2dbcRepository<PlannedAssignment, Long> {
+
+    /**
+     * Finds the tentative assignments of a group's planned year.
+     *
+     * @param groupId The exchange group ID.
+     * @param year    The planned year.
+     * @return A Flux of PlannedAssignment objects, ordered by ID.
+     */
+    @Query("SELECT * FROM planned_assignments WHERE group_id = :groupId AND assignment_year = :year ORDER BY id")
+    Flux<PlannedAssignment> findByYear(@Param("groupId") Long groupId, @Param("year") Integer year);
+
+    /**
+     * Deletes the tentative assignments of a group's planned years.
+     *
+     * @param groupId   The exchange group ID.
+     * @param startYear The first year of the range.
+     * @param endYear   The last year of the range.
+     * @return A Mono of the number of deleted rows.
+     */
+    @Modifying
+    @Query("DELETE FROM planned_assignments WHERE group_id = :groupId AND assignment_year BETWEEN :startYear AND :endYear")
+    Mono<Integer> deleteByYearsBetween(
+            @Param("groupId") Long groupId,
+            @Param("startYear") Integer startYear,
+            @Param("endYear") Integer endYear);
+
+    /**
+     * Inserts tentative assignments in one statement, binding one array per column.
+     *
+     * @param groupIds     The exchange group of every row.
+     * @param years        The planned year of every row.
+     * @param santaIds     The santa of every row.
+     * @param recipientIds The recipient of every row.
+     * @param solverSeeds  The seed every row was solved with.
+     * @return A Mono of the number of inserted rows.
+     */
+    @Modifying
+    @Query("INSERT INTO planned_assignments (group_id, assignment_year, giver_id, receiver_id, solver_seed) " +
+            "SELECT * FROM unnest(:groupIds::bigint[], :years::int[], :santaIds::bigint[], :recipientIds::bigint[], :solverSeeds::bigint[])")
+    Mono<Integer> insertAll(
+            @Param("groupIds") Long[] groupIds,
+            @Param("years") Integer[] years,
+            @Param("santaIds") Long[] santaIds,
+            @Param("recipientIds") Long[] recipientIds,
+            @Param("solverSeeds") Long[] solverSeeds);
+
+    /**
+     * Inserts tentative assignments in one statement.
+     *
+     * @param assignments The assignments to insert.
+     * @return A Mono of the number of inserted rows.
+     */
+    default Mono<Integer> insertAll(List<PlannedAssignment> assignments) {
+        int size = assignments.size();
+        Long[] groupIds = new Long[size];
+        Integer[] years = new Integer[size];
+        Long[] santaIds = new Long[size];
+        Long[] recipientIds = new Long[size];
+        Long[] solverSeeds = new Long[size];
+        for (int i = 0; i < size; i++) {
+            PlannedAssignment assignment = assignments.get(i);
+            groupIds[i] = assignment.getGroupId();
+            years[i] = assignment.getAssignmentYear();
+            santaIds[i] = assignment.getSantaId();
+            recipientIds[i] = assignment.getRecipientId();
+            solverSeeds[i] = assignment.getSolverSeed();
+        }
+        return insertAll(groupIds, years, santaIds, recipientIds, solverSeeds);
+    }
+}
@@ -0,0 +1,168 @@
+package com.bettercloud.santa.service;
+
+import com.bettercloud.santa.config.AssignmentCacheProperties;
+import com.bettercloud.santa.model.FamilyAssignment;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * In-memory cache of generated years, keyed by exchange group and year.
+ * <p>
+ * A persisted year only changes when it is repaired or a plan is confirmed. Invalidation only reaches
+ * the node that made the change, so entries also expire {@code santa.cache.expire-after-write} after
+ * they were loaded, which bounds how long another replica serves the old year and its ETag. Entries
+ * are evicted by weight, one unit per assignment, once {@code santa.cache.max-assignments} is reached.
+ * Every entry carries a strong ETag derived from its content and a primitive santa index, so one
+ * member's assignment is found without scanning the year; the index is evicted with its year.
+ * <p>
+ * A load that overlaps an invalidation is returned to its caller but not cached, so a year read
+ * before a repair committed can never replace the repaired one.
+ */
+@Component
+public class AssignmentCache {
+    private final Cache<Key, CachedYear> cache;
+    private final AtomicLong invalidations = new AtomicLong();
+
+    @Autowired
+    public AssignmentCache(AssignmentCacheProperties properties) {
+        this(properties, Ticker.systemTicker());
+    }
+
+    AssignmentCache(AssignmentCacheProperties properties, Ticker ticker) {
+        if (properties.getMaxAssignments() < 0) {
+            throw new IllegalArgumentException("santa.cache.max-assignments must not be negative");
+        }
+        if (properties.getExpireAfterWrite().isNegative()) {
+            throw new IllegalArgumentException("santa.cache.expire-after-write must not be negative");
+        }
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(properties.getMaxAssignments())
+                .weigher((Key key, CachedYear year) -> year.assignments().size())
+                .expireAfterWrite(properties.getExpireAfterWrite())
+                .ticker(ticker)
+                .build();
+    }
+
+    /**
+     * Returns the cached year, or loads and caches it.
+     *
+     * @param groupId The exchange group ID.
+     * @param year    The assignment year.
+     * @param loader  Supplies the year's assignments on a miss.
+     * @return A Mono of the year with its ETag.
+     */
+    public Mono<CachedYear> get(Long groupId, Integer year, Supplier<Mono<List<FamilyAssignment>>> loader) {
+        Key key = new Key(groupId, year);
+        return Mono.defer(() -> {
+            CachedYear cached = cache.getIfPresent(key);
+            if (cached != null) {
+                return Mono.just(cached);
+            }
+            long generation = invalidations.get();
+            return loader.get().map(assignments -> {
+                CachedYear loaded = new CachedYear(List.copyOf(assignments), etag(assignments));
+                if (!assignments.isEmpty() && generation == invalidations.get()) {
+                    cache.put(key, loaded);
+                    // an invalidation may have slipped in between the check and the put
+                    if (generation != invalidations.get()) {
+                        cache.invalidate(key);
+                    }
+                }
+                return loaded;
+            });
+        });
+    }
+
+    /**
+     * Drops a year on this node after its assignments changed. Other nodes drop it once it expires.
+     *
+     * @param groupId The exchange group ID.
+     * @param year    The assignment year.
+     */
+    public void invalidate(Long groupId, Integer year) {
+        invalidations.incrementAndGet();
+        cache.invalidate(new Key(groupId, year));
+    }
+
+    /**
+     * Computes a strong ETag over every field the API exposes.
+     *
+     * @param assignments The assignments of the year, in response order.
+     * @return The unquoted entity tag.
+     */
+    static String etag(List<FamilyAssignment> assignments) {
+        MessageDigest digest = sha256();
+        for (FamilyAssignment assignment : assignments) {
+            update(digest, assignment.getId());
+            update(digest, assignment.getAssignmentYear());
+            update(digest, assignment.getSantaId());
+            update(digest, assignment.getSanta() != null ? assignment.getSanta().getName() : null);
+            update(digest, assignment.getRecipientId());
+            update(digest, assignment.getRecipient() != null ? assignment.getRecipient().getName() : null);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(digest.digest());
+    }
+
+    private static void update(MessageDigest digest, Object value) {
+        digest.update(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * A year's assignments, in response order, with their entity tag and an index from santa ID
+     * to position in {@code assignments}.
+     *
+     * @param assignments The assignments with santa and recipient loaded.
+     * @param etag        The unquoted strong entity tag.
+     * @param santaIndex  The position of every santa's assignment.
+     */
+    public record CachedYear(List<FamilyAssignment> assignments, String etag, LongLongHashMap santaIndex) {
+
+        public CachedYear(List<FamilyAssignment> assignments, String etag) {
+            this(assignments, etag, indexBySanta(assignments));
+        }
+
+        /**
+         * Looks up the assignment of one santa in constant time.
+         *
+         * @param santaId The santa's member ID.
+         * @return The santa's assignment, or empty if the santa takes no part in the year.
+         */
+        public Optional<FamilyAssignment> findBySanta(long santaId) {
+            long position = santaIndex.get(santaId, -1);
+            return position < 0 ? Optional.empty() : Optional.of(assignments.get((int) position));
+        }
+
+        private static LongLongHashMap indexBySanta(List<FamilyAssignment> assignments) {
+            LongLongHashMap index = new LongLongHashMap(assignments.size());
+            for (int i = 0; i < assignments.size(); i++) {
+                index.put(assignments.get(i).getSantaId(), i);
+            }
+            return index;
+        }
+    }
+
+    private record Key(Long groupId, Integer year) {
+    }
+}
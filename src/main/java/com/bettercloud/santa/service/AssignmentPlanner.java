@@ -0,0 +1,409 @@
+package com.bettercloud.santa.service;
+
+import com.bettercloud.santa.config.SolverProperties;
+import com.bettercloud.santa.exception.AssignmentImpossibleException;
+import com.bettercloud.santa.exception.InvalidPlanException;
+import com.bettercloud.santa.exception.PlanConflictException;
+import com.bettercloud.santa.exception.PlanNotFoundException;
+import com.bettercloud.santa.exception.SolverBudgetExceededException;
+import com.bettercloud.santa.model.FamilyAssignment;
+import com.bettercloud.santa.model.FamilyMember;
+import com.bettercloud.santa.model.GiftHistory;
+import com.bettercloud.santa.model.PlannedAssignment;
+import com.bettercloud.santa.model.PlannedYear;
+import com.bettercloud.santa.repository.AssignmentRepository;
+import com.bettercloud.santa.repository.MemberRepository;
+import com.bettercloud.santa.repository.PlannedAssignmentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Plans several consecutive years of an exchange group in one run.
+ * <p>
+ * Years are solved in order, each one seeing the pairs of the years planned before it inside the
+ * history window. A year the strategy finds no assignment for, or runs out of budget on, is solved
+ * again with a new seed and member order, up to {@value #ATTEMPTS_PER_YEAR} times. A year that
+ * stays unsolved, or that the history leaves infeasible, makes the planner go back and solve the
+ * year before it again the same way. At most {@code santa.solver.planning.max-backtracks} years
+ * are dropped, so an early choice no longer leaves a later year infeasible the way solving year by
+ * year can.
+ * <p>
+ * Plans are stored as tentative rows apart from the assignments. Confirming a year moves its rows
+ * into the assignments without solving again, provided the roster and history still allow them.
+ */
+@Service
+public class AssignmentPlanner {
+    private static final Logger logger = LoggerFactory.getLogger(AssignmentPlanner.class);
+    private static final int ATTEMPTS_PER_YEAR = 3;
+
+    private final MemberRepository memberRepository;
+    private final AssignmentRepository assignmentRepository;
+    private final PlannedAssignmentRepository planRepository;
+    private final AssignmentStrategy assignmentStrategy;
+    private final AssignmentValidator validator;
+    private final ConstraintRules rules;
+    private final AssignmentCache cache;
+    private final GiftHistoryIndex giftHistory;
+    private final SolverScheduler solverScheduler;
+    private final TransactionalOperator transactionalOperator;
+    private final SolverProperties.History history;
+    private final SolverProperties.Planning planning;
+
+    public AssignmentPlanner(
+            MemberRepository memberRepository,
+            AssignmentRepository assignmentRepository,
+            PlannedAssignmentRepository planRepository,
+            AssignmentStrategy assignmentStrategy,
+            AssignmentValidator validator,
+            ConstraintRules rules,
+            AssignmentCache cache,
+            GiftHistoryIndex giftHistory,
+            SolverScheduler solverScheduler,
+            TransactionalOperator transactionalOperator,
+            SolverProperties solverProperties
+    ) {
+        this.memberRepository = memberRepository;
+        this.assignmentRepository = assignmentRepository;
+        this.planRepository = planRepository;
+        this.assignmentStrategy = assignmentStrategy;
+        this.validator = validator;
+        this.rules = rules;
+        this.cache = cache;
+        this.giftHistory = giftHistory;
+        this.solverScheduler = solverScheduler;
+        this.transactionalOperator = transactionalOperator;
+        this.history = solverProperties.getHistory();
+        this.planning = solverProperties.getPlanning();
+    }
+
+    /**
+     * Plans consecutive years of an exchange group and stores them as tentative, replacing any
+     * earlier plan of those years.
+     * <p>
+     * The years are solved without holding a lock or a connection, since backtracking may take
+     * several solver budgets. Saving then locks every year of the range like a generation and
+     * checks in one short transaction that none of them was generated and that the roster and
+     * history still allow the plan.
+     *
+     * @param groupId   The exchange group ID.
+     * @param firstYear The first year to plan.
+     * @param years     The number of years to plan.
+     * @return A Flux of the planned years, in year order.
+     * @throws InvalidPlanException  If the number of years is out of range.
+     * @throws PlanConflictException If a year of the range was already generated.
+     */
+    public Flux<PlannedYear> planAssignments(Long groupId, Integer firstYear, int years) {
+        if (years < 1 || years > planning.getMaxYears()) {
+            return Flux.error(new InvalidPlanException(
+                    "Between 1 and " + planning.getMaxYears() + " years can be planned at once"));
+        }
+        int lastYear = firstYear + years - 1;
+        return assignmentRepository.findByYearsBetween(groupId, firstYear, lastYear).hasElements()
+                .flatMap(generated -> generated
+                        ? Mono.<List<PlannedYear>>error(alreadyGenerated(groupId, firstYear, lastYear))
+                        : Mono.zip(
+                                        memberRepository.findAllWithRelations(groupId).collectList().flatMap(validator::validateParticipants),
+                                        loadHistory(groupId, firstYear))
+                                .flatMap(tuple -> solverScheduler.submit(() -> Mono.fromCallable(() ->
+                                        solveYears(groupId, firstYear, years, tuple.getT1(), tuple.getT2()))))
+                                .flatMap(plan -> savePlan(groupId, firstYear, lastYear, plan).thenReturn(plan)))
+                .flatMapIterable(Function.identity());
+    }
+
+    /**
+     * Returns the tentative plan of a group's year.
+     *
+     * @param groupId The exchange group ID.
+     * @param year    The planned year.
+     * @return A Mono of the planned year.
+     * @throws PlanNotFoundException If the year has no plan.
+     */
+    public Mono<PlannedYear> getPlan(Long groupId, Integer year) {
+        return Mono.zip(
+                        planRepository.findByYear(groupId, year).collectList(),
+                        memberRepository.findAllWithRelations(groupId).collectList())
+                .flatMap(tuple -> tuple.getT1().isEmpty()
+                        ? Mono.error(planNotFound(groupId, year))
+                        : Mono.just(new PlannedYear(groupId, year, withDetails(toAssignments(tuple.getT1()), tuple.getT2()))));
+    }
+
+    /**
+     * Confirms the plan of a group's year, turning its tentative rows into the year's assignments
+     * without solving again.
+     * <p>
+     * The plan is checked against the history window as it is stored now, so a year confirmed
+     * after a later one still sees every pair given inside its window.
+     *
+     * @param groupId The exchange group ID.
+     * @param year    The planned year.
+     * @return A Flux of the year's persisted FamilyAssignment objects.
+     * @throws PlanNotFoundException If the year has no plan.
+     * @throws PlanConflictException If the year was generated since, or the plan no longer fits the
+     *                               roster or history.
+     */
+    public Flux<FamilyAssignment> confirmPlan(Long groupId, Integer year) {
+        return assignmentRepository.lockYear(groupId, year)
+                .then(Mono.zip(
+                        planRepository.findByYear(groupId, year).collectList(),
+                        memberRepository.findAllWithRelations(groupId).collectList(),
+                        assignmentRepository.findByYearsBetween(groupId, year, year).hasElements(),
+                        loadHistory(groupId, year)))
+                .flatMap(tuple -> {
+                    List<PlannedAssignment> plan = tuple.getT1();
+                    if (plan.isEmpty()) {
+                        return Mono.error(planNotFound(groupId, year));
+                    }
+                    if (tuple.getT3()) {
+                        return Mono.error(new PlanConflictException(
+                                "Year " + year + " of group " + groupId + " was already generated"));
+                    }
+                    List<FamilyAssignment> assignments = toAssignments(plan);
+                    checkStillValid(groupId, year, assignments, tuple.getT2(), recentAssignments(year, tuple.getT4(), List.of()));
+                    return assignmentRepository.insertAllIfAbsent(assignments)
+                            .collectList()
+                            .flatMap(saved -> saved.size() == assignments.size()
+                                    ? Mono.just(saved)
+                                    : Mono.<List<FamilyAssignment>>error(new PlanConflictException(
+                                            "Year " + year + " of group " + groupId + " was generated while its plan was confirmed")))
+                            .flatMap(saved -> planRepository.deleteByYearsBetween(groupId, year, year).thenReturn(saved))
+                            .map(saved -> withDetails(saved, tuple.getT2()));
+                })
+                .as(transactionalOperator::transactional)
+                .doOnNext(saved -> giftHistory.record(groupId, saved))
+                .doFinally(signal -> cache.invalidate(groupId, year))
+                .flatMapIterable(Function.identity());
+    }
+
+    /**
+     * Solves the years in order, going back a year whenever a year has no valid assignment.
+     *
+     * @param groupId     The exchange group ID.
+     * @param firstYear   The first year to plan.
+     * @param years       The number of years to plan.
+     * @param members     The members of the group.
+     * @param pastHistory The remembered pairs of the years before the first one.
+     * @return The planned years, in year order.
+     * @throws AssignmentImpossibleException If no plan was found within the backtrack limit.
+     */
+    private List<PlannedYear> solveYears(
+            Long groupId,
+            int firstYear,
+            int years,
+            List<FamilyMember> members,
+            List<GiftHistory> pastHistory
+    ) {
+        SplittableRandom seeds = new SplittableRandom(ThreadLocalRandom.current().nextLong());
+        List<List<FamilyAssignment>> plan = new ArrayList<>(years);
+        int[] attempts = new int[years];
+        int backtracks = 0;
+
+        while (plan.size() < years) {
+            int level = plan.size();
+            int year = firstYear + level;
+            Map<Long, Set<Long>> recentAssignments = recentAssignments(year, pastHistory, plan);
+            if (validator.isFeasible(members, recentAssignments)) {
+                List<FamilyAssignment> assignments = tryGenerate(year, members, recentAssignments, seeds.nextLong());
+                if (assignments != null) {
+                    plan.add(assignments);
+                    continue;
+                }
+                if (++attempts[level] < ATTEMPTS_PER_YEAR) {
+                    continue;
+                }
+            }
+
+            do {
+                attempts[level] = 0;
+                if (level == 0 || backtracks == planning.getMaxBacktracks()) {
+                    throw new AssignmentImpossibleException(String.format(
+                            "No plan found for years %d-%d: year %d has no valid assignment after %d backtracks",
+                            firstYear, firstYear + years - 1, year, backtracks));
+                }
+                plan.remove(--level);
+                backtracks++;
+            } while (++attempts[level] >= ATTEMPTS_PER_YEAR);
+        }
+
+        logger.info("Planned group {} years {}-{} with {} backtracks", groupId, firstYear, firstYear + years - 1, backtracks);
+        List<PlannedYear> plannedYears = new ArrayList<>(years);
+        for (int i = 0; i < years; i++) {
+            plan.get(i).forEach(assignment -> assignment.setGroupId(groupId));
+            plannedYears.add(new PlannedYear(groupId, firstYear + i, withDetails(plan.get(i), members)));
+        }
+        return plannedYears;
+    }
+
+    /**
+     * Solves one year, shuffling the members with the seed first so that strategies whose first
+     * attempt follows member order still produce a different year on every retry.
+     *
+     * @param year              The year being planned.
+     * @param members           The members of the group.
+     * @param recentAssignments The pairs that may not be repeated in the year.
+     * @param seed              The seed of this attempt.
+     * @return The year's assignments, or null if the strategy found none within its budget.
+     */
+    private List<FamilyAssignment> tryGenerate(int year, List<FamilyMember> members, Map<Long, Set<Long>> recentAssignments, long seed) {
+        List<FamilyMember> shuffled = new ArrayList<>(members);
+        Collections.shuffle(shuffled, new Random(seed));
+        try {
+            return assignmentStrategy.generateAssignments(year, shuffled, recentAssignments, seed);
+        } catch (AssignmentImpossibleException | SolverBudgetExceededException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Collects the pairs that may not be repeated in a year from the stored history and the
+     * years planned before it.
+     *
+     * @param year        The year being planned.
+     * @param pastHistory The remembered pairs of the years before the plan.
+     * @param plan        The assignments of the planned years before {@code year}, in year order.
+     * @return A map of giver IDs to the recipients they may not give to.
+     */
+    private Map<Long, Set<Long>> recentAssignments(int year, List<GiftHistory> pastHistory, List<List<FamilyAssignment>> plan) {
+        if (!history.isEnabled()) {
+            return Map.of();
+        }
+        int firstRemembered = history.firstRememberedYear(year);
+        int firstPlanned = year - plan.size();
+        Map<Long, Set<Long>> recentAssignments = new HashMap<>();
+        for (GiftHistory pair : pastHistory) {
+            if (pair.getLastYear() >= firstRemembered) {
+                recentAssignments.computeIfAbsent(pair.getSantaId(), k -> new HashSet<>()).add(pair.getRecipientId());
+            }
+        }
+        for (int i = Math.max(0, firstRemembered - firstPlanned); i < plan.size(); i++) {
+            for (FamilyAssignment assignment : plan.get(i)) {
+                recentAssignments.computeIfAbsent(assignment.getSantaId(), k -> new HashSet<>()).add(assignment.getRecipientId());
+            }
+        }
+        return recentAssignments;
+    }
+
+    /**
+     * Loads the remembered pairs of the years before the given year.
+     *
+     * @param groupId The exchange group ID.
+     * @param year    The first year being planned or confirmed.
+     * @return A Mono of the pairs with the last year they were given.
+     */
+    private Mono<List<GiftHistory>> loadHistory(Long groupId, int year) {
+        return giftHistory.find(groupId, year);
+    }
+
+    /**
+     * Checks that a planned year still fits the current roster and history.
+     *
+     * @param groupId           The exchange group ID.
+     * @param year              The planned year.
+     * @param assignments       The planned assignments.
+     * @param members           The current members of the group.
+     * @param recentAssignments The pairs that may not be repeated in the year.
+     * @throws PlanConflictException If a member joined or left or a pair is no longer allowed.
+     */
+    private void checkStillValid(
+            Long groupId,
+            Integer year,
+            List<FamilyAssignment> assignments,
+            List<FamilyMember> members,
+            Map<Long, Set<Long>> recentAssignments
+    ) {
+        Map<Long, FamilyMember> membersById = members.stream()
+                .collect(Collectors.toMap(FamilyMember::getId, Function.identity()));
+        boolean valid = assignments.size() == membersById.size();
+        for (int i = 0; valid && i < assignments.size(); i++) {
+            FamilyMember santa = membersById.get(assignments.get(i).getSantaId());
+            FamilyMember recipient = membersById.get(assignments.get(i).getRecipientId());
+            valid = santa != null && recipient != null && rules.allowsFeasible(santa, recipient, recentAssignments);
+        }
+        if (!valid) {
+            throw new PlanConflictException(
+                    "The plan of year " + year + " of group " + groupId + " no longer fits its members or history; plan it again");
+        }
+    }
+
+    /**
+     * Stores a solved plan, replacing any earlier plan of its years.
+     * <p>
+     * Every year of the range is locked like a generation, and the plan is checked again under the
+     * locks, since years may have been generated and members may have changed while it was solved.
+     *
+     * @param groupId   The exchange group ID.
+     * @param firstYear The first planned year.
+     * @param lastYear  The last planned year.
+     * @param plan      The planned years, in year order.
+     * @return A Mono that completes once the plan is stored.
+     * @throws PlanConflictException If a year of the range was generated or the plan no longer fits
+     *                               the roster or history.
+     */
+    private Mono<Void> savePlan(Long groupId, int firstYear, int lastYear, List<PlannedYear> plan) {
+        List<PlannedAssignment> rows = plan.stream()
+                .flatMap(plannedYear -> plannedYear.getAssignments().stream())
+                .map(PlannedAssignment::from)
+                .toList();
+        return Flux.range(firstYear, lastYear - firstYear + 1)
+                .concatMap(year -> assignmentRepository.lockYear(groupId, year))
+                .then(Mono.zip(
+                        assignmentRepository.findByYearsBetween(groupId, firstYear, lastYear).hasElements(),
+                        memberRepository.findAllWithRelations(groupId).collectList(),
+                        loadHistory(groupId, firstYear)))
+                .flatMap(tuple -> {
+                    if (tuple.getT1()) {
+                        return Mono.error(alreadyGenerated(groupId, firstYear, lastYear));
+                    }
+                    List<List<FamilyAssignment>> planned = new ArrayList<>(plan.size());
+                    for (PlannedYear plannedYear : plan) {
+                        int year = plannedYear.getAssignmentYear();
+                        checkStillValid(groupId, year, plannedYear.getAssignments(), tuple.getT2(),
+                                recentAssignments(year, tuple.getT3(), planned));
+                        planned.add(plannedYear.getAssignments());
+                    }
+                    return planRepository.deleteByYearsBetween(groupId, firstYear, lastYear)
+                            .then(planRepository.insertAll(rows));
+                })
+                .as(transactionalOperator::transactional)
+                .then();
+    }
+
+    private List<FamilyAssignment> toAssignments(List<PlannedAssignment> plan) {
+        return plan.stream().map(PlannedAssignment::toAssignment).toList();
+    }
+
+    private List<FamilyAssignment> withDetails(List<FamilyAssignment> assignments, List<FamilyMember> members) {
+        Map<Long, FamilyMember> membersById = members.stream()
+                .collect(Collectors.toMap(FamilyMember::getId, Function.identity()));
+        assignments.forEach(assignment -> {
+            assignment.setSanta(membersById.get(assignment.getSantaId()));
+            assignment.setRecipient(membersById.get(assignment.getRecipientId()));
+        });
+        return assignments;
+    }
+
+    private PlanConflictException alreadyGenerated(Long groupId, int firstYear, int lastYear) {
+        return new PlanConflictException(String.format(
+                "Some of the years %d-%d of group %d were already generated", firstYear, lastYear, groupId));
+    }
+
+    private PlanNotFoundException planNotFound(Long groupId, Integer year) {
+        return new PlanNotFoundException("Group " + groupId + " has no plan for year " + year);
+    }
+}
@@ -0,0 +1,220 @@
+package com.bettercloud.santa.service;
+
+import com.bettercloud.santa.model.FamilyAssignment;
+import com.bettercloud.santa.model.FamilyMember;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Repairs a generated year locally after members joined or left, instead of solving it again.
+ * <p>
+ * Rows whose santa and recipient are both still on the roster are kept. Dropping the rest breaks
+ * the gift cycles into open paths: a member who left is bridged around, and a member who joined is
+ * a path of its own. Every path is then spliced into a kept gift {@code a -> b} as
+ * {@code a -> head ... tail -> b}. With k changed members this touches O(k) rows. Every search for
+ * a splice point resumes after the previous one and stops at the first valid gift, so the gifts
+ * are scanned about once for all paths together unless the pool is tight.
+ */
+@Component
+public class AssignmentRepairer {
+    private final ConstraintRules rules;
+
+    public AssignmentRepairer(ConstraintRules rules) {
+        this.rules = rules;
+    }
+
+    /**
+     * Computes the row changes that adapt the year's assignments to the current roster.
+     *
+     * @param year              The year of the assignments.
+     * @param existing          The year's stored assignments.
+     * @param members           The current roster.
+     * @param recentAssignments A map of recent assignments.
+     * @return The changes, or empty if the assignments cannot be repaired locally.
+     */
+    public Optional<Repair> repair(
+            Integer year,
+            List<FamilyAssignment> existing,
+            List<FamilyMember> members,
+            Map<Long, Set<Long>> recentAssignments
+    ) {
+        Map<Long, FamilyMember> roster = new LinkedHashMap<>();
+        members.forEach(member -> roster.put(member.getId(), member));
+
+        Map<Long, Long> next = new HashMap<>();
+        Map<Long, Long> previous = new HashMap<>();
+        for (FamilyAssignment assignment : existing) {
+            FamilyMember santa = roster.get(assignment.getSantaId());
+            FamilyMember recipient = roster.get(assignment.getRecipientId());
+            if (santa != null && recipient != null && !previous.containsKey(recipient.getId())
+                    && isValidAssignment(santa, recipient, recentAssignments)) {
+                next.put(santa.getId(), recipient.getId());
+                previous.put(recipient.getId(), santa.getId());
+            }
+        }
+
+        List<List<Long>> paths = new ArrayList<>();
+        Set<Long> onPath = new HashSet<>();
+        for (Long head : roster.keySet()) {
+            if (!previous.containsKey(head)) {
+                List<Long> path = new ArrayList<>();
+                for (Long member = head; member != null; member = next.get(member)) {
+                    path.add(member);
+                    onPath.add(member);
+                }
+                paths.add(path);
+            }
+        }
+
+        List<Long> closed = new ArrayList<>();
+        for (Long member : roster.keySet()) {
+            if (!onPath.contains(member)) {
+                closed.add(member);
+            }
+        }
+        if (closed.isEmpty() && !closeOnePath(paths, roster, next, closed, recentAssignments)) {
+            return Optional.empty();
+        }
+
+        int cursor = 0;
+        for (List<Long> path : paths) {
+            cursor = splice(path, roster, next, closed, cursor, recentAssignments);
+            if (cursor < 0) {
+                return Optional.empty();
+            }
+        }
+        return Optional.of(diff(year, existing, next));
+    }
+
+    /**
+     * Closes the first path whose tail may give to its head, giving the splices a cycle to work on.
+     *
+     * @param paths             The open paths; the closed one is removed.
+     * @param roster            The current roster, keyed by ID.
+     * @param next              The gifts so far; extended in place.
+     * @param closed            The members on closed cycles; extended in place.
+     * @param recentAssignments A map of recent assignments.
+     * @return True if a path was closed, false otherwise.
+     */
+    private boolean closeOnePath(
+            List<List<Long>> paths,
+            Map<Long, FamilyMember> roster,
+            Map<Long, Long> next,
+            List<Long> closed,
+            Map<Long, Set<Long>> recentAssignments
+    ) {
+        for (int i = 0; i < paths.size(); i++) {
+            List<Long> path = paths.get(i);
+            FamilyMember head = roster.get(path.get(0));
+            FamilyMember tail = roster.get(path.get(path.size() - 1));
+            if (path.size() > 1 && isValidAssignment(tail, head, recentAssignments)) {
+                next.put(tail.getId(), head.getId());
+                closed.addAll(path);
+                paths.remove(i);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Splices an open path into the first closed gift {@code a -> b} that accepts it, looking from
+     * the given position of the closed members onwards and wrapping around.
+     *
+     * @param path              The open path, from head to tail.
+     * @param roster            The current roster, keyed by ID.
+     * @param next              The gifts so far; updated in place.
+     * @param closed            The members on closed cycles; extended in place.
+     * @param from              The position in {@code closed} to start looking at.
+     * @param recentAssignments A map of recent assignments.
+     * @return The position after the splice point, or -1 if the path could not be spliced.
+     */
+    private int splice(
+            List<Long> path,
+            Map<Long, FamilyMember> roster,
+            Map<Long, Long> next,
+            List<Long> closed,
+            int from,
+            Map<Long, Set<Long>> recentAssignments
+    ) {
+        FamilyMember head = roster.get(path.get(0));
+        FamilyMember tail = roster.get(path.get(path.size() - 1));
+        int size = closed.size();
+        for (int k = 0; k < size; k++) {
+            int position = (from + k) % size;
+            FamilyMember santa = roster.get(closed.get(position));
+            FamilyMember recipient = roster.get(next.get(santa.getId()));
+            if (isValidAssignment(santa, head, recentAssignments) && isValidAssignment(tail, recipient, recentAssignments)) {
+                next.put(santa.getId(), head.getId());
+                next.put(tail.getId(), recipient.getId());
+                closed.addAll(path);
+                return position + 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Compares the repaired gifts with the stored rows.
+     *
+     * @param year     The year of the assignments.
+     * @param existing The year's stored assignments.
+     * @param next     The repaired gifts, keyed by santa ID.
+     * @return The rows to delete, update and insert.
+     */
+    private Repair diff(Integer year, List<FamilyAssignment> existing, Map<Long, Long> next) {
+        List<Long> deletedIds = new ArrayList<>();
+        List<FamilyAssignment> updated = new ArrayList<>();
+        Set<Long> storedSantas = new HashSet<>();
+        for (FamilyAssignment assignment : existing) {
+            storedSantas.add(assignment.getSantaId());
+            Long recipientId = next.get(assignment.getSantaId());
+            if (recipientId == null) {
+                deletedIds.add(assignment.getId());
+            } else if (!recipientId.equals(assignment.getRecipientId())) {
+                FamilyAssignment changed = new FamilyAssignment(year, assignment.getSantaId(), recipientId);
+                changed.setId(assignment.getId());
+                changed.setGroupId(assignment.getGroupId());
+                updated.add(changed);
+            }
+        }
+
+        List<FamilyAssignment> inserted = new ArrayList<>();
+        next.forEach((santaId, recipientId) -> {
+            if (!storedSantas.contains(santaId)) {
+                inserted.add(new FamilyAssignment(year, santaId, recipientId));
+            }
+        });
+        return new Repair(deletedIds, updated, inserted);
+    }
+
+    /**
+     * Checks if the santa may give to the recipient.
+     *
+     * @param santa             The family member acting as Santa.
+     * @param recipient         The family member receiving the gift.
+     * @param recentAssignments A map of recent assignments.
+     * @return True if the assignment is valid, false otherwise.
+     */
+    private boolean isValidAssignment(FamilyMember santa, FamilyMember recipient, Map<Long, Set<Long>> recentAssignments) {
+        return rules.allows(santa, recipient, recentAssignments);
+    }
+
+    /**
+     * The row changes of a local repair.
+     *
+     * @param deletedIds The IDs of rows whose santa left.
+     * @param updated    The rows that keep their santa but get a new recipient.
+     * @param inserted   The rows of members who joined.
+     */
+    public record Repair(List<Long> deletedIds, List<FamilyAssignment> updated, List<FamilyAssignment> inserted) {
+    }
+}
@@ -2,15 +2,48 @@ package com.bettercloud.santa.service;
 
 import com.bettercloud.santa.model.FamilyAssignment;
 import com.bettercloud.santa.model.FamilyMember;
+import com.bettercloud.santa.service.solver.SearchBudget;
 
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
 
 public interface AssignmentStrategy {
-    List<FamilyAssignment> generateAssignments(
+
+    /**
+     * Generates assignments with a freshly drawn seed.
+     */
+    default List<FamilyAssignment> generateAssignments(
             Integer year,
             List<FamilyMember> members,
             Map<Long, Set<Long>> recentAssignments
+    ) {
+        return generateAssignments(year, members, recentAssignments, ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * Generates assignments; the same seed, members (in the same order) and history always
+     * produce the same assignments, and the seed is recorded on every returned assignment.
+     */
+    default List<FamilyAssignment> generateAssignments(
+            Integer year,
+            List<FamilyMember> members,
+            Map<Long, Set<Long>> recentAssignments,
+            long seed
+    ) {
+        return generateAssignments(year, members, recentAssignments, seed, SearchBudget.unlimited());
+    }
+
+    /**
+     * Generates assignments under a budget; implementations report progress to the budget and
+     * throw {@link java.util.concurrent.CancellationException} once it is cancelled.
+     */
+    List<FamilyAssignment> generateAssignments(
+            Integer year,
+            List<FamilyMember> members,
+            Map<Long, Set<Long>> recentAssignments,
+            long seed,
+            SearchBudget budget
     );
 }
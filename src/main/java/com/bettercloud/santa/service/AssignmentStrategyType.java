@@ -0,0 +1,9 @@
+package com.bettercloud.santa.service;
+
+public enum AssignmentStrategyType {
+    HAMILTONIAN_CYCLE,
+    MATCHING,
+    FAMILY_AGGREGATED,
+    PORTFOLIO,
+    OPTIMIZING
+}
@@ -3,15 +3,26 @@ package com.bettercloud.santa.service;
 import com.bettercloud.santa.exception.AssignmentImpossibleException;
 import com.bettercloud.santa.exception.InvalidParticipantsException;
 import com.bettercloud.santa.model.FamilyMember;
+import com.bettercloud.santa.service.solver.BipartiteMatcher;
+import com.bettercloud.santa.service.solver.ConstraintGraph;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
 public class AssignmentValidator {
+    private static final int MAX_REPORTED_MEMBERS = 20;
+
+    private final ConstraintRules rules;
+
+    public AssignmentValidator(ConstraintRules rules) {
+        this.rules = rules;
+    }
 
     /**
      * Validates the list of participants for the Secret Santa assignment.
@@ -34,6 +45,88 @@ public class AssignmentValidator {
         return Mono.just(members);
     }
 
+    /**
+     * Checks that every member can give and receive exactly once under the constraint rules.
+     * <p>
+     * Runs a polynomial-time bipartite matching over the constraint graph. A perfect matching is a
+     * necessary condition for any assignment, so when none exists the request fails immediately
+     * with a Hall-violating group of santas as the certificate instead of after an exhaustive search.
+     * Rules the optimizing strategy may relax are left out when it is the configured strategy and
+     * relaxation is enabled.
+     *
+     * @param members           The list of family members participating.
+     * @param recentAssignments A map of giver IDs to recently assigned recipient IDs.
+     * @return A Mono containing the validated list of family members.
+     */
+    public Mono<List<FamilyMember>> validateFeasibility(List<FamilyMember> members, Map<Long, Set<Long>> recentAssignments) {
+        ConstraintGraph graph = rules.compileFeasible(members, recentAssignments);
+        BipartiteMatcher matcher = BipartiteMatcher.match(graph);
+        if (matcher.isPerfect()) {
+            return Mono.just(members);
+        }
+
+        int[] violator = matcher.hallViolator();
+        List<Long> conflictingMemberIds = new ArrayList<>(violator.length);
+        for (int santa : violator) {
+            conflictingMemberIds.add(graph.member(santa).getId());
+        }
+        return Mono.error(new AssignmentImpossibleException(
+                createHallViolationMessage(conflictingMemberIds, countRecipients(graph, violator)),
+                conflictingMemberIds
+        ));
+    }
+
+    /**
+     * Checks that every member can give and receive exactly once under the constraint rules,
+     * without building an error.
+     *
+     * @param members           The list of family members participating.
+     * @param recentAssignments A map of giver IDs to recently assigned recipient IDs.
+     * @return True if some assignment exists, false otherwise.
+     */
+    public boolean isFeasible(List<FamilyMember> members, Map<Long, Set<Long>> recentAssignments) {
+        return BipartiteMatcher.match(rules.compileFeasible(members, recentAssignments)).isPerfect();
+    }
+
+    /**
+     * Counts the distinct recipients available to a group of santas.
+     *
+     * @param graph  The constraint graph.
+     * @param santas  The santa indices.
+     * @return The size of the group's neighbourhood.
+     */
+    private int countRecipients(ConstraintGraph graph, int[] santas) {
+        long[] union = new long[graph.words()];
+        for (int santa : santas) {
+            for (int w = 0; w < union.length; w++) {
+                union[w] |= graph.word(santa, w);
+            }
+        }
+        int count = 0;
+        for (long word : union) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * Creates the error message for a Hall-violating group of santas.
+     *
+     * @param conflictingMemberIds The member IDs of the group.
+     * @param recipients           The number of recipients available to the group.
+     * @return The error message.
+     */
+    private String createHallViolationMessage(List<Long> conflictingMemberIds, int recipients) {
+        List<Long> reported = conflictingMemberIds.subList(0, Math.min(MAX_REPORTED_MEMBERS, conflictingMemberIds.size()));
+        return String.format(
+                "Assignment impossible: %d members %s%s can only give to %d eligible recipients",
+                conflictingMemberIds.size(),
+                reported,
+                reported.size() < conflictingMemberIds.size() ? "..." : "",
+                recipients
+        );
+    }
+
     /**
      * Checks if the participant list is invalid.
      *
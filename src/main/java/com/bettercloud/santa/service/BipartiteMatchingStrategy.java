@@ -0,0 +1,80 @@
+package com.bettercloud.santa.service;
+
+import com.bettercloud.santa.exception.AssignmentImpossibleException;
+import com.bettercloud.santa.model.FamilyAssignment;
+import com.bettercloud.santa.model.FamilyMember;
+import com.bettercloud.santa.service.solver.BipartiteMatcher;
+import com.bettercloud.santa.service.solver.ConstraintGraph;
+import com.bettercloud.santa.service.solver.SearchBudget;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Builds assignments from a perfect bipartite matching between santas and recipients.
+ * <p>
+ * Unlike {@link HamiltonianCycleStrategy} the result may consist of several gift cycles, which
+ * lets the problem be solved in polynomial time (O(E * sqrt(V))) for very large pools. Members are
+ * shuffled with the seed first, so the matching does not favour the lowest member IDs.
+ */
+@Service
+public class BipartiteMatchingStrategy implements AssignmentStrategy {
+    private static final Logger logger = LoggerFactory.getLogger(BipartiteMatchingStrategy.class);
+
+    private final ConstraintRules rules;
+
+    public BipartiteMatchingStrategy(ConstraintRules rules) {
+        this.rules = rules;
+    }
+
+    @Override
+    public List<FamilyAssignment> generateAssignments(
+            Integer year,
+            List<FamilyMember> members,
+            Map<Long, Set<Long>> recentAssignments,
+            long seed,
+            SearchBudget budget
+    ) {
+        List<FamilyMember> shuffled = new ArrayList<>(members);
+        Collections.shuffle(shuffled, new Random(seed));
+        ConstraintGraph graph = rules.compile(shuffled, recentAssignments);
+        BipartiteMatcher matcher = BipartiteMatcher.match(graph, budget);
+
+        if (!matcher.isPerfect()) {
+            throw new AssignmentImpossibleException("Failed to generate valid assignments due to family constraints");
+        }
+
+        logger.info("Successfully generated assignments using MATCHING strategy");
+        return createAssignmentsFromMatching(year, graph, matcher, seed);
+    }
+
+    /**
+     * Creates FamilyAssignment objects from a perfect matching.
+     *
+     * @param year    The year of the assignment.
+     * @param graph   The constraint graph the matching was found in.
+     * @param matcher The perfect matching.
+     * @param seed    The seed the members were shuffled with.
+     * @return A list of FamilyAssignment objects.
+     */
+    private List<FamilyAssignment> createAssignmentsFromMatching(Integer year, ConstraintGraph graph, BipartiteMatcher matcher, long seed) {
+        List<FamilyAssignment> assignments = new ArrayList<>(graph.size());
+        for (int santa = 0; santa < graph.size(); santa++) {
+            FamilyAssignment assignment = new FamilyAssignment(
+                    year,
+                    graph.member(santa).getId(),
+                    graph.member(matcher.recipientOf(santa)).getId()
+            );
+            assignment.setSolverSeed(seed);
+            assignments.add(assignment);
+        }
+        return assignments;
+    }
+}
@@ -0,0 +1,152 @@
+package com.bettercloud.santa.service;
+
+import com.bettercloud.santa.config.SolverProperties;
+import com.bettercloud.santa.model.FamilyMember;
+import com.bettercloud.santa.service.solver.BlocklistRule;
+import com.bettercloud.santa.service.solver.ConstraintGraph;
+import com.bettercloud.santa.service.solver.ConstraintRule;
+import com.bettercloud.santa.service.solver.NoReciprocalRule;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The rules every strategy honours: the family and history rules, those enabled under
+ * {@code santa.solver.rules}, and every {@link ConstraintRule} bean in the application context.
+ * Graph-based strategies compile them into a {@link ConstraintGraph}; strategies that only touch a
+ * few pairs check those pairs one at a time.
+ */
+@Component
+public class ConstraintRules {
+    private final List<ConstraintRule> rules;
+    private final List<ConstraintRule> requiredRules;
+    private final boolean relaxRules;
+
+    public ConstraintRules(SolverProperties properties) {
+        this(properties, List.of());
+    }
+
+    @Autowired
+    public ConstraintRules(SolverProperties properties, ObjectProvider<ConstraintRule> customRules) {
+        this(properties, customRules.orderedStream().toList());
+    }
+
+    /**
+     * @param properties  The solver properties enabling the optional rules.
+     * @param customRules Further rules, applied after the built-in ones.
+     */
+    public ConstraintRules(SolverProperties properties, List<ConstraintRule> customRules) {
+        List<ConstraintRule> configured = new ArrayList<>(ConstraintGraph.DEFAULT_RULES);
+        SolverProperties.Rules rulesProperties = properties.getRules();
+        if (rulesProperties.isNoReciprocal()) {
+            configured.add(new NoReciprocalRule());
+        }
+        if (!rulesProperties.getBlocklist().isEmpty()) {
+            Map<Long, Set<Long>> blocked = new HashMap<>();
+            rulesProperties.getBlocklist().forEach(pair ->
+                    blocked.computeIfAbsent(pair.getSantaId(), k -> new HashSet<>()).add(pair.getRecipientId()));
+            configured.add(new BlocklistRule(blocked));
+        }
+        configured.addAll(customRules);
+        this.rules = List.copyOf(configured);
+        this.requiredRules = configured.stream().filter(rule -> !rule.isRelaxable()).toList();
+        this.relaxRules = properties.getOptimizing().isRelaxRules()
+                && properties.getStrategy() == AssignmentStrategyType.OPTIMIZING;
+    }
+
+    /**
+     * Returns the family and history rules only.
+     *
+     * @return The default rules.
+     */
+    public static ConstraintRules defaults() {
+        return new ConstraintRules(new SolverProperties());
+    }
+
+    /**
+     * Builds the graph of valid assignments under every rule.
+     *
+     * @param members           The list of family members, in index order.
+     * @param recentAssignments A map of giver IDs to recently assigned recipient IDs.
+     * @return The constraint graph.
+     */
+    public ConstraintGraph compile(List<FamilyMember> members, Map<Long, Set<Long>> recentAssignments) {
+        return ConstraintGraph.build(members, recentAssignments, rules);
+    }
+
+    /**
+     * Builds the graph of assignments allowed by the rules that may never be relaxed.
+     *
+     * @param members           The list of family members, in index order.
+     * @param recentAssignments A map of giver IDs to recently assigned recipient IDs.
+     * @return The constraint graph.
+     */
+    public ConstraintGraph compileRequired(List<FamilyMember> members, Map<Long, Set<Long>> recentAssignments) {
+        return ConstraintGraph.build(members, recentAssignments, requiredRules);
+    }
+
+    /**
+     * Builds the graph a year must have a perfect matching in to be solvable at all: the graph
+     * under the required rules when {@code santa.solver.optimizing.relax-rules} is set and OPTIMIZING
+     * is the configured strategy, the graph under every rule otherwise. The strict strategies never
+     * break a relaxable rule, so relaxing the check for them would only turn a fast rejection into
+     * an exhaustive search.
+     *
+     * @param members           The list of family members, in index order.
+     * @param recentAssignments A map of giver IDs to recently assigned recipient IDs.
+     * @return The constraint graph.
+     */
+    public ConstraintGraph compileFeasible(List<FamilyMember> members, Map<Long, Set<Long>> recentAssignments) {
+        return relaxRules ? compileRequired(members, recentAssignments) : compile(members, recentAssignments);
+    }
+
+    /**
+     * Checks if the santa may give to the recipient under the rules of {@link #compileFeasible}.
+     *
+     * @param santa             The family member acting as Santa.
+     * @param recipient         The family member receiving the gift.
+     * @param recentAssignments A map of giver IDs to recently assigned recipient IDs.
+     * @return True if the assignment may be made, false otherwise.
+     */
+    public boolean allowsFeasible(FamilyMember santa, FamilyMember recipient, Map<Long, Set<Long>> recentAssignments) {
+        if (!relaxRules) {
+            return allows(santa, recipient, recentAssignments);
+        }
+        if (santa.getId().equals(recipient.getId())) {
+            return false;
+        }
+        for (ConstraintRule rule : requiredRules) {
+            if (rule.forbids(santa, recipient, recentAssignments)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks if the santa may give to the recipient under every rule.
+     *
+     * @param santa             The family member acting as Santa.
+     * @param recipient         The family member receiving the gift.
+     * @param recentAssignments A map of giver IDs to recently assigned recipient IDs.
+     * @return True if the assignment is valid, false otherwise.
+     */
+    public boolean allows(FamilyMember santa, FamilyMember recipient, Map<Long, Set<Long>> recentAssignments) {
+        if (santa.getId().equals(recipient.getId())) {
+            return false;
+        }
+        for (ConstraintRule rule : rules) {
+            if (rule.forbids(santa, recipient, recentAssignments)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,120 @@
+package com.bettercloud.santa.service;
+
+import com.bettercloud.santa.config.SolverProperties;
+import com.bettercloud.santa.exception.AssignmentImpossibleException;
+import com.bettercloud.santa.exception.SolverBudgetExceededException;
+import com.bettercloud.santa.model.FamilyAssignment;
+import com.bettercloud.santa.model.FamilyMember;
+import com.bettercloud.santa.service.solver.SearchBudget;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Runs strategies in order under a per-request time and node-expansion budget.
+ * <p>
+ * Every step but the last gets an equal share of what is left of the budget; the last step gets
+ * all of it. A step that runs out of its share or cannot find a solution hands over to the next
+ * one, e.g. from a single Hamiltonian cycle to a multi-cycle matching. If no step succeeds the
+ * chain fails with the last step's {@link AssignmentImpossibleException}, or otherwise with a
+ * {@link SolverBudgetExceededException} reporting how far every step got.
+ */
+public class FallbackChainStrategy implements AssignmentStrategy {
+    private static final Logger logger = LoggerFactory.getLogger(FallbackChainStrategy.class);
+
+    private final List<AssignmentStrategyType> chain;
+    private final Map<AssignmentStrategyType, AssignmentStrategy> strategies;
+    private final SolverProperties.Budget requestBudget;
+
+    /**
+     * @param chain         The strategy types to try, in order.
+     * @param strategies    The strategy implementing every type in the chain.
+     * @param requestBudget The time and node-expansion budget of one request.
+     */
+    public FallbackChainStrategy(
+            List<AssignmentStrategyType> chain,
+            Map<AssignmentStrategyType, AssignmentStrategy> strategies,
+            SolverProperties.Budget requestBudget
+    ) {
+        this.chain = List.copyOf(chain);
+        this.strategies = Map.copyOf(strategies);
+        this.requestBudget = requestBudget;
+    }
+
+    @Override
+    public List<FamilyAssignment> generateAssignments(
+            Integer year,
+            List<FamilyMember> members,
+            Map<Long, Set<Long>> recentAssignments,
+            long seed,
+            SearchBudget budget
+    ) {
+        SearchBudget request = budget.fork(requestBudget.getTimeout(), requestBudget.getMaxExpansions());
+        List<String> attempts = new ArrayList<>();
+        RuntimeException lastFailure = null;
+
+        for (int step = 0; step < chain.size(); step++) {
+            AssignmentStrategyType type = chain.get(step);
+            SearchBudget stepBudget = forkStepBudget(request, chain.size() - step);
+            try {
+                List<FamilyAssignment> assignments = strategies.get(type)
+                        .generateAssignments(year, members, recentAssignments, seed, stepBudget);
+                if (step > 0) {
+                    logger.info("Generated assignments for {} with fallback {} after {}", year, type, attempts);
+                }
+                return assignments;
+            } catch (AssignmentImpossibleException | SolverBudgetExceededException e) {
+                attempts.add(describeAttempt(type, stepBudget, e));
+                lastFailure = e;
+                logger.warn("Strategy {} failed for {}: {}", type, year, e.getMessage());
+            }
+            budget.checkpoint();
+        }
+
+        if (lastFailure instanceof AssignmentImpossibleException impossible) {
+            throw impossible;
+        }
+        throw new SolverBudgetExceededException(
+                String.format("No assignment found within %d ms and %d expansions",
+                        requestBudget.getTimeout().toMillis(), requestBudget.getMaxExpansions()),
+                request.expansions(),
+                request.elapsed(),
+                attempts
+        );
+    }
+
+    /**
+     * Gives a step an equal share of what is left of the request budget.
+     *
+     * @param request        The request budget.
+     * @param stepsRemaining The number of steps left, including this one.
+     * @return The step budget.
+     */
+    private SearchBudget forkStepBudget(SearchBudget request, int stepsRemaining) {
+        Duration remainingTime = request.remainingTime();
+        long remainingExpansions = request.remainingExpansions();
+        return request.fork(
+                remainingTime == null ? null : remainingTime.dividedBy(stepsRemaining),
+                remainingExpansions == Long.MAX_VALUE ? Long.MAX_VALUE : remainingExpansions / stepsRemaining
+        );
+    }
+
+    /**
+     * Describes how far a failed step got.
+     *
+     * @param type       The strategy type.
+     * @param stepBudget The step budget.
+     * @param failure    The failure.
+     * @return A description of the attempt.
+     */
+    private String describeAttempt(AssignmentStrategyType type, SearchBudget stepBudget, RuntimeException failure) {
+        String outcome = failure instanceof SolverBudgetExceededException ? "budget exceeded" : "no solution";
+        return String.format("%s: %s after %d expansions in %d ms",
+                type, outcome, stepBudget.expansions(), stepBudget.elapsed().toMillis());
+    }
+}
@@ -0,0 +1,361 @@
+package com.bettercloud.santa.service;
+
+import com.bettercloud.santa.exception.AssignmentImpossibleException;
+import com.bettercloud.santa.model.FamilyAssignment;
+import com.bettercloud.santa.model.FamilyMember;
+import com.bettercloud.santa.service.solver.SearchBudget;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Solves the assignment at family level and expands the plan into member pairs.
+ * <p>
+ * The family rules depend only on {@code familyId}, so members of one family are interchangeable.
+ * Families are laid out as consecutive blocks on a circle of {@code n} seats and every seat gives
+ * to the seat {@code shift} places ahead; any shift between the largest family size {@code m} and
+ * {@code n - m} keeps every block clear of itself. The family-to-family flows follow from the block
+ * overlaps in O(F log F), are expanded into member pairs in O(n), and pairs that break another
+ * rule, such as a recent repeat, are then fixed by swapping recipients with another pair, looked up
+ * among the pairs giving to the same family first. The result may consist of several gift cycles.
+ * <p>
+ * The repair is greedy, so it can miss a solution that exists. It is retried with the next shifts
+ * and a new member order within every family, up to {@value #REPAIR_ATTEMPTS} times. When every
+ * attempt fails, the strategy gives up with an {@link AssignmentImpossibleException} naming the
+ * attempts, which a fallback chain treats as a failed step and hands on to the next strategy.
+ */
+@Service
+public class FamilyAggregatedStrategy implements AssignmentStrategy {
+    private static final Logger logger = LoggerFactory.getLogger(FamilyAggregatedStrategy.class);
+    private static final int REPAIR_ATTEMPTS = 8;
+
+    private final ConstraintRules rules;
+
+    public FamilyAggregatedStrategy(ConstraintRules rules) {
+        this.rules = rules;
+    }
+
+    @Override
+    public List<FamilyAssignment> generateAssignments(
+            Integer year,
+            List<FamilyMember> members,
+            Map<Long, Set<Long>> recentAssignments,
+            long seed,
+            SearchBudget budget
+    ) {
+        Random random = new Random(seed);
+        List<List<FamilyMember>> families = groupByFamily(members, random);
+        int totalMembers = members.size();
+        int largestFamily = families.stream().mapToInt(List::size).max().orElse(0);
+
+        if (totalMembers < 2 || largestFamily > totalMembers - largestFamily) {
+            throw new AssignmentImpossibleException("Failed to generate valid assignments due to family constraints");
+        }
+
+        FamilyMember[] santas = new FamilyMember[totalMembers];
+        FamilyMember[] recipients = new FamilyMember[totalMembers];
+        for (int attempt = 0; attempt < REPAIR_ATTEMPTS; attempt++) {
+            if (attempt > 0) {
+                families.forEach(family -> Collections.shuffle(family, random));
+            }
+            int shift = chooseShift(year + attempt, totalMembers, largestFamily);
+            List<FamilyFlow> plan = planFamilyFlows(families, shift);
+            expandPlan(families, plan, santas, recipients);
+
+            if (repairRuleConflicts(santas, recipients, recentAssignments, budget)) {
+                logger.info("Successfully generated assignments using FAMILY_AGGREGATED strategy ({} families, {} flows, attempt {})",
+                        families.size(), plan.size(), attempt + 1);
+                return createAssignments(year, santas, recipients, seed);
+            }
+        }
+
+        throw new AssignmentImpossibleException(
+                "Family-level repair found no assignment within " + REPAIR_ATTEMPTS + " attempts");
+    }
+
+    /**
+     * Groups members by family, keeping the order in which families first appear and shuffling
+     * the members within each family.
+     *
+     * @param members The list of family members.
+     * @param random  The source for shuffling.
+     * @return The members of every family.
+     */
+    private List<List<FamilyMember>> groupByFamily(List<FamilyMember> members, Random random) {
+        Map<Integer, List<FamilyMember>> families = new LinkedHashMap<>();
+        for (FamilyMember member : members) {
+            families.computeIfAbsent(member.getFamilyId(), k -> new ArrayList<>()).add(member);
+        }
+        families.values().forEach(family -> Collections.shuffle(family, random));
+        return new ArrayList<>(families.values());
+    }
+
+    /**
+     * Chooses the seat shift for the year, rotating through every valid shift so that the family
+     * pairings change from year to year.
+     *
+     * @param year          The year of the assignment, advanced by one for every repair attempt.
+     * @param totalMembers  The number of members.
+     * @param largestFamily The size of the largest family.
+     * @return A shift in {@code [largestFamily, totalMembers - largestFamily]}.
+     */
+    private int chooseShift(Integer year, int totalMembers, int largestFamily) {
+        int validShifts = totalMembers - 2 * largestFamily + 1;
+        return largestFamily + Math.floorMod(year, validShifts);
+    }
+
+    /**
+     * Computes how many members of each family give to each other family.
+     *
+     * @param families The members of every family, in seat order.
+     * @param shift    The seat shift.
+     * @return The family-to-family flows, ordered by giving seat.
+     */
+    private List<FamilyFlow> planFamilyFlows(List<List<FamilyMember>> families, int shift) {
+        int familyCount = families.size();
+        int[] blockStart = new int[familyCount + 1];
+        for (int f = 0; f < familyCount; f++) {
+            blockStart[f + 1] = blockStart[f] + families.get(f).size();
+        }
+        int totalMembers = blockStart[familyCount];
+
+        List<FamilyFlow> plan = new ArrayList<>();
+        for (int from = 0; from < familyCount; from++) {
+            int seat = blockStart[from];
+            int end = blockStart[from + 1];
+            while (seat < end) {
+                int target = (seat + shift) % totalMembers;
+                int to = blockOf(blockStart, target);
+                int count = Math.min(end - seat, blockStart[to + 1] - target);
+                plan.add(new FamilyFlow(from, to, count));
+                seat += count;
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * Finds the family block containing the seat.
+     *
+     * @param blockStart The first seat of every family, followed by the total seat count.
+     * @param seat       The seat.
+     * @return The family index.
+     */
+    private int blockOf(int[] blockStart, int seat) {
+        int index = Arrays.binarySearch(blockStart, seat);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    /**
+     * Expands the family flows into member pairs; pair {@code i} is {@code santas[i] -> recipients[i]}.
+     *
+     * @param families   The members of every family.
+     * @param plan       The family-to-family flows.
+     * @param santas     The santa of every pair, filled in by this method.
+     * @param recipients The recipient of every pair, filled in by this method.
+     */
+    private void expandPlan(
+            List<List<FamilyMember>> families,
+            List<FamilyFlow> plan,
+            FamilyMember[] santas,
+            FamilyMember[] recipients
+    ) {
+        int[] giving = new int[families.size()];
+        int[] receiving = new int[families.size()];
+        int pair = 0;
+        for (FamilyFlow flow : plan) {
+            List<FamilyMember> givers = families.get(flow.from());
+            List<FamilyMember> receivers = families.get(flow.to());
+            for (int k = 0; k < flow.count(); k++) {
+                santas[pair] = givers.get(giving[flow.from()]++);
+                recipients[pair] = receivers.get(receiving[flow.to()]++);
+                pair++;
+            }
+        }
+    }
+
+    /**
+     * Fixes pairs that break a rule by swapping recipients with another pair.
+     * <p>
+     * Candidates are looked up among the pairs whose recipient is in the same family as the
+     * conflicting pair's, starting with the next one in seat order. Such a swap keeps both pairs
+     * clear of the family rule and disturbs the family plan as little as possible, so only rules
+     * like the history window can reject it, and they forbid few recipients per santa. The other
+     * pairs are only scanned when no pair giving to that family can swap.
+     *
+     * @param santas            The santa of every pair.
+     * @param recipients        The recipient of every pair; swapped in place.
+     * @param recentAssignments A map of recent assignments.
+     * @param budget            The shared budget, checked once per repaired pair.
+     * @return True if every conflict was repaired, false otherwise.
+     */
+    private boolean repairRuleConflicts(
+            FamilyMember[] santas,
+            FamilyMember[] recipients,
+            Map<Long, Set<Long>> recentAssignments,
+            SearchBudget budget
+    ) {
+        int pairs = santas.length;
+        RecipientFamilyIndex index = new RecipientFamilyIndex(recipients);
+        for (int i = 0; i < pairs; i++) {
+            if (isValidAssignment(santas[i], recipients[i], recentAssignments)) {
+                continue;
+            }
+            budget.checkpoint();
+
+            int swap = -1;
+            int[] sameFamily = index.pairsGivingTo(i);
+            int slot = index.slotOf(i);
+            for (int k = 1; k < sameFamily.length && swap < 0; k++) {
+                int j = sameFamily[(slot + k) % sameFamily.length];
+                if (canSwap(santas, recipients, i, j, recentAssignments)) {
+                    swap = j;
+                }
+            }
+            for (int distance = 1; distance < pairs && swap < 0; distance++) {
+                int j = (i + distance) % pairs;
+                if (!index.sameFamily(i, j) && canSwap(santas, recipients, i, j, recentAssignments)) {
+                    swap = j;
+                }
+            }
+            if (swap < 0) {
+                return false;
+            }
+            FamilyMember recipient = recipients[i];
+            recipients[i] = recipients[swap];
+            recipients[swap] = recipient;
+            index.swap(i, swap);
+        }
+        return true;
+    }
+
+    /**
+     * Checks if two pairs may swap recipients.
+     *
+     * @param santas            The santa of every pair.
+     * @param recipients        The recipient of every pair.
+     * @param i                 The first pair.
+     * @param j                 The second pair.
+     * @param recentAssignments A map of recent assignments.
+     * @return True if both santas may give to the other pair's recipient, false otherwise.
+     */
+    private boolean canSwap(
+            FamilyMember[] santas,
+            FamilyMember[] recipients,
+            int i,
+            int j,
+            Map<Long, Set<Long>> recentAssignments
+    ) {
+        return isValidAssignment(santas[i], recipients[j], recentAssignments)
+                && isValidAssignment(santas[j], recipients[i], recentAssignments);
+    }
+
+    /**
+     * Checks if the santa may give to the recipient.
+     *
+     * @param santa             The family member acting as Santa.
+     * @param recipient         The family member receiving the gift.
+     * @param recentAssignments A map of recent assignments.
+     * @return True if the assignment is valid, false otherwise.
+     */
+    private boolean isValidAssignment(FamilyMember santa, FamilyMember recipient, Map<Long, Set<Long>> recentAssignments) {
+        return rules.allows(santa, recipient, recentAssignments);
+    }
+
+    /**
+     * Creates FamilyAssignment objects from the member pairs.
+     *
+     * @param year       The year of the assignment.
+     * @param santas     The santa of every pair.
+     * @param recipients The recipient of every pair.
+     * @param seed       The seed the families were shuffled with.
+     * @return A list of FamilyAssignment objects.
+     */
+    private List<FamilyAssignment> createAssignments(Integer year, FamilyMember[] santas, FamilyMember[] recipients, long seed) {
+        List<FamilyAssignment> assignments = new ArrayList<>(santas.length);
+        for (int i = 0; i < santas.length; i++) {
+            FamilyAssignment assignment = new FamilyAssignment(year, santas[i].getId(), recipients[i].getId());
+            assignment.setSolverSeed(seed);
+            assignments.add(assignment);
+        }
+        return assignments;
+    }
+
+    /**
+     * The pairs giving to every recipient family, in seat order, kept up to date as recipients
+     * are swapped.
+     */
+    private static final class RecipientFamilyIndex {
+        private final int[][] pairsByFamily;
+        private final int[] family;
+        private final int[] slot;
+
+        RecipientFamilyIndex(FamilyMember[] recipients) {
+            Map<Integer, List<Integer>> grouped = new LinkedHashMap<>();
+            for (int pair = 0; pair < recipients.length; pair++) {
+                grouped.computeIfAbsent(recipients[pair].getFamilyId(), k -> new ArrayList<>()).add(pair);
+            }
+            this.pairsByFamily = new int[grouped.size()][];
+            this.family = new int[recipients.length];
+            this.slot = new int[recipients.length];
+            int f = 0;
+            for (List<Integer> members : grouped.values()) {
+                pairsByFamily[f] = new int[members.size()];
+                for (int k = 0; k < members.size(); k++) {
+                    int pair = members.get(k);
+                    pairsByFamily[f][k] = pair;
+                    family[pair] = f;
+                    slot[pair] = k;
+                }
+                f++;
+            }
+        }
+
+        int[] pairsGivingTo(int pair) {
+            return pairsByFamily[family[pair]];
+        }
+
+        int slotOf(int pair) {
+            return slot[pair];
+        }
+
+        boolean sameFamily(int i, int j) {
+            return family[i] == family[j];
+        }
+
+        /**
+         * Records that two pairs swapped recipients.
+         *
+         * @param i The first pair.
+         * @param j The second pair.
+         */
+        void swap(int i, int j) {
+            if (family[i] == family[j]) {
+                return;
+            }
+            pairsByFamily[family[i]][slot[i]] = j;
+            pairsByFamily[family[j]][slot[j]] = i;
+            int familyOfI = family[i];
+            family[i] = family[j];
+            family[j] = familyOfI;
+            int slotOfI = slot[i];
+            slot[i] = slot[j];
+            slot[j] = slotOfI;
+        }
+    }
+
+    /**
+     * A number of gifts flowing from one family to another.
+     */
+    private record FamilyFlow(int from, int to, int count) {
+    }
+}
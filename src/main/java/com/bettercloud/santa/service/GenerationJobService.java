@@ -0,0 +1,212 @@
+package com.bettercloud.santa.service;
+
+import com.bettercloud.santa.config.JobProperties;
+import com.bettercloud.santa.exception.GlobalExceptionHandler;
+import com.bettercloud.santa.exception.JobNotFoundException;
+import com.bettercloud.santa.exception.JobNotReadyException;
+import com.bettercloud.santa.model.GenerationJob;
+import com.bettercloud.santa.model.JobState;
+import com.bettercloud.santa.repository.GenerationJobRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Runs generations as asynchronous jobs.
+ * <p>
+ * A job is a row in {@code generation_jobs}. The node that accepted it runs the generation
+ * detached from the request and writes the phase and the solver's expansions to the row every
+ * {@code santa.jobs.progress-interval}, so any node can answer a poll or feed an event stream by
+ * reading the row. A running job whose row stops changing for {@code santa.jobs.stale-after} is
+ * reported as failed, since the node running it has gone away.
+ * <p>
+ * At most {@code santa.jobs.max-concurrent} jobs run on a node at once. Further jobs wait in a
+ * queue, still QUEUED, and one shared heartbeat keeps their rows fresh until they get a slot.
+ */
+@Service
+public class GenerationJobService {
+    private static final Logger logger = LoggerFactory.getLogger(GenerationJobService.class);
+
+    private final GenerationJobRepository jobRepository;
+    private final SecretSantaService secretSantaService;
+    private final JobProperties properties;
+    private final Sinks.Many<GenerationJob> queue = Sinks.many().unicast().onBackpressureBuffer();
+    private final Set<Long> waiting = ConcurrentHashMap.newKeySet();
+    private final Disposable workers;
+
+    public GenerationJobService(
+            GenerationJobRepository jobRepository,
+            SecretSantaService secretSantaService,
+            JobProperties properties
+    ) {
+        if (properties.getMaxConcurrent() < 1) {
+            throw new IllegalArgumentException("santa.jobs.max-concurrent must be at least 1");
+        }
+        this.jobRepository = jobRepository;
+        this.secretSantaService = secretSantaService;
+        this.properties = properties;
+        this.workers = Disposables.composite(
+                queue.asFlux()
+                        .flatMap(this::run, properties.getMaxConcurrent())
+                        .subscribe(),
+                Flux.interval(properties.getProgressInterval())
+                        .onBackpressureDrop()
+                        .concatMap(tick -> touchWaiting())
+                        .subscribe()
+        );
+    }
+
+    /**
+     * Creates a job generating a group's year and queues it on this node.
+     *
+     * @param groupId The exchange group ID.
+     * @param year    The year for which assignments are to be generated.
+     * @return A Mono of the queued job, emitted once its row exists.
+     */
+    public Mono<GenerationJob> submit(Long groupId, Integer year) {
+        return jobRepository.save(GenerationJob.queued(groupId, year))
+                .doOnNext(this::enqueue);
+    }
+
+    /**
+     * Finds a job, reporting an abandoned one as failed.
+     *
+     * @param id The job ID.
+     * @return A Mono of the job.
+     */
+    public Mono<GenerationJob> getJob(Long id) {
+        return jobRepository.findById(id)
+                .switchIfEmpty(Mono.error(() -> new JobNotFoundException("Job " + id + " not found")))
+                .map(this::reportAbandoned);
+    }
+
+    /**
+     * Follows a job until it finishes.
+     *
+     * @param id The job ID.
+     * @return A Flux of the job, emitted whenever its phase or progress changes and completing
+     * after its terminal state.
+     */
+    public Flux<GenerationJob> watchJob(Long id) {
+        return Flux.interval(Duration.ZERO, properties.getPollInterval())
+                .onBackpressureDrop()
+                .concatMap(tick -> getJob(id))
+                .distinctUntilChanged(job -> job.getState() + ":" + job.getExpansions())
+                .takeUntil(job -> job.getState().isTerminal());
+    }
+
+    /**
+     * Fetches the assignments a job generated.
+     *
+     * @param id The job ID.
+     * @return A Mono of the year's cached assignments, or JobNotReadyException if the job has not
+     * succeeded.
+     */
+    public Mono<AssignmentCache.CachedYear> getResult(Long id) {
+        return getJob(id).flatMap(job -> switch (job.getState()) {
+            case SUCCEEDED -> secretSantaService.getAssignments(job.getGroupId(), job.getAssignmentYear());
+            case FAILED -> Mono.error(new JobNotReadyException("Job " + id + " failed: " + job.getError()));
+            default -> Mono.error(new JobNotReadyException("Job " + id + " is " + job.getState()));
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.dispose();
+    }
+
+    /**
+     * Queues a job until a slot frees up.
+     *
+     * @param job The queued job.
+     */
+    private void enqueue(GenerationJob job) {
+        waiting.add(job.getId());
+        synchronized (queue) {
+            queue.emitNext(job, Sinks.EmitFailureHandler.FAIL_FAST);
+        }
+    }
+
+    /**
+     * Marks the rows of the jobs waiting for a slot as alive.
+     *
+     * @return A Mono completing once the rows are updated.
+     */
+    private Mono<Void> touchWaiting() {
+        List<Long> ids = List.copyOf(waiting);
+        if (ids.isEmpty()) {
+            return Mono.empty();
+        }
+        return jobRepository.touchQueued(ids)
+                .onErrorResume(error -> {
+                    logger.warn("Could not record that {} queued jobs are waiting: {}", ids.size(), error.getMessage());
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    /**
+     * Runs a job detached from the request that submitted it, writing its progress while it runs
+     * and its outcome when it ends.
+     *
+     * @param job The queued job.
+     * @return A Mono completing when the job has ended, never with an error.
+     */
+    private Mono<Void> run(GenerationJob job) {
+        Long id = job.getId();
+        waiting.remove(id);
+        GenerationProgress progress = new GenerationProgress();
+        Disposable heartbeat = Flux.interval(properties.getProgressInterval())
+                .onBackpressureDrop()
+                .concatMap(tick -> jobRepository.updateProgress(id, progress.state().name(), progress.expansions())
+                        .onErrorResume(error -> {
+                            logger.warn("Could not record progress of job {}: {}", id, error.getMessage());
+                            return Mono.empty();
+                        }))
+                .subscribe();
+
+        return secretSantaService.createAssignments(job.getGroupId(), job.getAssignmentYear(), progress)
+                .then(Mono.defer(() -> jobRepository.finish(id, JobState.SUCCEEDED.name(), progress.expansions(), null)))
+                .onErrorResume(error -> {
+                    logger.error("Job {} failed: {}", id, error.getMessage());
+                    return jobRepository.finish(id, JobState.FAILED.name(), progress.expansions(),
+                            GlobalExceptionHandler.toErrorResponse(error).getMessage());
+                })
+                .doFinally(signal -> heartbeat.dispose())
+                .doOnNext(rows -> logger.info("Job {} for group {}, year {} finished", id, job.getGroupId(), job.getAssignmentYear()))
+                .onErrorResume(error -> {
+                    logger.error("Could not record outcome of job {}: {}", id, error.getMessage());
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    /**
+     * Reports a running job whose row has not been updated within {@code santa.jobs.stale-after}
+     * as failed.
+     *
+     * @param job The job as stored.
+     * @return The job as it should be reported.
+     */
+    private GenerationJob reportAbandoned(GenerationJob job) {
+        if (job.getState().isTerminal() || job.getUpdatedAt() == null
+                || job.getUpdatedAt().isAfter(Instant.now().minus(properties.getStaleAfter()))) {
+            return job;
+        }
+        job.setState(JobState.FAILED);
+        job.setError("Job was abandoned by the node running it");
+        return job;
+    }
+}
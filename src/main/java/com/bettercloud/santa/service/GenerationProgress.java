@@ -0,0 +1,30 @@
+package com.bettercloud.santa.service;
+
+import com.bettercloud.santa.model.JobState;
+import com.bettercloud.santa.service.solver.SearchBudget;
+
+/**
+ * Live progress of one generation: the pipeline moves it through its phases and the solver
+ * records its expansions on {@link #budget()}, while the job that started it reads both from
+ * another thread.
+ */
+public final class GenerationProgress {
+    private final SearchBudget budget = SearchBudget.unlimited();
+    private volatile JobState state = JobState.QUEUED;
+
+    public SearchBudget budget() {
+        return budget;
+    }
+
+    public JobState state() {
+        return state;
+    }
+
+    public void enter(JobState state) {
+        this.state = state;
+    }
+
+    public long expansions() {
+        return budget.expansions();
+    }
+}
@@ -0,0 +1,224 @@
+package com.bettercloud.santa.service;
+
+import com.bettercloud.santa.config.AssignmentCacheProperties;
+import com.bettercloud.santa.config.SolverProperties;
+import com.bettercloud.santa.model.FamilyAssignment;
+import com.bettercloud.santa.model.GiftHistory;
+import com.bettercloud.santa.repository.AssignmentRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory last year every santa gave to every recipient, kept per exchange group.
+ * <p>
+ * A group's pairs are read once from its assignments, one row per pair, and held in a primitive
+ * map keyed by the packed (santa, recipient) pair. Every saved year moves its pairs forward in
+ * place, so the history of a new year is taken from memory, at the cost of one index-only lookup
+ * of the group's latest year, however many years the exchange has run.
+ * <p>
+ * Last years alone cannot answer a year before the group's latest one, since a later repeat
+ * hides the earlier gift; such a year reads its window from the assignments instead. A repair
+ * may remove pairs, so it drops the group, which is read again on next use. Changes only reach
+ * the node that made them: a group whose latest year moved on elsewhere is read again, and
+ * other changes are picked up once the group is older than {@code santa.cache.expire-after-write}.
+ * Groups are evicted by weight, one unit per pair, beyond {@code santa.cache.max-history-pairs}.
+ */
+@Component
+public class GiftHistoryIndex {
+    private final AssignmentRepository assignmentRepository;
+    private final SolverProperties.History history;
+    private final Cache<Long, GroupPairs> cache;
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public GiftHistoryIndex(
+            AssignmentRepository assignmentRepository,
+            SolverProperties solverProperties,
+            AssignmentCacheProperties cacheProperties
+    ) {
+        if (cacheProperties.getMaxHistoryPairs() < 0) {
+            throw new IllegalArgumentException("santa.cache.max-history-pairs must not be negative");
+        }
+        this.assignmentRepository = assignmentRepository;
+        this.history = solverProperties.getHistory();
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(cacheProperties.getMaxHistoryPairs())
+                .weigher((Long groupId, GroupPairs pairs) -> pairs.size())
+                .expireAfterWrite(cacheProperties.getExpireAfterWrite())
+                .build();
+    }
+
+    /**
+     * Finds the pairs of a group that may not be repeated in a year.
+     *
+     * @param groupId The exchange group ID.
+     * @param year    The year being solved.
+     * @return A Mono of the pairs given inside the year's history window, with the last year of
+     * the window they were given in.
+     */
+    public Mono<List<GiftHistory>> find(Long groupId, int year) {
+        if (!history.isEnabled()) {
+            return Mono.just(List.of());
+        }
+        int firstRemembered = history.firstRememberedYear(year);
+        return assignmentRepository.findLatestYear(groupId)
+                .flatMap(latestYear -> latestYear >= year
+                        ? assignmentRepository.findGiftHistory(groupId, firstRemembered, year - 1).collectList()
+                        : pairs(groupId, latestYear).map(pairs -> pairs.givenSince(firstRemembered)));
+    }
+
+    /**
+     * Moves the pairs of saved assignments forward. Must only be called once they are committed.
+     *
+     * @param groupId     The exchange group ID.
+     * @param assignments The saved assignments.
+     */
+    public void record(Long groupId, List<FamilyAssignment> assignments) {
+        GroupPairs pairs = cache.getIfPresent(groupId);
+        if (pairs != null && !pairs.record(assignments)) {
+            invalidate(groupId);
+        }
+    }
+
+    /**
+     * Drops a group on this node after some of its pairs were removed.
+     *
+     * @param groupId The exchange group ID.
+     */
+    public void invalidate(Long groupId) {
+        invalidations.incrementAndGet();
+        cache.invalidate(groupId);
+    }
+
+    /**
+     * Returns the cached pairs of a group if they are up to date with its latest year, or reads
+     * them again.
+     *
+     * @param groupId    The exchange group ID.
+     * @param latestYear The latest year the group has assignments for.
+     * @return A Mono of the group's pairs.
+     */
+    private Mono<GroupPairs> pairs(Long groupId, int latestYear) {
+        GroupPairs cached = cache.getIfPresent(groupId);
+        if (cached != null && cached.latestYear() == latestYear) {
+            return Mono.just(cached);
+        }
+        long generation = invalidations.get();
+        return assignmentRepository.findGiftHistory(groupId, Integer.MIN_VALUE, Integer.MAX_VALUE)
+                .collectList()
+                .map(rows -> {
+                    GroupPairs loaded = new GroupPairs(rows.size());
+                    boolean packable = loaded.load(rows);
+                    if (packable && generation == invalidations.get()) {
+                        cache.put(groupId, loaded);
+                        // an invalidation may have slipped in between the check and the put
+                        if (generation != invalidations.get()) {
+                            cache.invalidate(groupId);
+                        }
+                    }
+                    return loaded;
+                });
+    }
+
+    /**
+     * Packs a pair of member IDs into one key.
+     *
+     * @param santaId     The santa's member ID.
+     * @param recipientId The recipient's member ID.
+     * @return The packed pair, or -1 if an ID is negative or does not fit in 31 bits.
+     */
+    static long pack(long santaId, long recipientId) {
+        if ((santaId >>> 31) != 0 || (recipientId >>> 31) != 0) {
+            return -1;
+        }
+        return santaId << 32 | recipientId;
+    }
+
+    /**
+     * The last year of every pair of one group and the latest year it has assignments for.
+     * Every access holds the instance's lock, since saves update the map in place.
+     */
+    private static final class GroupPairs {
+        private final LongLongHashMap lastYears;
+        private int latestYear;
+
+        GroupPairs(int expectedPairs) {
+            this.lastYears = new LongLongHashMap(expectedPairs);
+        }
+
+        synchronized int size() {
+            return lastYears.size();
+        }
+
+        synchronized int latestYear() {
+            return latestYear;
+        }
+
+        /**
+         * Moves the given pairs forward to their year.
+         *
+         * @param assignments The saved assignments.
+         * @return False if a member ID could not be packed, true otherwise.
+         */
+        synchronized boolean record(List<FamilyAssignment> assignments) {
+            for (FamilyAssignment assignment : assignments) {
+                if (!moveForward(assignment.getSantaId(), assignment.getRecipientId(), assignment.getAssignmentYear())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Fills the map from the stored last years.
+         *
+         * @param rows The group's pairs with the last year they were given.
+         * @return False if a member ID could not be packed, true otherwise.
+         */
+        private boolean load(List<GiftHistory> rows) {
+            for (GiftHistory row : rows) {
+                if (!moveForward(row.getSantaId(), row.getRecipientId(), row.getLastYear())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean moveForward(long santaId, long recipientId, int year) {
+            long pair = pack(santaId, recipientId);
+            if (pair < 0) {
+                return false;
+            }
+            if (lastYears.get(pair, Long.MIN_VALUE) < year) {
+                lastYears.put(pair, year);
+            }
+            latestYear = Math.max(latestYear, year);
+            return true;
+        }
+
+        /**
+         * Lists the pairs last given in or after the given year.
+         *
+         * @param firstYear The first remembered year.
+         * @return The pairs with their last year.
+         */
+        synchronized List<GiftHistory> givenSince(int firstYear) {
+            List<GiftHistory> remembered = new ArrayList<>();
+            lastYears.forEach((pair, lastYear) -> {
+                if (lastYear >= firstYear) {
+                    GiftHistory giftHistory = new GiftHistory();
+                    giftHistory.setSantaId(pair >>> 32);
+                    giftHistory.setRecipientId(pair & 0xFFFFFFFFL);
+                    giftHistory.setLastYear((int) lastYear);
+                    remembered.add(giftHistory);
+                }
+            });
+            return remembered;
+        }
+    }
+}
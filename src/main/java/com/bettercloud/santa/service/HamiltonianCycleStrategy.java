@@ -1,260 +1,134 @@
 package com.bettercloud.santa.service;
 
+import com.bettercloud.santa.config.SolverProperties;
 import com.bettercloud.santa.exception.AssignmentImpossibleException;
 import com.bettercloud.santa.model.FamilyAssignment;
 import com.bettercloud.santa.model.FamilyMember;
-
-import com.bettercloud.santa.model.RelationType;
+import com.bettercloud.santa.service.solver.ConstraintGraph;
+import com.bettercloud.santa.service.solver.HamiltonianSearch;
+import com.bettercloud.santa.service.solver.SearchBudget;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
-import java.util.BitSet;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Set;
+import java.util.SplittableRandom;
 
 @Service
 public class HamiltonianCycleStrategy implements AssignmentStrategy {
     private static final Logger logger = LoggerFactory.getLogger(HamiltonianCycleStrategy.class);
 
+    private final SolverProperties properties;
+    private final ConstraintRules rules;
+
+    public HamiltonianCycleStrategy(SolverProperties properties, ConstraintRules rules) {
+        this.properties = properties;
+        this.rules = rules;
+    }
+
     @Override
     public List<FamilyAssignment> generateAssignments(
             Integer year,
             List<FamilyMember> members,
-            Map<Long, Set<Long>> recentAssignments
+            Map<Long, Set<Long>> recentAssignments,
+            long seed,
+            SearchBudget budget
     ) {
-        Map<FamilyMember, List<FamilyMember>> graph = buildGraph(members, recentAssignments);
-        List<FamilyMember> cycle = findHamiltonianCycle(graph, members);
+        ConstraintGraph graph = rules.compile(members, recentAssignments);
+        int[] cycle = findHamiltonianCycle(graph, seed, budget);
 
         if (cycle == null) {
             throw new AssignmentImpossibleException("Failed to generate valid assignments due to family constraints");
         }
 
         logger.info("Successfully generated assignments using HAMILTONIAN_CYCLE strategy");
-        return createAssignmentsFromCycle(year, cycle);
+        return createAssignmentsFromCycle(year, graph, cycle, seed);
     }
 
     /**
      * Creates FamilyAssignment objects from the Hamiltonian cycle.
      *
      * @param year  The year of the assignment.
-     * @param cycle The Hamiltonian cycle of family members.
+     * @param graph The constraint graph the cycle was found in.
+     * @param cycle The Hamiltonian cycle as member indices.
+     * @param seed  The seed the cycle was found with.
      * @return A list of FamilyAssignment objects.
      */
-    private List<FamilyAssignment> createAssignmentsFromCycle(Integer year, List<FamilyMember> cycle) {
-        List<FamilyAssignment> assignments = new ArrayList<>();
-        for (int i = 0; i < cycle.size(); i++) {
-            assignments.add(new FamilyAssignment(
+    private List<FamilyAssignment> createAssignmentsFromCycle(Integer year, ConstraintGraph graph, int[] cycle, long seed) {
+        List<FamilyAssignment> assignments = new ArrayList<>(cycle.length);
+        for (int i = 0; i < cycle.length; i++) {
+            FamilyAssignment assignment = new FamilyAssignment(
                     year,
-                    cycle.get(i).getId(),
-                    cycle.get((i + 1) % cycle.size()).getId()
-            ));
+                    graph.member(cycle[i]).getId(),
+                    graph.member(cycle[(i + 1) % cycle.length]).getId()
+            );
+            assignment.setSolverSeed(seed);
+            assignments.add(assignment);
         }
         return assignments;
     }
 
     /**
-     * Builds a graph of valid assignments based on the given members and recent assignments.
+     * Finds a Hamiltonian cycle in the given graph using randomized restarts.
+     * <p>
+     * Backtracking run times are heavy-tailed, so rather than one long search from a fixed start
+     * the solver runs short searches, each from a random start with random tie-breaking, giving
+     * restart {@code i} a node budget of {@code luby(i)} units. The first restart is drawn from the
+     * seed as well, so portfolio entries racing with different seeds never repeat each other's
+     * run. The Luby budgets grow without bound, so a run eventually explores its whole tree and
+     * proves infeasibility. Every restart derives its randomness from the seed, so the result is
+     * reproducible.
      *
-     * @param members           The list of family members.
-     * @param recentAssignments A map of recent assignments.
-     * @return A graph represented as a map of FamilyMember to a list of valid recipients.
+     * @param graph  The graph of valid assignments.
+     * @param seed   The seed for start members and tie-breaking.
+     * @param budget The shared budget, checked between restarts and polled during each run.
+     * @return The member indices in cycle order, or null if no cycle exists.
      */
-    private Map<FamilyMember, List<FamilyMember>> buildGraph(
-            List<FamilyMember> members,
-            Map<Long, Set<Long>> recentAssignments
-    ) {
-        Map<FamilyMember, List<FamilyMember>> graph = new HashMap<>();
-        BitSet assigned = new BitSet(members.size());
-
-        for (FamilyMember santa : members) {
-            graph.put(santa, new ArrayList<>());
-            for (FamilyMember recipient : members) {
-                if (isValidAssignment(santa, recipient, recentAssignments, assigned, members)) {
-                    graph.get(santa).add(recipient);
-                }
-            }
+    private int[] findHamiltonianCycle(ConstraintGraph graph, long seed, SearchBudget budget) {
+        if (graph.size() == 0) {
+            return null;
         }
-        return graph;
-    }
 
-    /**
-     * Finds a Hamiltonian cycle in the given graph.
-     *
-     * @param graph   The graph of valid assignments.
-     * @param members The list of family members.
-     * @return A list representing the Hamiltonian cycle, or null if no cycle is found.
-     */
-    private List<FamilyMember> findHamiltonianCycle(
-            Map<FamilyMember, List<FamilyMember>> graph,
-            List<FamilyMember> members
-    ) {
-        List<FamilyMember> path = new ArrayList<>();
-        Set<FamilyMember> visited = new HashSet<>();
-        FamilyMember start = members.get(0);
+        HamiltonianSearch search = new HamiltonianSearch(graph);
+        SplittableRandom random = new SplittableRandom(seed);
+        long unit = properties.getRestartUnit() + graph.size();
+        long totalExpansions = 0;
 
-        path.add(start);
-        visited.add(start);
+        for (int restart = 1; ; restart++) {
+            SplittableRandom restartRandom = random.split();
+            int[] cycle = search.search(restartRandom.nextInt(graph.size()), restartRandom, luby(restart) * unit, budget);
+            totalExpansions += search.expansions();
 
-        if (dfs(graph, path, visited, members.size())) {
-            return path;
-        }
-        return null;
-    }
-
-    /**
-     * Performs a depth-first search to find a Hamiltonian cycle.
-     *
-     * @param graph        The graph of valid assignments.
-     * @param path         The current path in the search.
-     * @param visited      The set of visited family members.
-     * @param totalMembers The total number of family members.
-     * @return True if a Hamiltonian cycle is found, false otherwise.
-     */
-    private boolean dfs(
-            Map<FamilyMember, List<FamilyMember>> graph,
-            List<FamilyMember> path,
-            Set<FamilyMember> visited,
-            int totalMembers
-    ) {
-        if (path.size() == totalMembers) {
-            return isValidCycle(graph, path);
-        }
-
-        FamilyMember current = path.get(path.size() - 1);
-        return tryAllPossibleNext(graph, path, visited, totalMembers, current);
-    }
-
-    /**
-     * Checks if the current path forms a valid Hamiltonian cycle.
-     *
-     * @param graph The graph of valid assignments.
-     * @param path  The current path in the search.
-     * @return True if the path forms a valid Hamiltonian cycle, false otherwise.
-     */
-    private boolean isValidCycle(Map<FamilyMember, List<FamilyMember>> graph, List<FamilyMember> path) {
-        FamilyMember last = path.get(path.size() - 1);
-        FamilyMember first = path.get(0);
-        return graph.get(last).contains(first);
-    }
-
-    /**
-     * Tries all possible next steps in the depth-first search.
-     *
-     * @param graph        The graph of valid assignments.
-     * @param path         The current path in the search.
-     * @param visited      The set of visited family members.
-     * @param totalMembers The total number of family members.
-     * @param current      The current family member in the search.
-     * @return True if a Hamiltonian cycle is found, false otherwise.
-     */
-    private boolean tryAllPossibleNext(
-            Map<FamilyMember, List<FamilyMember>> graph,
-            List<FamilyMember> path,
-            Set<FamilyMember> visited,
-            int totalMembers,
-            FamilyMember current
-    ) {
-        for (FamilyMember next : graph.get(current)) {
-            if (!visited.contains(next)) {
-                visited.add(next);
-                path.add(next);
-                if (dfs(graph, path, visited, totalMembers)) {
-                    return true;
-                }
-                visited.remove(next);
-                path.remove(path.size() - 1);
+            if (cycle != null || search.isExhausted()) {
+                logger.debug("Hamiltonian search expanded {} nodes over {} restarts for {} members (seed {})",
+                        totalExpansions, restart, graph.size(), seed);
+                return cycle;
             }
+            budget.checkpoint();
         }
-        return false;
     }
 
     /**
-     * Checks if the given assignment is valid.
+     * Computes the i-th term of the Luby restart sequence (1, 1, 2, 1, 1, 2, 4, 1, ...).
      *
-     * @param santa             The family member acting as Santa.
-     * @param recipient         The family member receiving the gift.
-     * @param recentAssignments A map of recent assignments.
-     * @param assigned          A BitSet tracking assigned recipients.
-     * @param members           The list of family members.
-     * @return True if the assignment is valid, false otherwise.
+     * @param i The 1-based index of the term.
+     * @return The term.
      */
-    private boolean isValidAssignment(
-            FamilyMember santa,
-            FamilyMember recipient,
-            Map<Long, Set<Long>> recentAssignments,
-            BitSet assigned,
-            List<FamilyMember> members
-    ) {
-        if (isSelfAssignment(santa, recipient)) {
-            return false;
-        }
-
-        if (isRecipientAlreadyAssigned(recipient, assigned, members)) {
-            return false;
+    static long luby(int i) {
+        int k = 1;
+        while ((1L << k) - 1 < i) {
+            k++;
         }
-
-        if (isImmediateFamily(santa, recipient)) {
-            return false;
+        while (i != (1L << k) - 1) {
+            i -= (int) ((1L << (k - 1)) - 1);
+            k = 1;
+            while ((1L << k) - 1 < i) {
+                k++;
+            }
         }
-
-        return !hasRecentlyGivenTo(santa, recipient, recentAssignments);
-    }
-
-    /**
-     * Checks if the assignment is a self-assignment.
-     *
-     * @param santa     The family member acting as Santa.
-     * @param recipient The family member receiving the gift.
-     * @return True if the assignment is a self-assignment, false otherwise.
-     */
-    private boolean isSelfAssignment(FamilyMember santa, FamilyMember recipient) {
-        return santa.getId().equals(recipient.getId());
-    }
-
-    /**
-     * Checks if the recipient has already been assigned.
-     *
-     * @param recipient The family member receiving the gift.
-     * @param assigned  A BitSet tracking assigned recipients.
-     * @param members   The list of family members.
-     * @return True if the recipient has already been assigned, false otherwise.
-     */
-    private boolean isRecipientAlreadyAssigned(FamilyMember recipient, BitSet assigned, List<FamilyMember> members) {
-        return assigned != null && assigned.get(members.indexOf(recipient));
-    }
-
-    /**
-     * Checks if the assignment is within the immediate family.
-     *
-     * @param santa     The family member acting as Santa.
-     * @param recipient The family member receiving the gift.
-     * @return True if the assignment is within the immediate family, false otherwise.
-     */
-    private boolean isImmediateFamily(FamilyMember santa, FamilyMember recipient) {
-        boolean sameFamily = Objects.equals(santa.getFamilyId(), recipient.getFamilyId());
-        boolean hasImmediateFamilyEdge = santa.getRelations().stream()
-                .anyMatch(edge -> edge.getType() == RelationType.IMMEDIATE_FAMILY);
-
-        return sameFamily || hasImmediateFamilyEdge;
-    }
-
-    /**
-     * Checks if the Santa has recently given a gift to the recipient.
-     *
-     * @param santa             The family member acting as Santa.
-     * @param recipient         The family member receiving the gift.
-     * @param recentAssignments A map of recent assignments.
-     * @return True if the Santa has recently given a gift to the recipient, false otherwise.
-     */
-    private boolean hasRecentlyGivenTo(FamilyMember santa, FamilyMember recipient, Map<Long, Set<Long>> recentAssignments) {
-        Set<Long> previousRecipients = recentAssignments.getOrDefault(santa.getId(), Collections.emptySet());
-        return previousRecipients.contains(recipient.getId());
+        return 1L << (k - 1);
     }
 }
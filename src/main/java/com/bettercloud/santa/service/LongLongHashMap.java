@@ -0,0 +1,129 @@
+package com.bettercloud.santa.service;
+
+/**
+ * Open-addressing hash map from {@code long} to {@code long} with linear probing.
+ * <p>
+ * Keys and values live in two flat arrays sized to a power of two at most half full, so a lookup
+ * is a multiply, a shift and usually a single probe, with no boxing and no per-entry objects.
+ * The map only grows. It is not thread-safe: either fill it once and publish it safely before
+ * reading it from many threads, or guard every access with the same lock.
+ */
+public final class LongLongHashMap {
+    private static final long EMPTY = 0L;
+
+    private long[] keys;
+    private long[] values;
+    private int shift;
+    private int size;
+    private boolean hasEmptyKey;
+    private long emptyKeyValue;
+
+    /**
+     * @param expectedSize The number of entries the map is sized for without growing.
+     */
+    public LongLongHashMap(int expectedSize) {
+        allocate(Math.max(4, Integer.highestOneBit(Math.max(1, expectedSize) * 2 - 1) << 1));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Associates the value with the key, replacing any previous value.
+     *
+     * @param key   The key.
+     * @param value The value.
+     */
+    public void put(long key, long value) {
+        if (key == EMPTY) {
+            size += hasEmptyKey ? 0 : 1;
+            hasEmptyKey = true;
+            emptyKeyValue = value;
+            return;
+        }
+        int slot = slot(key);
+        if (keys[slot] == EMPTY) {
+            keys[slot] = key;
+            values[slot] = value;
+            if (++size * 2 > keys.length) {
+                grow();
+            }
+        } else {
+            values[slot] = value;
+        }
+    }
+
+    /**
+     * Returns the value associated with the key.
+     *
+     * @param key          The key.
+     * @param missingValue The value returned when the key is absent.
+     * @return The value, or {@code missingValue} if the key is absent.
+     */
+    public long get(long key, long missingValue) {
+        if (key == EMPTY) {
+            return hasEmptyKey ? emptyKeyValue : missingValue;
+        }
+        int slot = slot(key);
+        return keys[slot] == EMPTY ? missingValue : values[slot];
+    }
+
+    /**
+     * Passes every entry to the consumer, in no particular order.
+     *
+     * @param consumer Receives each key and its value.
+     */
+    public void forEach(EntryConsumer consumer) {
+        if (hasEmptyKey) {
+            consumer.accept(EMPTY, emptyKeyValue);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) {
+                consumer.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    /**
+     * Finds the slot holding the key, or the empty slot where it belongs.
+     *
+     * @param key A non-empty key.
+     * @return The slot index.
+     */
+    private int slot(long key) {
+        int mask = keys.length - 1;
+        int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(oldKeys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = slot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new long[capacity];
+        shift = Long.numberOfLeadingZeros(capacity - 1);
+    }
+
+    /**
+     * Receives the entries of a map without boxing them.
+     */
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(long key, long value);
+    }
+}
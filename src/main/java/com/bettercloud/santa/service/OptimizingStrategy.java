@@ -0,0 +1,115 @@
+package com.bettercloud.santa.service;
+
+import com.bettercloud.santa.config.SolverProperties;
+import com.bettercloud.santa.exception.AssignmentImpossibleException;
+import com.bettercloud.santa.model.FamilyAssignment;
+import com.bettercloud.santa.model.FamilyMember;
+import com.bettercloud.santa.service.solver.AnnealingSearch;
+import com.bettercloud.santa.service.solver.BipartiteMatcher;
+import com.bettercloud.santa.service.solver.ConstraintGraph;
+import com.bettercloud.santa.service.solver.PenaltyModel;
+import com.bettercloud.santa.service.solver.SearchBudget;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * Finds the assignment with the lowest soft penalty it can within {@code santa.solver.optimizing}.
+ * <p>
+ * The search starts from a bipartite matching and improves it by simulated annealing, so it always
+ * has a valid assignment to return and returns a better one the more time and moves it is given.
+ * Penalties cover extended family, recent gifts to the recipient's family and reciprocal pairs.
+ * With {@code relax-rules} the history and no-reciprocal rules become heavy penalties as well, so
+ * a year they make impossible still gets the assignment that breaks them least.
+ * <p>
+ * Like {@link BipartiteMatchingStrategy} the result may consist of several gift cycles.
+ */
+@Service
+public class OptimizingStrategy implements AssignmentStrategy {
+    private static final Logger logger = LoggerFactory.getLogger(OptimizingStrategy.class);
+
+    private final SolverProperties.Optimizing properties;
+    private final ConstraintRules rules;
+    private final PenaltyModel.Weights weights;
+
+    public OptimizingStrategy(SolverProperties properties, ConstraintRules rules) {
+        this.properties = properties.getOptimizing();
+        this.rules = rules;
+        SolverProperties.Penalties penalties = this.properties.getPenalties();
+        this.weights = new PenaltyModel.Weights(
+                penalties.getExtendedFamily(),
+                penalties.getRecentFamily(),
+                penalties.getReciprocal(),
+                penalties.getRelaxedRule()
+        );
+    }
+
+    @Override
+    public List<FamilyAssignment> generateAssignments(
+            Integer year,
+            List<FamilyMember> members,
+            Map<Long, Set<Long>> recentAssignments,
+            long seed,
+            SearchBudget budget
+    ) {
+        List<FamilyMember> shuffled = new ArrayList<>(members);
+        Collections.shuffle(shuffled, new Random(seed));
+        ConstraintGraph preferred = rules.compile(shuffled, recentAssignments);
+        ConstraintGraph allowed = properties.isRelaxRules() ? rules.compileRequired(shuffled, recentAssignments) : preferred;
+
+        BipartiteMatcher matcher = BipartiteMatcher.match(preferred, budget);
+        if (!matcher.isPerfect() && allowed != preferred) {
+            matcher = BipartiteMatcher.match(allowed, budget);
+        }
+        if (!matcher.isPerfect()) {
+            throw new AssignmentImpossibleException("Failed to generate valid assignments due to family constraints");
+        }
+
+        AnnealingSearch search = new AnnealingSearch(allowed, PenaltyModel.build(preferred, recentAssignments, weights), matcher.recipients());
+        SearchBudget searchBudget = budget.fork(properties.getTimeLimit(), Long.MAX_VALUE);
+        int[] recipients = search.search(new SplittableRandom(seed), maxMoves(shuffled.size()), searchBudget);
+        if (budget.isCancelled()) {
+            budget.checkpoint();
+        }
+
+        logger.info("Generated assignments using OPTIMIZING strategy with penalty {} after {} moves",
+                search.bestPenalty(), search.moves());
+        return createAssignments(year, allowed, recipients, seed);
+    }
+
+    private long maxMoves(int size) {
+        long perMember = Math.max(0, properties.getMovesPerMember());
+        return size == 0 || perMember <= Long.MAX_VALUE / size ? perMember * size : Long.MAX_VALUE;
+    }
+
+    /**
+     * Creates FamilyAssignment objects from the recipient of every santa.
+     *
+     * @param year       The year of the assignment.
+     * @param graph      The constraint graph the assignment was found in.
+     * @param recipients The recipient index of every santa.
+     * @param seed       The seed the search ran with.
+     * @return A list of FamilyAssignment objects.
+     */
+    private List<FamilyAssignment> createAssignments(Integer year, ConstraintGraph graph, int[] recipients, long seed) {
+        List<FamilyAssignment> assignments = new ArrayList<>(graph.size());
+        for (int santa = 0; santa < graph.size(); santa++) {
+            FamilyAssignment assignment = new FamilyAssignment(
+                    year,
+                    graph.member(santa).getId(),
+                    graph.member(recipients[santa]).getId()
+            );
+            assignment.setSolverSeed(seed);
+            assignments.add(assignment);
+        }
+        return assignments;
+    }
+}
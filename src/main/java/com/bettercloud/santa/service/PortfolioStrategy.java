@@ -0,0 +1,161 @@
+package com.bettercloud.santa.service;
+
+import com.bettercloud.santa.config.SolverProperties;
+import com.bettercloud.santa.exception.AssignmentImpossibleException;
+import com.bettercloud.santa.model.FamilyAssignment;
+import com.bettercloud.santa.model.FamilyMember;
+import com.bettercloud.santa.service.solver.SearchBudget;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Races several strategies on a bounded pool and returns the first valid result.
+ * <p>
+ * Entries are configured with {@code santa.solver.portfolio}; repeated entries run with different
+ * seeds, so several Hamiltonian searches explore different randomized orderings at once. As soon
+ * as one entry succeeds the others are cancelled through their shared {@link SearchBudget} and
+ * stop at their next poll. The result records the seed of the entry that won.
+ * <p>
+ * The pool is created on the first portfolio solve, so a node that never races holds no threads
+ * for it. It is shared by every solver thread; a solver thread only waits while its entries run.
+ */
+@Service
+public class PortfolioStrategy implements AssignmentStrategy {
+    private static final Logger logger = LoggerFactory.getLogger(PortfolioStrategy.class);
+
+    private final List<AssignmentStrategyType> entries;
+    private final Map<AssignmentStrategyType, AssignmentStrategy> strategies = new EnumMap<>(AssignmentStrategyType.class);
+    private final int parallelism;
+    private ForkJoinPool pool;
+    private boolean shutDown;
+
+    public PortfolioStrategy(
+            SolverProperties properties,
+            HamiltonianCycleStrategy hamiltonian,
+            BipartiteMatchingStrategy matching,
+            FamilyAggregatedStrategy family,
+            OptimizingStrategy optimizing
+    ) {
+        if (properties.getPortfolio().isEmpty() || properties.getPortfolio().contains(AssignmentStrategyType.PORTFOLIO)) {
+            throw new IllegalArgumentException("santa.solver.portfolio must list at least one strategy other than PORTFOLIO");
+        }
+        this.entries = List.copyOf(properties.getPortfolio());
+        this.strategies.put(AssignmentStrategyType.HAMILTONIAN_CYCLE, hamiltonian);
+        this.strategies.put(AssignmentStrategyType.MATCHING, matching);
+        this.strategies.put(AssignmentStrategyType.FAMILY_AGGREGATED, family);
+        this.strategies.put(AssignmentStrategyType.OPTIMIZING, optimizing);
+        this.parallelism = properties.getPortfolioParallelism();
+    }
+
+    @Override
+    public List<FamilyAssignment> generateAssignments(
+            Integer year,
+            List<FamilyMember> members,
+            Map<Long, Set<Long>> recentAssignments,
+            long seed,
+            SearchBudget budget
+    ) {
+        SearchBudget race = budget.fork();
+        CompletionService<List<FamilyAssignment>> completion = new ExecutorCompletionService<>(pool());
+        Map<Future<List<FamilyAssignment>>, String> running = new HashMap<>();
+        SplittableRandom seeds = new SplittableRandom(seed);
+
+        for (int i = 0; i < entries.size(); i++) {
+            AssignmentStrategy strategy = strategies.get(entries.get(i));
+            long entrySeed = i == 0 ? seed : seeds.nextLong();
+            running.put(
+                    completion.submit(() -> strategy.generateAssignments(year, members, recentAssignments, entrySeed, race)),
+                    entries.get(i) + "#" + i
+            );
+        }
+
+        try {
+            return awaitFirstResult(completion, running, budget);
+        } finally {
+            race.cancel();
+            running.keySet().forEach(future -> future.cancel(false));
+        }
+    }
+
+    /**
+     * Waits for the first entry to succeed.
+     *
+     * @param completion The completion service the entries were submitted to.
+     * @param running    The submitted entries and their names.
+     * @param budget     The caller's budget.
+     * @return The first successful result.
+     * @throws AssignmentImpossibleException If every entry failed and at least one proved the assignment impossible.
+     */
+    private List<FamilyAssignment> awaitFirstResult(
+            CompletionService<List<FamilyAssignment>> completion,
+            Map<Future<List<FamilyAssignment>>, String> running,
+            SearchBudget budget
+    ) {
+        List<RuntimeException> failures = new ArrayList<>();
+        for (int i = 0; i < running.size(); i++) {
+            Future<List<FamilyAssignment>> future;
+            try {
+                future = completion.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Interrupted while waiting for portfolio results");
+            }
+
+            try {
+                List<FamilyAssignment> assignments = future.get();
+                logger.info("Portfolio entry {} won after {} expansions", running.get(future), budget.expansions());
+                return assignments;
+            } catch (ExecutionException e) {
+                failures.add(e.getCause() instanceof RuntimeException cause ? cause : new IllegalStateException(e.getCause()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Interrupted while waiting for portfolio results");
+            }
+        }
+
+        budget.checkpoint();
+        throw failures.stream()
+                .filter(AssignmentImpossibleException.class::isInstance)
+                .findFirst()
+                .orElse(failures.get(0));
+    }
+
+    /**
+     * Returns the pool the entries race on, creating it on first use.
+     *
+     * @return The pool.
+     */
+    private synchronized ForkJoinPool pool() {
+        if (shutDown) {
+            throw new CancellationException("Portfolio strategy has been shut down");
+        }
+        if (pool == null) {
+            pool = new ForkJoinPool(parallelism);
+        }
+        return pool;
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        shutDown = true;
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -1,134 +1,419 @@
 package com.bettercloud.santa.service;
 
+import com.bettercloud.santa.config.SolverProperties;
+import com.bettercloud.santa.exception.SantaNotFoundException;
+import com.bettercloud.santa.model.AssignmentDetails;
 import com.bettercloud.santa.model.FamilyAssignment;
 import com.bettercloud.santa.model.FamilyMember;
+import com.bettercloud.santa.model.GiftHistory;
+import com.bettercloud.santa.model.GroupAssignments;
+import com.bettercloud.santa.model.JobState;
 import com.bettercloud.santa.repository.AssignmentRepository;
 import com.bettercloud.santa.repository.MemberRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 public class SecretSantaService {
-    private static final int HISTORY_WINDOW = 3;
+    private static final Logger logger = LoggerFactory.getLogger(SecretSantaService.class);
+    public static final long DEFAULT_GROUP_ID = 1L;
 
     private final MemberRepository memberRepository;
     private final AssignmentRepository assignmentRepository;
     private final AssignmentStrategy assignmentStrategy;
     private final AssignmentValidator validator;
+    private final AssignmentRepairer repairer;
+    private final AssignmentCache cache;
+    private final GiftHistoryIndex giftHistory;
+    private final SolverScheduler solverScheduler;
+    private final TransactionalOperator transactionalOperator;
+    private final int bulkConcurrency;
+    private final Map<GroupYear, Mono<List<FamilyAssignment>>> inFlight = new ConcurrentHashMap<>();
 
     public SecretSantaService(
             MemberRepository memberRepository,
             AssignmentRepository assignmentRepository,
             AssignmentStrategy assignmentStrategy,
-            AssignmentValidator validator
+            AssignmentValidator validator,
+            AssignmentRepairer repairer,
+            AssignmentCache cache,
+            GiftHistoryIndex giftHistory,
+            SolverScheduler solverScheduler,
+            TransactionalOperator transactionalOperator,
+            SolverProperties solverProperties
     ) {
         this.memberRepository = memberRepository;
         this.assignmentRepository = assignmentRepository;
         this.assignmentStrategy = assignmentStrategy;
         this.validator = validator;
+        this.repairer = repairer;
+        this.cache = cache;
+        this.giftHistory = giftHistory;
+        this.solverScheduler = solverScheduler;
+        this.transactionalOperator = transactionalOperator;
+        this.bulkConcurrency = solverProperties.getScheduler().getBulkConcurrency();
     }
 
     /**
-     * Creates assignments for the given year if they don't exist, otherwise returns existing assignments.
+     * Creates assignments of the default exchange group for the given year if they don't exist,
+     * otherwise returns existing assignments.
      *
      * @param year The year for which assignments are to be created.
      * @return A Flux of FamilyAssignment objects.
      */
     public Flux<FamilyAssignment> createAssignments(Integer year) {
-        return assignmentRepository.findByYearsBetween(year, year)
-                .collectList()
-                .flatMapMany(existingAssignments -> {
+        return createAssignments(DEFAULT_GROUP_ID, year);
+    }
+
+    /**
+     * Creates assignments of an exchange group for the given year if they don't exist, otherwise
+     * returns existing assignments.
+     * <p>
+     * Existing assignments are read together with their santa and recipient in a single joined query.
+     * Concurrent calls for the same group and year share one in-flight lookup and solve, and all of
+     * them receive the one persisted result.
+     *
+     * @param groupId The exchange group ID.
+     * @param year    The year for which assignments are to be created.
+     * @return A Flux of FamilyAssignment objects.
+     */
+    public Flux<FamilyAssignment> createAssignments(Long groupId, Integer year) {
+        return createAssignments(groupId, year, new GenerationProgress());
+    }
+
+    /**
+     * Creates assignments of an exchange group for the given year if they don't exist, reporting
+     * the phase and search progress of the generation.
+     * <p>
+     * A call that joins a lookup already in flight for the same group and year shares its result
+     * but not its progress, which only the call that started the lookup receives.
+     *
+     * @param groupId  The exchange group ID.
+     * @param year     The year for which assignments are to be created.
+     * @param progress Receives the phase and the solver's expansions.
+     * @return A Flux of FamilyAssignment objects.
+     */
+    public Flux<FamilyAssignment> createAssignments(Long groupId, Integer year, GenerationProgress progress) {
+        GroupYear key = new GroupYear(groupId, year);
+        return Mono.defer(() -> inFlight.computeIfAbsent(key, k -> findOrCreateAssignments(k, progress)))
+                .flatMapIterable(Function.identity());
+    }
+
+    /**
+     * Returns the assignments of an exchange group for the given year with their ETag, creating
+     * them first if they don't exist.
+     * <p>
+     * A generated year is served from {@link AssignmentCache} without touching the database until
+     * it is evicted or repaired.
+     *
+     * @param groupId The exchange group ID.
+     * @param year    The year for which assignments are to be returned.
+     * @return A Mono of the year's assignments and ETag.
+     */
+    public Mono<AssignmentCache.CachedYear> getAssignments(Long groupId, Integer year) {
+        return cache.get(groupId, year, () -> createAssignments(groupId, year).collectList());
+    }
+
+    /**
+     * Returns one santa's assignment of an exchange group for the given year, creating the year
+     * first if it doesn't exist.
+     * <p>
+     * The lookup goes through the cached year's santa index, so it costs the same whatever the
+     * size of the group; a year that is not cached is loaded and cached whole, which serves the
+     * lookups of the group's other members.
+     *
+     * @param groupId The exchange group ID.
+     * @param year    The assignment year.
+     * @param santaId The member ID of the santa.
+     * @return A Mono of the santa's FamilyAssignment.
+     * @throws SantaNotFoundException If the member is not a santa in the year.
+     */
+    public Mono<FamilyAssignment> getAssignment(Long groupId, Integer year, Long santaId) {
+        return getAssignments(groupId, year)
+                .flatMap(cachedYear -> Mono.justOrEmpty(cachedYear.findBySanta(santaId)))
+                .switchIfEmpty(Mono.error(() -> new SantaNotFoundException(
+                        "Member " + santaId + " has no assignment in group " + groupId + " for year " + year)));
+    }
+
+    /**
+     * Streams the assignments of an exchange group for the given year, creating them first if
+     * they don't exist.
+     * <p>
+     * Existing assignments are emitted row by row as the database returns them, paced by the
+     * subscriber's demand, so a large year is never held in memory as a whole. A year that has
+     * not been generated yet goes through {@link #createAssignments(Long, Integer)}.
+     *
+     * @param groupId The exchange group ID.
+     * @param year    The year for which assignments are to be streamed.
+     * @return A Flux of FamilyAssignment objects, ordered by assignment ID for an existing year.
+     */
+    public Flux<FamilyAssignment> streamAssignments(Long groupId, Integer year) {
+        return assignmentRepository.streamDetailsByYear(groupId, year)
+                .map(AssignmentDetails::toAssignment)
+                .switchIfEmpty(Flux.defer(() -> createAssignments(groupId, year)));
+    }
+
+    /**
+     * Creates the assignments of many exchange groups for the given year.
+     * <p>
+     * Groups are generated independently, at most {@code santa.solver.scheduler.bulk-concurrency}
+     * at a time, and every group's outcome is emitted as soon as it is ready, so results arrive in
+     * completion order. A group that fails is reported with its error and does not affect the others.
+     *
+     * @param groupIds The exchange group IDs; duplicates are generated once.
+     * @param year     The year for which assignments are to be created.
+     * @return A Flux with one GroupAssignments object per distinct group.
+     */
+    public Flux<GroupAssignments> createAssignments(List<Long> groupIds, Integer year) {
+        return Flux.fromIterable(new LinkedHashSet<>(groupIds))
+                .flatMap(groupId -> createAssignments(groupId, year)
+                                .collectList()
+                                .map(assignments -> GroupAssignments.succeeded(groupId, year, assignments))
+                                .onErrorResume(error -> Mono.just(GroupAssignments.failed(groupId, year, error))),
+                        bulkConcurrency);
+    }
+
+    /**
+     * Adapts a group's generated year to the current roster after members joined or left.
+     * <p>
+     * Members who left are bridged around and members who joined are spliced into existing gifts,
+     * and only the changed rows are written. When no local repair exists the year is deleted and
+     * solved again. Runs under the same advisory lock as generation. A year that was never
+     * generated is generated. The cached year and the group's gift history are dropped once the
+     * transaction has finished.
+     *
+     * @param groupId The exchange group ID.
+     * @param year    The year whose assignments are repaired.
+     * @return A Flux of the year's FamilyAssignment objects after the repair.
+     */
+    public Flux<FamilyAssignment> repairAssignments(Long groupId, Integer year) {
+        GroupYear key = new GroupYear(groupId, year);
+        return assignmentRepository.lockYear(groupId, year)
+                .then(Mono.zip(
+                        assignmentRepository.findByYearsBetween(groupId, year, year).collectList(),
+                        memberRepository.findAllWithRelations(groupId).collectList().flatMap(validator::validateParticipants),
+                        getRecentAssignments(key)))
+                .flatMap(tuple -> repairOrRegenerate(key, tuple.getT1(), tuple.getT2(), tuple.getT3()))
+                .as(transactionalOperator::transactional)
+                .doFinally(signal -> {
+                    cache.invalidate(groupId, year);
+                    giftHistory.invalidate(groupId);
+                })
+                .flatMapIterable(Function.identity());
+    }
+
+    private Mono<List<FamilyAssignment>> repairOrRegenerate(
+            GroupYear key,
+            List<FamilyAssignment> existing,
+            List<FamilyMember> members,
+            Map<Long, Set<Long>> recentAssignments
+    ) {
+        if (existing.isEmpty()) {
+            return generateValidAssignments(key, members, new GenerationProgress())
+                    .flatMap(assignments -> saveAndLoadAssignments(key, assignments, members));
+        }
+        return repairer.repair(key.year(), existing, members, recentAssignments)
+                .map(repair -> applyRepair(key, repair).then(loadExistingAssignments(key)))
+                .orElseGet(() -> {
+                    logger.info("Local repair failed for group {} year {}, solving the year again", key.groupId(), key.year());
+                    return assignmentRepository.deleteByYear(key.groupId(), key.year())
+                            .then(generateValidAssignments(key, members, new GenerationProgress()))
+                            .flatMap(assignments -> saveAndLoadAssignments(key, assignments, members));
+                });
+    }
+
+    /**
+     * Writes the changed rows of a local repair.
+     *
+     * @param key    The exchange group and year.
+     * @param repair The row changes.
+     * @return A Mono that completes once every change is written.
+     */
+    private Mono<Void> applyRepair(GroupYear key, AssignmentRepairer.Repair repair) {
+        logger.info("Repairing group {} year {}: {} deleted, {} updated, {} inserted", key.groupId(), key.year(),
+                repair.deletedIds().size(), repair.updated().size(), repair.inserted().size());
+        repair.inserted().forEach(assignment -> assignment.setGroupId(key.groupId()));
+        return assignmentRepository.deleteAllById(repair.deletedIds())
+                .thenMany(Flux.fromIterable(repair.updated())
+                        .concatMap(assignment -> assignmentRepository.updateRecipient(assignment.getId(), assignment.getRecipientId())))
+                .thenMany(assignmentRepository.insertAllIfAbsent(repair.inserted()))
+                .then();
+    }
+
+    /**
+     * Builds the shared lookup-or-create pipeline of a group's year. It runs once for all
+     * subscribers and leaves the in-flight map when it terminates, so a failure is not cached for
+     * later calls. It only removes its own entry, never a newer pipeline started for the same year.
+     *
+     * @param key      The exchange group and year.
+     * @param progress Receives the phase and the solver's expansions.
+     * @return A cached Mono of the year's assignments.
+     */
+    private Mono<List<FamilyAssignment>> findOrCreateAssignments(GroupYear key, GenerationProgress progress) {
+        progress.enter(JobState.LOADING);
+        AtomicReference<Mono<List<FamilyAssignment>>> self = new AtomicReference<>();
+        Mono<List<FamilyAssignment>> shared = loadExistingAssignments(key)
+                .flatMap(existingAssignments -> {
                     if (!existingAssignments.isEmpty()) {
-                        return loadExistingAssignments(existingAssignments);
+                        return Mono.just(existingAssignments);
                     } else {
-                        return createAndSaveNewAssignments(year);
+                        return createAndSaveNewAssignments(key, progress);
                     }
-                });
+                })
+                .doFinally(signal -> inFlight.remove(key, self.get()))
+                .cache();
+        self.set(shared);
+        return shared;
     }
 
-    private Flux<FamilyAssignment> loadExistingAssignments(List<FamilyAssignment> existingAssignments) {
-        return Flux.fromIterable(existingAssignments)
-                .flatMap(this::loadAssignmentDetails);
+    private Mono<List<FamilyAssignment>> loadExistingAssignments(GroupYear key) {
+        return assignmentRepository.findDetailsByYear(key.groupId(), key.year())
+                .map(AssignmentDetails::toAssignment)
+                .collectList();
     }
 
-    private Flux<FamilyAssignment> createAndSaveNewAssignments(Integer year) {
-        return memberRepository.findAllWithRelations()
+    /**
+     * Generates and saves the assignments of a group's year.
+     * <p>
+     * The year is solved without holding a lock or a connection, since the solve may wait for a
+     * solver thread and then take its whole budget. Saving then takes the cluster-wide advisory
+     * lock of the year in a short transaction and checks that the year is still empty; a node
+     * that lost the race returns the winner's assignments and drops its own.
+     *
+     * @param key      The exchange group and year.
+     * @param progress Receives the phase and the solver's expansions.
+     * @return A Mono of the persisted FamilyAssignment objects with details loaded.
+     */
+    private Mono<List<FamilyAssignment>> createAndSaveNewAssignments(GroupYear key, GenerationProgress progress) {
+        return memberRepository.findAllWithRelations(key.groupId())
                 .collectList()
                 .flatMap(validator::validateParticipants)
-                .flatMap(members -> generateValidAssignments(year, members))
-                .flatMapMany(this::saveAndLoadAssignments);
+                .flatMap(members -> generateValidAssignments(key, members, progress)
+                        .doOnNext(assignments -> progress.enter(JobState.SAVING))
+                        .flatMap(assignments -> saveIfStillEmpty(key, assignments, members)));
     }
 
     /**
-     * Saves the assignments and loads their details.
+     * Saves a solved year under its advisory lock unless another node saved it first.
      *
-     * @param assignments The list of FamilyAssignment objects to be saved.
-     * @return A Flux of FamilyAssignment objects with details loaded.
+     * @param key         The exchange group and year.
+     * @param assignments The solved assignments.
+     * @param members     The members the assignments were generated for.
+     * @return A Mono of the year's persisted FamilyAssignment objects with details loaded.
      */
-    private Flux<FamilyAssignment> saveAndLoadAssignments(List<FamilyAssignment> assignments) {
-        return assignmentRepository.saveAll(assignments)
-                .flatMap(this::loadAssignmentDetails);
+    private Mono<List<FamilyAssignment>> saveIfStillEmpty(GroupYear key, List<FamilyAssignment> assignments, List<FamilyMember> members) {
+        return assignmentRepository.lockYear(key.groupId(), key.year())
+                .then(loadExistingAssignments(key))
+                .flatMap(existingAssignments -> existingAssignments.isEmpty()
+                        ? saveAndLoadAssignments(key, assignments, members)
+                        : Mono.just(existingAssignments))
+                .as(transactionalOperator::transactional)
+                .doOnNext(saved -> giftHistory.record(key.groupId(), saved))
+                .onErrorResume(DuplicateKeyException.class, e -> loadExistingAssignments(key));
     }
 
     /**
-     * Generates valid assignments for the given year and list of members.
+     * Saves the assignments and attaches the santa and recipient from the members already in memory.
+     * <p>
+     * Rows are inserted in multi-row batches with {@code ON CONFLICT DO NOTHING} against the unique
+     * {@code (group_id, assignment_year, giver_id)} index. If a row for the year was written without the
+     * advisory lock, the insert fails with a {@link DuplicateKeyException} so that the caller rolls
+     * back and returns the stored assignments instead.
      *
-     * @param year    The year for which assignments are to be generated.
-     * @param members The list of family members.
-     * @return A Mono containing the list of valid FamilyAssignment objects.
+     * @param key         The exchange group and year of the assignments.
+     * @param assignments The list of FamilyAssignment objects to be saved.
+     * @param members     The members the assignments were generated for.
+     * @return A Mono of the persisted FamilyAssignment objects with details loaded.
      */
-    private Mono<List<FamilyAssignment>> generateValidAssignments(Integer year, List<FamilyMember> members) {
-        return getRecentAssignments(year)
-                .map(recentAssignments ->
-                        assignmentStrategy.generateAssignments(year, members, recentAssignments));
+    private Mono<List<FamilyAssignment>> saveAndLoadAssignments(
+            GroupYear key,
+            List<FamilyAssignment> assignments,
+            List<FamilyMember> members
+    ) {
+        Map<Long, FamilyMember> membersById = members.stream()
+                .collect(Collectors.toMap(FamilyMember::getId, Function.identity()));
+        assignments.forEach(assignment -> assignment.setGroupId(key.groupId()));
+        return assignmentRepository.insertAllIfAbsent(assignments)
+                .collectList()
+                .flatMap(saved -> saved.size() == assignments.size()
+                        ? Mono.just(saved)
+                        : Mono.<List<FamilyAssignment>>error(new DuplicateKeyException(
+                                "Assignments for group " + key.groupId() + " and year " + key.year() + " were saved concurrently")))
+                .map(saved -> {
+                    saved.forEach(assignment -> loadAssignmentDetails(assignment, membersById));
+                    return saved;
+                });
     }
 
     /**
-     * Retrieves recent assignments within the history window.
+     * Generates valid assignments for the given year and list of members.
+     * <p>
+     * The feasibility check and the search are CPU-bound, so they run on the solver scheduler
+     * rather than on the thread that delivered the history.
      *
-     * @param year The current year.
-     * @return A Mono containing a map of recent assignments.
+     * @param key      The exchange group and year for which assignments are to be generated.
+     * @param members  The list of family members.
+     * @param progress Enters the solving phase once a solver thread picks the work up and receives
+     *                 the solver's expansions.
+     * @return A Mono containing the list of valid FamilyAssignment objects.
      */
-    private Mono<Map<Long, Set<Long>>> getRecentAssignments(Integer year) {
-        return assignmentRepository.findByYearsBetween(year - HISTORY_WINDOW, year - 1)
-                .collectList()
-                .map(this::groupAssignmentsByGiver);
+    private Mono<List<FamilyAssignment>> generateValidAssignments(GroupYear key, List<FamilyMember> members, GenerationProgress progress) {
+        return getRecentAssignments(key)
+                .flatMap(recentAssignments -> solverScheduler.submit(() -> {
+                    progress.enter(JobState.SOLVING);
+                    return validator.validateFeasibility(members, recentAssignments)
+                            .map(feasibleMembers -> assignmentStrategy.generateAssignments(
+                                    key.year(), feasibleMembers, recentAssignments,
+                                    ThreadLocalRandom.current().nextLong(), progress.budget()));
+                }));
     }
 
     /**
-     * Groups assignments by the giver's ID.
+     * Retrieves the group's pairs that may not be repeated in the year from {@link GiftHistoryIndex}.
      *
-     * @param history The list of past FamilyAssignment objects.
-     * @return A map of giver IDs to sets of recipient IDs.
+     * @param key The exchange group and current year.
+     * @return A Mono containing a map of giver IDs to the recipients they may not give to.
      */
-    private Map<Long, Set<Long>> groupAssignmentsByGiver(List<FamilyAssignment> history) {
-        return history.stream()
+    private Mono<Map<Long, Set<Long>>> getRecentAssignments(GroupYear key) {
+        return giftHistory.find(key.groupId(), key.year())
+                .flatMapIterable(Function.identity())
                 .collect(Collectors.groupingBy(
-                        FamilyAssignment::getSantaId,
-                        Collectors.mapping(FamilyAssignment::getRecipientId, Collectors.toSet())
+                        GiftHistory::getSantaId,
+                        Collectors.mapping(GiftHistory::getRecipientId, Collectors.toSet())
                 ));
     }
 
     /**
      * Loads the details of a given assignment.
      *
-     * @param assignment The FamilyAssignment object.
-     * @return A Mono containing the FamilyAssignment object with details loaded.
-     */
-    private Mono<FamilyAssignment> loadAssignmentDetails(FamilyAssignment assignment) {
-        return Mono.zip(
-                memberRepository.findById(assignment.getSantaId()),
-                memberRepository.findById(assignment.getRecipientId())
-        ).map(tuple -> {
-            assignment.setSanta(tuple.getT1());
-            assignment.setRecipient(tuple.getT2());
-            return assignment;
-        });
+     * @param assignment  The FamilyAssignment object.
+     * @param membersById The members of the pool, keyed by ID.
+     * @return The FamilyAssignment object with details loaded.
+     */
+    private FamilyAssignment loadAssignmentDetails(FamilyAssignment assignment, Map<Long, FamilyMember> membersById) {
+        assignment.setSanta(membersById.get(assignment.getSantaId()));
+        assignment.setRecipient(membersById.get(assignment.getRecipientId()));
+        return assignment;
+    }
+
+    /**
+     * The partition a set of assignments belongs to.
+     */
+    private record GroupYear(Long groupId, Integer year) {
     }
 }
@@ -0,0 +1,100 @@
+package com.bettercloud.santa.service;
+
+import com.bettercloud.santa.config.SolverProperties;
+import com.bettercloud.santa.exception.SolverOverloadedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs CPU-bound solving on a fixed pool of dedicated threads, away from the threads that serve
+ * requests and database results.
+ * <p>
+ * At most {@code threads + queueCapacity} solves are admitted at once; further requests fail fast
+ * with a {@link SolverOverloadedException} carrying the configured Retry-After delay instead of
+ * piling up. The time every admitted solve waits for a thread is recorded as
+ * {@code santa.solver.queue.wait}, next to the queue depth, active solves and rejections.
+ */
+@Component
+public class SolverScheduler {
+    private final ThreadPoolExecutor executor;
+    private final Scheduler scheduler;
+    private final Semaphore admissions;
+    private final Duration retryAfter;
+    private final Timer queueWait;
+    private final Counter rejections;
+
+    public SolverScheduler(SolverProperties properties, MeterRegistry registry) {
+        SolverProperties.Scheduler config = properties.getScheduler();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                config.getThreads(), config.getThreads(),
+                0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "santa-solver-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+        );
+        this.scheduler = Schedulers.fromExecutorService(executor, "santa-solver");
+        this.admissions = new Semaphore(config.getThreads() + config.getQueueCapacity());
+        this.retryAfter = config.getRetryAfter();
+
+        this.queueWait = Timer.builder("santa.solver.queue.wait")
+                .description("Time a solve waits for a solver thread")
+                .register(registry);
+        this.rejections = Counter.builder("santa.solver.rejected")
+                .description("Solves rejected because the queue was full")
+                .register(registry);
+        Gauge.builder("santa.solver.queue.depth", executor, e -> e.getQueue().size())
+                .description("Solves waiting for a solver thread")
+                .register(registry);
+        Gauge.builder("santa.solver.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Solves currently running")
+                .register(registry);
+    }
+
+    /**
+     * Runs the work on a solver thread if there is room for it.
+     *
+     * @param work Creates the solving Mono; invoked on the solver thread.
+     * @param <T>  The result type.
+     * @return A Mono of the result, or a {@link SolverOverloadedException} error if the queue is full.
+     */
+    public <T> Mono<T> submit(Supplier<Mono<T>> work) {
+        return Mono.defer(() -> {
+            if (!admissions.tryAcquire()) {
+                rejections.increment();
+                return Mono.error(new SolverOverloadedException(
+                        "Too many assignment requests are being solved, please retry later", retryAfter));
+            }
+            long enqueued = System.nanoTime();
+            return Mono.defer(() -> {
+                        queueWait.record(System.nanoTime() - enqueued, TimeUnit.NANOSECONDS);
+                        return work.get();
+                    })
+                    .subscribeOn(scheduler)
+                    .doFinally(signal -> admissions.release());
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.dispose();
+    }
+}
@@ -0,0 +1,173 @@
+package com.bettercloud.santa.service.solver;
+
+import java.util.SplittableRandom;
+
+/**
+ * Simulated annealing over complete assignments, minimizing the {@link PenaltyModel} penalty.
+ * <p>
+ * The search starts from any perfect matching of the graph and only ever swaps the recipients of
+ * two santas where both new pairs are edges of the graph, so every state it visits is a valid
+ * assignment and it can be stopped at any time. A swap changes the price of at most four santas
+ * (the two swapped and their own santas, whose reciprocity may change), so a move is priced in
+ * constant time. Worse states are accepted with probability {@code exp(-delta / T)} while the
+ * temperature cools geometrically over the move budget; the best state seen is kept.
+ * <p>
+ * The cooling schedule depends on the move budget only, so a run that spends its whole budget is
+ * reproducible from its seed; a run stopped earlier returns the best state found so far.
+ */
+public final class AnnealingSearch {
+    private static final int POLL_INTERVAL = 1024;
+    private static final double FINAL_TEMPERATURE = 0.05;
+
+    private final ConstraintGraph graph;
+    private final PenaltyModel penalties;
+    private final int size;
+    private final int reciprocal;
+    private final int[] recipientOf;
+    private final int[] santaOf;
+    private final int[] best;
+    private long penalty;
+    private long bestPenalty;
+    private long moves;
+
+    /**
+     * @param graph      The graph of allowed pairs.
+     * @param penalties  The penalties of the graph's pairs.
+     * @param recipients The starting assignment, as the recipient index of every santa; each pair
+     *                   must be an edge of the graph.
+     */
+    public AnnealingSearch(ConstraintGraph graph, PenaltyModel penalties, int[] recipients) {
+        this.graph = graph;
+        this.penalties = penalties;
+        this.size = graph.size();
+        this.reciprocal = penalties.weights().reciprocal();
+        this.recipientOf = recipients.clone();
+        this.santaOf = new int[size];
+        for (int santa = 0; santa < size; santa++) {
+            santaOf[recipientOf[santa]] = santa;
+        }
+        this.best = recipientOf.clone();
+        this.penalty = totalPenalty();
+        this.bestPenalty = penalty;
+    }
+
+    /**
+     * Returns the penalty of the best assignment found.
+     *
+     * @return The best penalty.
+     */
+    public long bestPenalty() {
+        return bestPenalty;
+    }
+
+    /**
+     * Returns the number of moves tried by the last search.
+     *
+     * @return The move count.
+     */
+    public long moves() {
+        return moves;
+    }
+
+    /**
+     * Anneals until the move budget is spent, the budget stops or no penalty is left.
+     *
+     * @param random   The source of moves and acceptance draws.
+     * @param maxMoves The moves the cooling schedule spans.
+     * @param budget   The shared budget; moves are reported to it as expansions.
+     * @return The best assignment found, as the recipient index of every santa.
+     */
+    public int[] search(SplittableRandom random, long maxMoves, SearchBudget budget) {
+        double startTemperature = 2.0 * Math.max(1, penalties.weights().largestPreference());
+        double cooling = Math.pow(FINAL_TEMPERATURE / startTemperature, 1.0 / Math.max(1, maxMoves));
+        double temperature = startTemperature;
+        long reported = 0;
+
+        for (moves = 0; moves < maxMoves && bestPenalty > 0 && size > 2; moves++, temperature *= cooling) {
+            if (moves - reported == POLL_INTERVAL) {
+                budget.recordExpansions(POLL_INTERVAL);
+                reported = moves;
+                if (budget.shouldStop()) {
+                    break;
+                }
+            }
+
+            int a = random.nextInt(size);
+            int r = randomRecipient(a, random);
+            int b = santaOf[r];
+            if (b == a || !graph.hasEdge(b, recipientOf[a])) {
+                continue;
+            }
+
+            long before = localPenalty(a, b);
+            swap(a, b);
+            long delta = localPenalty(a, b) - before;
+            if (delta <= 0 || random.nextDouble() < Math.exp(-delta / temperature)) {
+                penalty += delta;
+                if (penalty < bestPenalty) {
+                    bestPenalty = penalty;
+                    System.arraycopy(recipientOf, 0, best, 0, size);
+                }
+            } else {
+                swap(a, b);
+            }
+        }
+        budget.recordExpansions(moves - reported);
+        return best.clone();
+    }
+
+    /**
+     * Picks a recipient of the santa, starting the scan at a random member.
+     *
+     * @param santa  The santa index.
+     * @param random The source of the starting member.
+     * @return A recipient index; the santa always has at least their current one.
+     */
+    private int randomRecipient(int santa, SplittableRandom random) {
+        int recipient = graph.nextRecipient(santa, random.nextInt(size));
+        return recipient >= 0 ? recipient : graph.nextRecipient(santa, 0);
+    }
+
+    private void swap(int a, int b) {
+        int recipientOfA = recipientOf[a];
+        recipientOf[a] = recipientOf[b];
+        recipientOf[b] = recipientOfA;
+        santaOf[recipientOf[a]] = a;
+        santaOf[recipientOf[b]] = b;
+    }
+
+    /**
+     * Sums the penalties a swap of {@code a} and {@code b} can change: theirs and those of their
+     * santas. The santas of {@code a} and {@code b} do not change when their recipients are swapped.
+     *
+     * @param a The first santa.
+     * @param b The second santa.
+     * @return The penalty of the affected santas.
+     */
+    private long localPenalty(int a, int b) {
+        long total = santaPenalty(a) + santaPenalty(b);
+        int x = santaOf[a];
+        int y = santaOf[b];
+        if (x != a && x != b) {
+            total += santaPenalty(x);
+        }
+        if (y != a && y != b && y != x) {
+            total += santaPenalty(y);
+        }
+        return total;
+    }
+
+    private int santaPenalty(int santa) {
+        int recipient = recipientOf[santa];
+        int pairPenalty = penalties.pairPenalty(santa, recipient);
+        return recipientOf[recipient] == santa ? pairPenalty + reciprocal : pairPenalty;
+    }
+
+    private long totalPenalty() {
+        long total = 0;
+        for (int santa = 0; santa < size; santa++) {
+            total += santaPenalty(santa);
+        }
+        return total;
+    }
+}
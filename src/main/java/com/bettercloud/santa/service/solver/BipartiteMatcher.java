@@ -0,0 +1,208 @@
+package com.bettercloud.santa.service.solver;
+
+import java.util.Arrays;
+
+/**
+ * Hopcroft-Karp maximum matching between santas and recipients of a {@link ConstraintGraph}.
+ * <p>
+ * Santas form the left side and recipients the right side of the bipartite graph. A perfect
+ * matching is a permutation in which every member gives exactly once and receives exactly
+ * once; because the graph never contains self edges it is a derangement made of one or more
+ * gift cycles. Runs in O(E * sqrt(V)) and uses explicit stacks, so it is safe for very large
+ * pools.
+ */
+public final class BipartiteMatcher {
+    private static final int UNMATCHED = -1;
+    private static final int INFINITE = Integer.MAX_VALUE;
+
+    private final ConstraintGraph graph;
+    private final int size;
+    private final int[] recipientOf;
+    private final int[] santaOf;
+    private final int[] distance;
+    private final int[] queue;
+    private final int[] cursor;
+    private final int[] stack;
+    private final int[] chosen;
+    private int matched;
+
+    private BipartiteMatcher(ConstraintGraph graph) {
+        this.graph = graph;
+        this.size = graph.size();
+        this.recipientOf = new int[size];
+        this.santaOf = new int[size];
+        this.distance = new int[size];
+        this.queue = new int[size];
+        this.cursor = new int[size];
+        this.stack = new int[size];
+        this.chosen = new int[size];
+        Arrays.fill(recipientOf, UNMATCHED);
+        Arrays.fill(santaOf, UNMATCHED);
+    }
+
+    /**
+     * Computes a maximum matching of the graph.
+     *
+     * @param graph The constraint graph.
+     * @return The matcher holding the matching.
+     */
+    public static BipartiteMatcher match(ConstraintGraph graph) {
+        return match(graph, SearchBudget.unlimited());
+    }
+
+    /**
+     * Computes a maximum matching of the graph, checking the budget between phases.
+     *
+     * @param graph  The constraint graph.
+     * @param budget The shared budget.
+     * @return The matcher holding the matching.
+     * @throws java.util.concurrent.CancellationException If the budget is cancelled.
+     */
+    public static BipartiteMatcher match(ConstraintGraph graph, SearchBudget budget) {
+        BipartiteMatcher matcher = new BipartiteMatcher(graph);
+        matcher.run(budget);
+        return matcher;
+    }
+
+    public boolean isPerfect() {
+        return matched == size;
+    }
+
+    public int matchedCount() {
+        return matched;
+    }
+
+    /**
+     * Returns the recipient matched to every santa.
+     *
+     * @return An array indexed by santa, holding the recipient index or -1 if unmatched.
+     */
+    public int[] recipients() {
+        return recipientOf.clone();
+    }
+
+    public int recipientOf(int santa) {
+        return recipientOf[santa];
+    }
+
+    public int santaOf(int recipient) {
+        return santaOf[recipient];
+    }
+
+    /**
+     * Finds a set of santas that violates Hall's condition, proving no perfect matching exists.
+     * <p>
+     * Starting from every unmatched santa, follows alternating paths (any edge to a recipient,
+     * then the matched edge back to a santa). The santas reached can only give to the recipients
+     * reached, and all of those are matched to other reached santas, so the set has strictly
+     * fewer recipients than santas.
+     *
+     * @return The santa indices of the violating set, or an empty array if the matching is perfect.
+     */
+    public int[] hallViolator() {
+        boolean[] reached = new boolean[size];
+        int head = 0;
+        int tail = 0;
+        for (int santa = 0; santa < size; santa++) {
+            if (recipientOf[santa] == UNMATCHED) {
+                reached[santa] = true;
+                queue[tail++] = santa;
+            }
+        }
+
+        while (head < tail) {
+            int santa = queue[head++];
+            for (int r = graph.nextRecipient(santa, 0); r >= 0; r = graph.nextRecipient(santa, r + 1)) {
+                int next = santaOf[r];
+                if (next != UNMATCHED && !reached[next]) {
+                    reached[next] = true;
+                    queue[tail++] = next;
+                }
+            }
+        }
+        return Arrays.copyOf(queue, tail);
+    }
+
+    private void run(SearchBudget budget) {
+        while (buildLayers()) {
+            budget.checkpoint();
+            for (int santa = 0; santa < size; santa++) {
+                cursor[santa] = 0;
+            }
+            for (int santa = 0; santa < size; santa++) {
+                if (recipientOf[santa] == UNMATCHED && augment(santa)) {
+                    matched++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Breadth-first search from all free santas, layering santas by alternating path length.
+     *
+     * @return True if some free recipient is reachable, false otherwise.
+     */
+    private boolean buildLayers() {
+        int head = 0;
+        int tail = 0;
+        for (int santa = 0; santa < size; santa++) {
+            if (recipientOf[santa] == UNMATCHED) {
+                distance[santa] = 0;
+                queue[tail++] = santa;
+            } else {
+                distance[santa] = INFINITE;
+            }
+        }
+
+        boolean reachedFree = false;
+        while (head < tail) {
+            int santa = queue[head++];
+            for (int r = graph.nextRecipient(santa, 0); r >= 0; r = graph.nextRecipient(santa, r + 1)) {
+                int next = santaOf[r];
+                if (next == UNMATCHED) {
+                    reachedFree = true;
+                } else if (distance[next] == INFINITE) {
+                    distance[next] = distance[santa] + 1;
+                    queue[tail++] = next;
+                }
+            }
+        }
+        return reachedFree;
+    }
+
+    /**
+     * Depth-first search for an augmenting path along the layers, flipping it when found.
+     *
+     * @param root The free santa to start from.
+     * @return True if the matching was augmented, false otherwise.
+     */
+    private boolean augment(int root) {
+        int top = 0;
+        stack[0] = root;
+        while (top >= 0) {
+            int santa = stack[top];
+            int recipient = graph.nextRecipient(santa, cursor[santa]);
+            if (recipient < 0) {
+                distance[santa] = INFINITE;
+                top--;
+                continue;
+            }
+            cursor[santa] = recipient + 1;
+
+            int next = santaOf[recipient];
+            if (next == UNMATCHED) {
+                chosen[top] = recipient;
+                for (int level = top; level >= 0; level--) {
+                    recipientOf[stack[level]] = chosen[level];
+                    santaOf[chosen[level]] = stack[level];
+                }
+                return true;
+            }
+            if (distance[next] == distance[santa] + 1) {
+                chosen[top] = recipient;
+                stack[++top] = next;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,42 @@
+package com.bettercloud.santa.service.solver;
+
+import com.bettercloud.santa.model.FamilyMember;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Forbids an explicit list of santa -> recipient pairs.
+ */
+public final class BlocklistRule implements ConstraintRule {
+    private final Map<Long, Set<Long>> blocked;
+
+    /**
+     * @param blocked A map of santa IDs to the recipient IDs they may never give to.
+     */
+    public BlocklistRule(Map<Long, Set<Long>> blocked) {
+        this.blocked = Map.copyOf(blocked);
+    }
+
+    @Override
+    public void apply(RuleContext context) {
+        blocked.forEach((santaId, recipientIds) -> {
+            int santa = context.indexOf(santaId);
+            if (santa < 0) {
+                return;
+            }
+            for (Long recipientId : recipientIds) {
+                int recipient = context.indexOf(recipientId);
+                if (recipient >= 0) {
+                    context.exclude(santa, recipient);
+                }
+            }
+        });
+    }
+
+    @Override
+    public boolean forbids(FamilyMember santa, FamilyMember recipient, Map<Long, Set<Long>> recentAssignments) {
+        return blocked.getOrDefault(santa.getId(), Collections.emptySet()).contains(recipient.getId());
+    }
+}
@@ -0,0 +1,155 @@
+package com.bettercloud.santa.service.solver;
+
+import com.bettercloud.santa.model.FamilyMember;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compact, int-indexed graph of the valid santa -> recipient pairs for a single solve.
+ * <p>
+ * Members are mapped to dense indices {@code 0..n-1} in list order and every row of the
+ * adjacency matrix is stored as a run of {@code long} words in one flat array. Edge tests,
+ * degree counts and neighbour iteration are plain bit operations, so the solvers never hash
+ * a {@link FamilyMember} or box an index once the graph is built. The forbidden pairs come from
+ * {@link ConstraintRule}s, each compiled into the rows once per build.
+ */
+public final class ConstraintGraph {
+    /**
+     * The rules every solve applies: no gifts within the family, no repeats within the history window.
+     */
+    public static final List<ConstraintRule> DEFAULT_RULES = List.of(new SameFamilyRule(), new RecentHistoryRule());
+
+    private final FamilyMember[] members;
+    private final int[] families;
+    private final int size;
+    private final int words;
+    private final long[] adjacency;
+
+    ConstraintGraph(FamilyMember[] members, int[] families, long[] adjacency) {
+        this.members = members;
+        this.families = families;
+        this.size = members.length;
+        this.words = wordsFor(members.length);
+        this.adjacency = adjacency;
+    }
+
+    /**
+     * Builds the graph of valid assignments for the given members under the default rules.
+     * <p>
+     * A santa may give to every member outside their own family, unless they gave to that
+     * recipient within the history window. Members sharing a {@code familyId} are immediate
+     * family, so an {@code IMMEDIATE_FAMILY} relation is covered by the family rule.
+     *
+     * @param members           The list of family members, in index order.
+     * @param recentAssignments A map of giver IDs to recently assigned recipient IDs.
+     * @return The constraint graph.
+     */
+    public static ConstraintGraph build(List<FamilyMember> members, Map<Long, Set<Long>> recentAssignments) {
+        return build(members, recentAssignments, DEFAULT_RULES);
+    }
+
+    /**
+     * Builds the graph of valid assignments for the given members, compiling every rule into the
+     * bitset rows once.
+     *
+     * @param members           The list of family members, in index order.
+     * @param recentAssignments A map of giver IDs to recently assigned recipient IDs.
+     * @param rules             The rules to apply; self-assignment is always excluded.
+     * @return The constraint graph.
+     */
+    public static ConstraintGraph build(
+            List<FamilyMember> members,
+            Map<Long, Set<Long>> recentAssignments,
+            List<ConstraintRule> rules
+    ) {
+        RuleContext context = new RuleContext(members, recentAssignments);
+        for (ConstraintRule rule : rules) {
+            rule.apply(context);
+        }
+        return context.toGraph();
+    }
+
+    public static int wordsFor(int bits) {
+        return (bits + 63) >>> 6;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int words() {
+        return words;
+    }
+
+    public FamilyMember member(int index) {
+        return members[index];
+    }
+
+    public int family(int index) {
+        return families[index];
+    }
+
+    /**
+     * Checks whether the santa may give to the recipient.
+     *
+     * @param santa     The santa index.
+     * @param recipient The recipient index.
+     * @return True if the pair is a valid assignment, false otherwise.
+     */
+    public boolean hasEdge(int santa, int recipient) {
+        return (adjacency[santa * words + (recipient >>> 6)] & (1L << recipient)) != 0;
+    }
+
+    /**
+     * Returns one word of a santa's row.
+     *
+     * @param santa The santa index.
+     * @param word  The word index within the row.
+     * @return The recipients covered by that word, as a bit mask.
+     */
+    public long word(int santa, int word) {
+        return adjacency[santa * words + word];
+    }
+
+    /**
+     * Finds the next valid recipient of the santa at or after the given index.
+     *
+     * @param santa The santa index.
+     * @param from  The first recipient index to consider.
+     * @return The next recipient index, or -1 if there is none.
+     */
+    public int nextRecipient(int santa, int from) {
+        if (from >= size) {
+            return -1;
+        }
+        int offset = santa * words;
+        int w = from >>> 6;
+        long bits = adjacency[offset + w] & (-1L << from);
+        while (true) {
+            if (bits != 0) {
+                return (w << 6) + Long.numberOfTrailingZeros(bits);
+            }
+            if (++w == words) {
+                return -1;
+            }
+            bits = adjacency[offset + w];
+        }
+    }
+
+    /**
+     * Counts the valid recipients of the santa.
+     *
+     * @param santa The santa index.
+     * @return The out-degree of the santa.
+     */
+    public int outDegree(int santa) {
+        int offset = santa * words;
+        int degree = 0;
+        for (int w = 0; w < words; w++) {
+            degree += Long.bitCount(adjacency[offset + w]);
+        }
+        return degree;
+    }
+}
@@ -0,0 +1,44 @@
+package com.bettercloud.santa.service.solver;
+
+import com.bettercloud.santa.model.FamilyMember;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A rule that forbids some santa -> recipient pairs.
+ * <p>
+ * A rule is compiled once per solve by {@link #apply(RuleContext)}, which clears the forbidden
+ * pairs from the graph's bitset rows, preferably a whole row at a time with a mask, so adding a
+ * rule adds no per-pair call to the O(n²) graph build. Strategies that never build the graph and
+ * only test the few pairs they change ask {@link #forbids} instead; both must agree.
+ */
+public interface ConstraintRule {
+
+    /**
+     * Removes the pairs this rule forbids from the graph under construction.
+     *
+     * @param context The graph under construction.
+     */
+    void apply(RuleContext context);
+
+    /**
+     * Checks a single pair.
+     *
+     * @param santa             The family member acting as Santa.
+     * @param recipient         The family member receiving the gift.
+     * @param recentAssignments A map of giver IDs to recently assigned recipient IDs.
+     * @return True if the rule forbids the pair, false otherwise.
+     */
+    boolean forbids(FamilyMember santa, FamilyMember recipient, Map<Long, Set<Long>> recentAssignments);
+
+    /**
+     * Tells whether the rule is a preference that an optimizing strategy may break at a penalty
+     * when no assignment satisfies it, rather than a requirement.
+     *
+     * @return True if the rule may be relaxed, false otherwise.
+     */
+    default boolean isRelaxable() {
+        return false;
+    }
+}
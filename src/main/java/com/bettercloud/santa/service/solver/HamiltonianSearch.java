@@ -0,0 +1,364 @@
+package com.bettercloud.santa.service.solver;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Iterative, pruned depth-first search for a Hamiltonian cycle in a {@link ConstraintGraph}.
+ * <p>
+ * The search keeps its own stack, so its depth is bounded by the heap rather than the thread
+ * stack. At every step it
+ * <ul>
+ *     <li>tries the candidate with the fewest remaining onward options first (Warnsdorff's rule),</li>
+ *     <li>rejects a move that leaves an unvisited member with no remaining way in or out,</li>
+ *     <li>periodically checks that every unvisited member, and the start, is still reachable.</li>
+ * </ul>
+ * The remaining in/out degrees are maintained incrementally, so both the ordering and the
+ * dead-end test cost only the rows touched by the move.
+ * <p>
+ * One instance can run many searches over the same graph, each with its own start member,
+ * seeded tie-breaking and node-expansion budget, which is what restart policies build on.
+ */
+public final class HamiltonianSearch {
+    private static final int POLL_INTERVAL = 1024;
+
+    private final ConstraintGraph graph;
+    private final int size;
+    private final int words;
+    private final long[] predecessors;
+    private final int[] outDegree;
+    private final int[] inDegree;
+    private final long[] unvisited;
+    private final int[] path;
+    private final int[] outRemaining;
+    private final int[] inRemaining;
+    private final long[][] tried;
+    private final int[] queue;
+    private final long[] reached;
+    private final int reachabilityInterval;
+    private int start;
+    private SplittableRandom random;
+    private SearchBudget budget;
+    private long expansions;
+    private long reportedExpansions;
+    private boolean exhausted;
+
+    /**
+     * @param graph The graph of valid assignments.
+     */
+    public HamiltonianSearch(ConstraintGraph graph) {
+        this.graph = graph;
+        this.size = graph.size();
+        this.words = graph.words();
+        this.predecessors = new long[size * words];
+        this.outDegree = new int[size];
+        this.inDegree = new int[size];
+        this.unvisited = new long[words];
+        this.path = new int[size];
+        this.outRemaining = new int[size];
+        this.inRemaining = new int[size];
+        this.tried = new long[size][];
+        this.queue = new int[size];
+        this.reached = new long[words];
+        this.reachabilityInterval = Math.max(1, words);
+
+        for (int santa = 0; santa < size; santa++) {
+            for (int r = graph.nextRecipient(santa, 0); r >= 0; r = graph.nextRecipient(santa, r + 1)) {
+                predecessors[r * words + (santa >>> 6)] |= 1L << santa;
+                outDegree[santa]++;
+                inDegree[r]++;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of nodes expanded by the last search.
+     *
+     * @return The node-expansion count.
+     */
+    public long expansions() {
+        return expansions;
+    }
+
+    /**
+     * Tells whether the last search explored its whole tree, i.e. a null result proves that no
+     * Hamiltonian cycle exists rather than that the budget ran out.
+     *
+     * @return True if the last search was exhaustive, false otherwise.
+     */
+    public boolean isExhausted() {
+        return exhausted;
+    }
+
+    /**
+     * Runs an unbounded search from member 0 with lowest-index tie-breaking.
+     *
+     * @return The member indices in cycle order, or null if no Hamiltonian cycle exists.
+     */
+    public int[] search() {
+        return search(0, null, Long.MAX_VALUE, SearchBudget.unlimited());
+    }
+
+    /**
+     * Runs a search.
+     *
+     * @param start         The member index the cycle starts from.
+     * @param random        Source for breaking ties between equally constrained candidates, or null
+     *                      to prefer the lowest index.
+     * @param maxExpansions The node-expansion budget of this run.
+     * @param budget        The shared budget; expansions are reported to it and the run stops
+     *                      early once it is cancelled or used up.
+     * @return The member indices in cycle order, or null if no cycle was found within the budget.
+     */
+    public int[] search(int start, SplittableRandom random, long maxExpansions, SearchBudget budget) {
+        this.start = start;
+        this.random = random;
+        this.budget = budget;
+        this.expansions = 0;
+        this.reportedExpansions = 0;
+        this.exhausted = false;
+        try {
+            return run(maxExpansions);
+        } finally {
+            budget.recordExpansions(expansions - reportedExpansions);
+        }
+    }
+
+    private int[] run(long maxExpansions) {
+        if (size == 0 || hasIsolatedMember()) {
+            exhausted = true;
+            return null;
+        }
+
+        System.arraycopy(outDegree, 0, outRemaining, 0, size);
+        System.arraycopy(inDegree, 0, inRemaining, 0, size);
+        Arrays.fill(unvisited, 0L);
+        for (int i = 0; i < size; i++) {
+            unvisited[i >>> 6] |= 1L << i;
+        }
+        unvisited[start >>> 6] &= ~(1L << start);
+        path[0] = start;
+        int depth = 1;
+        openLevel(depth);
+
+        while (true) {
+            int current = path[depth - 1];
+            if (depth == size) {
+                if (graph.hasEdge(current, start)) {
+                    return path.clone();
+                }
+            } else {
+                if (expansions >= maxExpansions || shouldStop()) {
+                    return null;
+                }
+                int next = nextCandidate(current, depth);
+                if (next >= 0) {
+                    tried[depth][next >>> 6] |= 1L << next;
+                    expansions++;
+                    if (move(current, next)) {
+                        path[depth++] = next;
+                        openLevel(depth);
+                    } else {
+                        undo(current, next);
+                    }
+                    continue;
+                }
+            }
+
+            if (depth == 1) {
+                exhausted = true;
+                return null;
+            }
+            depth--;
+            undo(path[depth - 1], path[depth]);
+        }
+    }
+
+    /**
+     * Reports progress to the shared budget every {@link #POLL_INTERVAL} expansions and checks
+     * whether the budget was cancelled or used up.
+     *
+     * @return True if the search should stop, false otherwise.
+     */
+    private boolean shouldStop() {
+        if (expansions - reportedExpansions < POLL_INTERVAL) {
+            return false;
+        }
+        budget.recordExpansions(expansions - reportedExpansions);
+        reportedExpansions = expansions;
+        return budget.shouldStop();
+    }
+
+    /**
+     * Checks whether some member cannot possibly be on a cycle.
+     *
+     * @return True if a member has no valid recipient or no valid santa, false otherwise.
+     */
+    private boolean hasIsolatedMember() {
+        for (int i = 0; i < size; i++) {
+            if (outDegree[i] == 0 || inDegree[i] == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void openLevel(int depth) {
+        if (depth == size) {
+            return;
+        }
+        if (tried[depth] == null) {
+            tried[depth] = new long[words];
+        } else {
+            Arrays.fill(tried[depth], 0L);
+        }
+    }
+
+    /**
+     * Picks the untried unvisited recipient of {@code current} with the fewest remaining options,
+     * choosing uniformly among ties when a random source is set.
+     *
+     * @param current The member at the end of the path.
+     * @param depth   The current length of the path.
+     * @return The chosen member index, or -1 if every candidate has been tried.
+     */
+    private int nextCandidate(int current, int depth) {
+        long[] triedHere = tried[depth];
+        int best = -1;
+        int bestDegree = Integer.MAX_VALUE;
+        int ties = 0;
+        for (int w = 0; w < words; w++) {
+            long bits = graph.word(current, w) & unvisited[w] & ~triedHere[w];
+            while (bits != 0) {
+                int candidate = (w << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                int degree = outRemaining[candidate];
+                if (degree < bestDegree) {
+                    best = candidate;
+                    bestDegree = degree;
+                    ties = 1;
+                } else if (degree == bestDegree && random != null && random.nextInt(++ties) == 0) {
+                    best = candidate;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Extends the path from {@code current} to {@code next}, updating the remaining degrees.
+     *
+     * @param current The member at the end of the path.
+     * @param next    The member to append.
+     * @return True if the move keeps a Hamiltonian cycle possible, false if it is a dead end.
+     */
+    private boolean move(int current, int next) {
+        unvisited[next >>> 6] &= ~(1L << next);
+        boolean alive = outRemaining[next] > 0 || !hasUnvisited();
+
+        // next is no longer available as a recipient for the unvisited members
+        int offset = next * words;
+        for (int w = 0; w < words; w++) {
+            long bits = predecessors[offset + w];
+            while (bits != 0) {
+                int santa = (w << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                if (--outRemaining[santa] == 0 && isUnvisited(santa)) {
+                    alive = false;
+                }
+            }
+        }
+
+        // current can no longer give to anyone but next
+        for (int w = 0; w < words; w++) {
+            long bits = graph.word(current, w);
+            while (bits != 0) {
+                int recipient = (w << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                if (--inRemaining[recipient] == 0 && (recipient == start || isUnvisited(recipient))) {
+                    alive = false;
+                }
+            }
+        }
+
+        if (alive && expansions % reachabilityInterval == 0) {
+            alive = isRemainderReachable(next);
+        }
+        return alive;
+    }
+
+    /**
+     * Reverts {@link #move(int, int)}.
+     *
+     * @param current The member the path was extended from.
+     * @param next    The member that was appended.
+     */
+    private void undo(int current, int next) {
+        int offset = next * words;
+        for (int w = 0; w < words; w++) {
+            long bits = predecessors[offset + w];
+            while (bits != 0) {
+                outRemaining[(w << 6) + Long.numberOfTrailingZeros(bits)]++;
+                bits &= bits - 1;
+            }
+        }
+        for (int w = 0; w < words; w++) {
+            long bits = graph.word(current, w);
+            while (bits != 0) {
+                inRemaining[(w << 6) + Long.numberOfTrailingZeros(bits)]++;
+                bits &= bits - 1;
+            }
+        }
+        unvisited[next >>> 6] |= 1L << next;
+    }
+
+    /**
+     * Checks that every unvisited member, and then the start, can be reached from the path's end
+     * through unvisited members only.
+     *
+     * @param from The member at the end of the path.
+     * @return True if the remainder is reachable, false otherwise.
+     */
+    private boolean isRemainderReachable(int from) {
+        Arrays.fill(reached, 0L);
+        int head = 0;
+        int tail = 0;
+        boolean startReached = graph.hasEdge(from, start);
+        queue[tail++] = from;
+
+        while (head < tail) {
+            int member = queue[head++];
+            for (int w = 0; w < words; w++) {
+                long fresh = graph.word(member, w) & unvisited[w] & ~reached[w];
+                reached[w] |= fresh;
+                while (fresh != 0) {
+                    queue[tail++] = (w << 6) + Long.numberOfTrailingZeros(fresh);
+                    fresh &= fresh - 1;
+                }
+            }
+            if (!startReached && member != from && graph.hasEdge(member, start)) {
+                startReached = true;
+            }
+        }
+
+        for (int w = 0; w < words; w++) {
+            if ((unvisited[w] & ~reached[w]) != 0) {
+                return false;
+            }
+        }
+        return startReached;
+    }
+
+    private boolean isUnvisited(int member) {
+        return (unvisited[member >>> 6] & (1L << member)) != 0;
+    }
+
+    private boolean hasUnvisited() {
+        for (long word : unvisited) {
+            if (word != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,39 @@
+package com.bettercloud.santa.service.solver;
+
+import com.bettercloud.santa.model.FamilyMember;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Forbids a recipient from giving back to a santa who gave to them within the history window.
+ */
+public final class NoReciprocalRule implements ConstraintRule {
+
+    @Override
+    public void apply(RuleContext context) {
+        context.recentAssignments().forEach((santaId, recipientIds) -> {
+            int santa = context.indexOf(santaId);
+            if (santa < 0) {
+                return;
+            }
+            for (Long recipientId : recipientIds) {
+                int recipient = context.indexOf(recipientId);
+                if (recipient >= 0) {
+                    context.exclude(recipient, santa);
+                }
+            }
+        });
+    }
+
+    @Override
+    public boolean forbids(FamilyMember santa, FamilyMember recipient, Map<Long, Set<Long>> recentAssignments) {
+        return recentAssignments.getOrDefault(recipient.getId(), Collections.emptySet()).contains(santa.getId());
+    }
+
+    @Override
+    public boolean isRelaxable() {
+        return true;
+    }
+}
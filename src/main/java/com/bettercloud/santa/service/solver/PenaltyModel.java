@@ -0,0 +1,153 @@
+package com.bettercloud.santa.service.solver;
+
+import com.bettercloud.santa.model.Edge;
+import com.bettercloud.santa.model.FamilyMember;
+import com.bettercloud.santa.model.RelationType;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Soft penalties of santa -> recipient pairs, indexed like a {@link ConstraintGraph}.
+ * <p>
+ * Everything a penalty depends on is resolved to member and family indices up front, so pricing
+ * a pair during the search is a few array reads and never touches a map. A pair is penalized when
+ * <ul>
+ *     <li>it breaks a relaxed rule, i.e. is missing from the graph under every rule,</li>
+ *     <li>both members are tagged {@link RelationType#EXTENDED_FAMILY},</li>
+ *     <li>the santa gave to a member of the recipient's family within the history window,</li>
+ *     <li>the recipient gave to the santa within the history window.</li>
+ * </ul>
+ * A recipient giving back to their santa in the same year is priced by the search, since it
+ * depends on two pairs.
+ */
+public final class PenaltyModel {
+    private static final int[] NONE = new int[0];
+
+    private final ConstraintGraph preferred;
+    private final Weights weights;
+    private final boolean[] extendedFamily;
+    private final int[][] recentFamilies;
+    private final int[][] recentRecipients;
+
+    private PenaltyModel(
+            ConstraintGraph preferred,
+            Weights weights,
+            boolean[] extendedFamily,
+            int[][] recentFamilies,
+            int[][] recentRecipients
+    ) {
+        this.preferred = preferred;
+        this.weights = weights;
+        this.extendedFamily = extendedFamily;
+        this.recentFamilies = recentFamilies;
+        this.recentRecipients = recentRecipients;
+    }
+
+    /**
+     * Resolves the penalties of every pair of the graph's members.
+     *
+     * @param preferred         The graph under every rule; pairs missing from it break a relaxed rule.
+     * @param recentAssignments A map of giver IDs to recently assigned recipient IDs.
+     * @param weights           The penalty of every kind of undesirable pair.
+     * @return The penalty model.
+     */
+    public static PenaltyModel build(ConstraintGraph preferred, Map<Long, Set<Long>> recentAssignments, Weights weights) {
+        int size = preferred.size();
+        Map<Long, Integer> indexById = new HashMap<>(size * 2);
+        boolean[] extendedFamily = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            FamilyMember member = preferred.member(i);
+            indexById.put(member.getId(), i);
+            if (member.getRelations() != null) {
+                for (Edge edge : member.getRelations()) {
+                    extendedFamily[i] |= edge.getType() == RelationType.EXTENDED_FAMILY;
+                }
+            }
+        }
+
+        int[][] recentFamilies = new int[size][];
+        int[][] recentRecipients = new int[size][];
+        Arrays.fill(recentFamilies, NONE);
+        Arrays.fill(recentRecipients, NONE);
+        recentAssignments.forEach((santaId, recipientIds) -> {
+            Integer santa = indexById.get(santaId);
+            if (santa == null) {
+                return;
+            }
+            int[] recipients = recipientIds.stream()
+                    .map(indexById::get)
+                    .filter(recipient -> recipient != null)
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+            recentRecipients[santa] = recipients;
+            recentFamilies[santa] = Arrays.stream(recipients).map(preferred::family).distinct().toArray();
+        });
+        return new PenaltyModel(preferred, weights, extendedFamily, recentFamilies, recentRecipients);
+    }
+
+    public Weights weights() {
+        return weights;
+    }
+
+    /**
+     * Prices a single pair.
+     *
+     * @param santa     The santa index.
+     * @param recipient The recipient index.
+     * @return The sum of the pair's penalties.
+     */
+    public int pairPenalty(int santa, int recipient) {
+        int penalty = 0;
+        if (!preferred.hasEdge(santa, recipient)) {
+            penalty += weights.relaxedRule();
+        }
+        if (extendedFamily[santa] && extendedFamily[recipient]) {
+            penalty += weights.extendedFamily();
+        }
+        if (contains(recentFamilies[santa], preferred.family(recipient))) {
+            penalty += weights.recentFamily();
+        }
+        if (contains(recentRecipients[recipient], santa)) {
+            penalty += weights.reciprocal();
+        }
+        return penalty;
+    }
+
+    private static boolean contains(int[] values, int value) {
+        for (int candidate : values) {
+            if (candidate == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The penalty of every kind of undesirable pair.
+     *
+     * @param extendedFamily Santa and recipient are both tagged EXTENDED_FAMILY.
+     * @param recentFamily   Santa gave to the recipient's family within the history window.
+     * @param reciprocal     Recipient gives back to the santa this year or did within the window.
+     * @param relaxedRule    Pair breaks a relaxed rule.
+     */
+    public record Weights(int extendedFamily, int recentFamily, int reciprocal, int relaxedRule) {
+
+        public Weights {
+            if (extendedFamily < 0 || recentFamily < 0 || reciprocal < 0 || relaxedRule < 0) {
+                throw new IllegalArgumentException("Penalties must not be negative");
+            }
+        }
+
+        /**
+         * Returns the largest penalty of a preference, which sets the starting temperature.
+         *
+         * @return The largest weight other than {@link #relaxedRule()}.
+         */
+        int largestPreference() {
+            return Math.max(extendedFamily, Math.max(recentFamily, reciprocal));
+        }
+    }
+}
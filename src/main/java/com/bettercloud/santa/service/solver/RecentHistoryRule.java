@@ -0,0 +1,39 @@
+package com.bettercloud.santa.service.solver;
+
+import com.bettercloud.santa.model.FamilyMember;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Forbids a santa from giving to a recipient they gave to within the history window.
+ */
+public final class RecentHistoryRule implements ConstraintRule {
+
+    @Override
+    public void apply(RuleContext context) {
+        context.recentAssignments().forEach((santaId, recipientIds) -> {
+            int santa = context.indexOf(santaId);
+            if (santa < 0) {
+                return;
+            }
+            for (Long recipientId : recipientIds) {
+                int recipient = context.indexOf(recipientId);
+                if (recipient >= 0) {
+                    context.exclude(santa, recipient);
+                }
+            }
+        });
+    }
+
+    @Override
+    public boolean forbids(FamilyMember santa, FamilyMember recipient, Map<Long, Set<Long>> recentAssignments) {
+        return recentAssignments.getOrDefault(santa.getId(), Collections.emptySet()).contains(recipient.getId());
+    }
+
+    @Override
+    public boolean isRelaxable() {
+        return true;
+    }
+}
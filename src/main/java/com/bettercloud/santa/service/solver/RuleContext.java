@@ -0,0 +1,134 @@
+package com.bettercloud.santa.service.solver;
+
+import com.bettercloud.santa.model.FamilyMember;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A {@link ConstraintGraph} under construction, as seen by the {@link ConstraintRule}s.
+ * <p>
+ * Every row starts with all members but the santa themself; rules only ever clear bits, so the
+ * order in which they are applied does not matter.
+ */
+public final class RuleContext {
+    private final FamilyMember[] members;
+    private final Map<Long, Set<Long>> recentAssignments;
+    private final Map<Long, Integer> indexById;
+    private final int[] families;
+    private final int familyCount;
+    private final int size;
+    private final int words;
+    private final long[] adjacency;
+
+    RuleContext(List<FamilyMember> members, Map<Long, Set<Long>> recentAssignments) {
+        this.members = members.toArray(new FamilyMember[0]);
+        this.recentAssignments = recentAssignments;
+        this.size = this.members.length;
+        this.words = ConstraintGraph.wordsFor(size);
+        this.indexById = new HashMap<>(size * 2);
+        this.families = new int[size];
+
+        Map<Integer, Integer> familyIndex = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            indexById.put(this.members[i].getId(), i);
+            Integer family = familyIndex.putIfAbsent(this.members[i].getFamilyId(), familyIndex.size());
+            families[i] = family == null ? familyIndex.size() - 1 : family;
+        }
+        this.familyCount = familyIndex.size();
+
+        this.adjacency = new long[size * words];
+        for (int santa = 0; santa < size; santa++) {
+            int offset = santa * words;
+            for (int w = 0; w < words; w++) {
+                adjacency[offset + w] = fullWord(w);
+            }
+            adjacency[offset + (santa >>> 6)] &= ~(1L << santa);
+        }
+    }
+
+    private long fullWord(int word) {
+        int remaining = size - (word << 6);
+        return remaining >= 64 ? -1L : (1L << remaining) - 1;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int words() {
+        return words;
+    }
+
+    public FamilyMember member(int index) {
+        return members[index];
+    }
+
+    /**
+     * Returns the dense family index of a member; families are numbered {@code 0..familyCount-1}
+     * in order of first appearance.
+     *
+     * @param index The member index.
+     * @return The family index.
+     */
+    public int family(int index) {
+        return families[index];
+    }
+
+    public int familyCount() {
+        return familyCount;
+    }
+
+    public Map<Long, Set<Long>> recentAssignments() {
+        return recentAssignments;
+    }
+
+    /**
+     * Maps a member ID to its index.
+     *
+     * @param memberId The member ID.
+     * @return The member index, or -1 if the member is not part of the solve.
+     */
+    public int indexOf(Long memberId) {
+        Integer index = indexById.get(memberId);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Returns an empty mask with one bit per member.
+     *
+     * @return A zeroed mask of {@link #words()} words.
+     */
+    public long[] newMask() {
+        return new long[words];
+    }
+
+    /**
+     * Forbids a single pair.
+     *
+     * @param santa     The santa index.
+     * @param recipient The recipient index.
+     */
+    public void exclude(int santa, int recipient) {
+        adjacency[santa * words + (recipient >>> 6)] &= ~(1L << recipient);
+    }
+
+    /**
+     * Forbids every recipient set in the mask, one word at a time.
+     *
+     * @param santa The santa index.
+     * @param mask  The recipients to forbid.
+     */
+    public void excludeAll(int santa, long[] mask) {
+        int offset = santa * words;
+        for (int w = 0; w < words; w++) {
+            adjacency[offset + w] &= ~mask[w];
+        }
+    }
+
+    ConstraintGraph toGraph() {
+        return new ConstraintGraph(members, families, adjacency);
+    }
+}
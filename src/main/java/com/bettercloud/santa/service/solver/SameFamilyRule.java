@@ -0,0 +1,34 @@
+package com.bettercloud.santa.service.solver;
+
+import com.bettercloud.santa.model.FamilyMember;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Forbids gifts within a family. One mask per family is built, and every santa's row is cleared
+ * with its family's mask in a single pass of word-wide AND-NOTs.
+ */
+public final class SameFamilyRule implements ConstraintRule {
+
+    @Override
+    public void apply(RuleContext context) {
+        long[][] familyMasks = new long[context.familyCount()][];
+        for (int i = 0; i < context.size(); i++) {
+            int family = context.family(i);
+            if (familyMasks[family] == null) {
+                familyMasks[family] = context.newMask();
+            }
+            familyMasks[family][i >>> 6] |= 1L << i;
+        }
+        for (int santa = 0; santa < context.size(); santa++) {
+            context.excludeAll(santa, familyMasks[context.family(santa)]);
+        }
+    }
+
+    @Override
+    public boolean forbids(FamilyMember santa, FamilyMember recipient, Map<Long, Set<Long>> recentAssignments) {
+        return Objects.equals(santa.getFamilyId(), recipient.getFamilyId());
+    }
+}
@@ -0,0 +1,142 @@
+package com.bettercloud.santa.service.solver;
+
+import com.bettercloud.santa.exception.SolverBudgetExceededException;
+
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shared handle through which a running solve reports progress and is asked to stop.
+ * <p>
+ * Solvers poll {@link #shouldStop()} at regular intervals and give up cooperatively, so a
+ * search running on another thread can be stopped without interrupting it. A budget stops
+ * when it is cancelled or when its wall-clock deadline or node-expansion limit is reached.
+ * Budgets can be forked: a child stops whenever its parent does, and expansions recorded on
+ * a child are also counted on the parent.
+ */
+public final class SearchBudget {
+    private final SearchBudget parent;
+    private final long startNanos;
+    private final long deadlineNanos;
+    private final long maxExpansions;
+    private final AtomicLong expansions = new AtomicLong();
+    private volatile boolean cancelled;
+
+    private SearchBudget(SearchBudget parent, Duration timeout, long maxExpansions) {
+        this.parent = parent;
+        this.startNanos = System.nanoTime();
+        this.deadlineNanos = timeout == null ? Long.MAX_VALUE : startNanos + timeout.toNanos();
+        this.maxExpansions = maxExpansions;
+    }
+
+    public static SearchBudget unlimited() {
+        return new SearchBudget(null, null, Long.MAX_VALUE);
+    }
+
+    /**
+     * Creates a child budget that can be cancelled on its own.
+     *
+     * @return The child budget.
+     */
+    public SearchBudget fork() {
+        return new SearchBudget(this, null, Long.MAX_VALUE);
+    }
+
+    /**
+     * Creates a child budget with its own wall-clock and node-expansion limits.
+     *
+     * @param timeout       The wall-clock time the child may run.
+     * @param maxExpansions The number of nodes the child may expand.
+     * @return The child budget.
+     */
+    public SearchBudget fork(Duration timeout, long maxExpansions) {
+        return new SearchBudget(this, timeout, maxExpansions);
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled || (parent != null && parent.isCancelled());
+    }
+
+    /**
+     * Checks whether the deadline or expansion limit of this budget or an ancestor was reached.
+     *
+     * @return True if the budget is used up, false otherwise.
+     */
+    public boolean isExpired() {
+        return expansions.get() >= maxExpansions
+                || System.nanoTime() - deadlineNanos >= 0
+                || (parent != null && parent.isExpired());
+    }
+
+    public boolean shouldStop() {
+        return isCancelled() || isExpired();
+    }
+
+    /**
+     * Records search nodes expanded since the last report.
+     *
+     * @param count The number of nodes expanded.
+     */
+    public void recordExpansions(long count) {
+        expansions.addAndGet(count);
+        if (parent != null) {
+            parent.recordExpansions(count);
+        }
+    }
+
+    public long expansions() {
+        return expansions.get();
+    }
+
+    public Duration elapsed() {
+        return Duration.ofNanos(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Returns the wall-clock time left before the deadline.
+     *
+     * @return The remaining time, or null if neither this budget nor an ancestor has a deadline.
+     */
+    public Duration remainingTime() {
+        Duration parentRemaining = parent == null ? null : parent.remainingTime();
+        if (deadlineNanos == Long.MAX_VALUE) {
+            return parentRemaining;
+        }
+        Duration remaining = Duration.ofNanos(Math.max(0, deadlineNanos - System.nanoTime()));
+        return parentRemaining == null || remaining.compareTo(parentRemaining) < 0 ? remaining : parentRemaining;
+    }
+
+    /**
+     * Returns the node expansions left before the limit.
+     *
+     * @return The remaining expansions, or {@link Long#MAX_VALUE} if unlimited.
+     */
+    public long remainingExpansions() {
+        long remaining = maxExpansions == Long.MAX_VALUE ? Long.MAX_VALUE : Math.max(0, maxExpansions - expansions.get());
+        return parent == null ? remaining : Math.min(remaining, parent.remainingExpansions());
+    }
+
+    /**
+     * Stops the calling solver if the budget was cancelled or used up.
+     *
+     * @throws CancellationException        If the budget was cancelled.
+     * @throws SolverBudgetExceededException If the deadline or expansion limit was reached.
+     */
+    public void checkpoint() {
+        if (isCancelled()) {
+            throw new CancellationException("Search cancelled after " + expansions() + " expansions");
+        }
+        if (isExpired()) {
+            throw new SolverBudgetExceededException(
+                    "Search budget exceeded after " + expansions() + " expansions",
+                    expansions(),
+                    elapsed()
+            );
+        }
+    }
+}
@@ -1,3 +1,11 @@
+CREATE TABLE IF NOT EXISTS exchange_groups (
+    id BIGSERIAL PRIMARY KEY,
+    name VARCHAR(255) NOT NULL
+);
+
+INSERT INTO exchange_groups (id, name) VALUES (1, 'Default') ON CONFLICT (id) DO NOTHING;
+SELECT setval(pg_get_serial_sequence('exchange_groups', 'id'), (SELECT MAX(id) FROM exchange_groups));
+
 CREATE TABLE IF NOT EXISTS members (
     id BIGSERIAL PRIMARY KEY,
     family_id INTEGER NOT NULL,
@@ -17,11 +25,50 @@ CREATE TABLE IF NOT EXISTS assignments (
     receiver_id BIGINT NOT NULL REFERENCES members(id)
 );
 
-CREATE INDEX IF NOT EXISTS idx_assignments_year ON assignments(assignment_year);
+ALTER TABLE assignments ADD COLUMN IF NOT EXISTS solver_seed BIGINT;
+
+-- Exchange groups partition members, edges and assignments; existing rows belong to the default group
+ALTER TABLE members ADD COLUMN IF NOT EXISTS group_id BIGINT NOT NULL DEFAULT 1 REFERENCES exchange_groups(id);
+ALTER TABLE edges ADD COLUMN IF NOT EXISTS group_id BIGINT NOT NULL DEFAULT 1 REFERENCES exchange_groups(id);
+ALTER TABLE assignments ADD COLUMN IF NOT EXISTS group_id BIGINT NOT NULL DEFAULT 1 REFERENCES exchange_groups(id);
+
+DROP INDEX IF EXISTS idx_assignments_year;
+DROP INDEX IF EXISTS uq_assignments_year_giver;
+CREATE UNIQUE INDEX IF NOT EXISTS uq_assignments_group_year_giver ON assignments(group_id, assignment_year, giver_id);
+CREATE INDEX IF NOT EXISTS idx_members_group ON members(group_id);
 CREATE INDEX IF NOT EXISTS idx_edges_member ON edges(member_id);
 
+-- Covers the history queries, which read the pairs of a group as an index-only scan
+CREATE INDEX IF NOT EXISTS idx_assignments_group_year_pair ON assignments(group_id, assignment_year) INCLUDE (giver_id, receiver_id);
+
+-- Tentative assignments of planned years; confirming a year moves its rows into assignments
+CREATE TABLE IF NOT EXISTS planned_assignments (
+    id BIGSERIAL PRIMARY KEY,
+    group_id BIGINT NOT NULL REFERENCES exchange_groups(id),
+    assignment_year INTEGER NOT NULL,
+    giver_id BIGINT NOT NULL REFERENCES members(id),
+    receiver_id BIGINT NOT NULL REFERENCES members(id),
+    solver_seed BIGINT
+);
+
+CREATE UNIQUE INDEX IF NOT EXISTS uq_planned_assignments_group_year_giver ON planned_assignments(group_id, assignment_year, giver_id);
+
+-- Asynchronous generation requests; the node running a job keeps its row current so any node can report it
+CREATE TABLE IF NOT EXISTS generation_jobs (
+    id BIGSERIAL PRIMARY KEY,
+    group_id BIGINT NOT NULL REFERENCES exchange_groups(id),
+    assignment_year INTEGER NOT NULL,
+    state VARCHAR(20) NOT NULL,
+    expansions BIGINT NOT NULL DEFAULT 0,
+    error TEXT,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+    updated_at TIMESTAMPTZ NOT NULL DEFAULT now()
+);
+
 -- Seed data
 -- First clear any existing data
+TRUNCATE TABLE generation_jobs CASCADE;
+TRUNCATE TABLE planned_assignments CASCADE;
 TRUNCATE TABLE assignments CASCADE;
 TRUNCATE TABLE edges CASCADE;
 TRUNCATE TABLE members CASCADE;
@@ -0,0 +1,68 @@
+package com.bettercloud.santa.controller;
+
+import com.bettercloud.santa.config.AssignmentCacheProperties;
+import com.bettercloud.santa.model.FamilyAssignment;
+import com.bettercloud.santa.model.FamilyMember;
+import com.bettercloud.santa.service.AssignmentCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AssignmentPayloadCacheTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AssignmentPayloadCache payloadCache =
+            new AssignmentPayloadCache(objectMapper, new AssignmentCacheProperties());
+
+    @Test
+    void whenYearIsLarge_thenServeSameBytesWithMatchingGzipVariant() throws IOException {
+        // Given
+        List<FamilyAssignment> assignments = new ArrayList<>();
+        for (long id = 1; id <= 100; id++) {
+            FamilyAssignment assignment = new FamilyAssignment(2024, id, id + 1);
+            assignment.setId(id);
+            assignment.setSanta(new FamilyMember(id, 1, "Santa " + id));
+            assignment.setRecipient(new FamilyMember(id + 1, 2, "Recipient " + id));
+            assignments.add(assignment);
+        }
+        AssignmentCache.CachedYear year = new AssignmentCache.CachedYear(assignments, "etag");
+
+        // When
+        AssignmentPayloadCache.Payload first = payloadCache.get(year);
+        AssignmentPayloadCache.Payload second = payloadCache.get(year);
+
+        // Then
+        assertSame(first, second);
+        assertTrue(payloadCache.compressible(year));
+        assertEquals(100, objectMapper.readTree(first.json()).size());
+        assertNotNull(first.gzip());
+        assertTrue(first.gzip().length < first.json().length);
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(first.gzip()))) {
+            assertArrayEquals(first.json(), gzip.readAllBytes());
+        }
+    }
+
+    @Test
+    void whenYearIsSmall_thenReportItUncompressedBeforeEncoding() throws IOException {
+        // Given
+        FamilyAssignment assignment = new FamilyAssignment(2024, 1L, 2L);
+        assignment.setId(1L);
+        AssignmentCache.CachedYear year = new AssignmentCache.CachedYear(List.of(assignment), "small");
+
+        // When
+        boolean compressible = payloadCache.compressible(year);
+        AssignmentPayloadCache.Payload payload = payloadCache.get(year);
+
+        // Then
+        assertFalse(compressible);
+        assertNull(payload.gzip());
+        assertEquals(1, objectMapper.readTree(payload.json()).size());
+    }
+}
@@ -0,0 +1,106 @@
+package com.bettercloud.santa.service;
+
+import com.bettercloud.santa.config.AssignmentCacheProperties;
+import com.bettercloud.santa.model.FamilyAssignment;
+import com.bettercloud.santa.model.FamilyMember;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AssignmentCacheTest {
+
+    private AssignmentCache cache;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        cache = new AssignmentCache(new AssignmentCacheProperties());
+        loads = new AtomicInteger();
+    }
+
+    @Test
+    void whenYearIsInvalidated_thenLoadItAgain() {
+        // Given
+        cache.get(1L, 2024, () -> load(assignment(1L, "C"))).block();
+
+        // When
+        cache.get(1L, 2024, () -> load(assignment(1L, "C"))).block();
+        cache.invalidate(1L, 2024);
+        AssignmentCache.CachedYear reloaded = cache.get(1L, 2024, () -> load(assignment(1L, "D"))).block();
+
+        // Then
+        assertEquals(2, loads.get());
+        assertNotNull(reloaded);
+        assertEquals("D", reloaded.assignments().get(0).getRecipient().getName());
+    }
+
+    @Test
+    void whenInvalidatedWhileLoading_thenDoNotCacheTheStaleYear() {
+        // Given
+        Mono<List<FamilyAssignment>> staleLoad = Mono.fromSupplier(() -> {
+            cache.invalidate(1L, 2024);
+            return List.of(assignment(1L, "C"));
+        });
+
+        // When
+        cache.get(1L, 2024, () -> staleLoad).block();
+        cache.get(1L, 2024, () -> load(assignment(1L, "D"))).block();
+
+        // Then
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void whenEntryIsOlderThanExpireAfterWrite_thenLoadItAgain() {
+        // Given - another node repaired the year, so this node was never told
+        AtomicLong nanos = new AtomicLong();
+        AssignmentCacheProperties properties = new AssignmentCacheProperties();
+        properties.setExpireAfterWrite(Duration.ofMinutes(1));
+        AssignmentCache expiring = new AssignmentCache(properties, nanos::get);
+        expiring.get(1L, 2024, () -> load(assignment(1L, "C"))).block();
+
+        // When
+        nanos.addAndGet(Duration.ofSeconds(59).toNanos());
+        AssignmentCache.CachedYear cached = expiring.get(1L, 2024, () -> load(assignment(1L, "D"))).block();
+        nanos.addAndGet(Duration.ofSeconds(2).toNanos());
+        AssignmentCache.CachedYear reloaded = expiring.get(1L, 2024, () -> load(assignment(1L, "D"))).block();
+
+        // Then
+        assertEquals(2, loads.get());
+        assertEquals("C", cached.assignments().get(0).getRecipient().getName());
+        assertEquals("D", reloaded.assignments().get(0).getRecipient().getName());
+    }
+
+    @Test
+    void whenContentDiffers_thenETagDiffers() {
+        // Given
+        List<FamilyAssignment> year = List.of(assignment(1L, "C"));
+        List<FamilyAssignment> changed = List.of(assignment(1L, "D"));
+
+        // When & Then
+        assertEquals(AssignmentCache.etag(year), AssignmentCache.etag(List.of(assignment(1L, "C"))));
+        assertNotEquals(AssignmentCache.etag(year), AssignmentCache.etag(changed));
+    }
+
+    private Mono<List<FamilyAssignment>> load(FamilyAssignment... assignments) {
+        return Mono.fromSupplier(() -> {
+            loads.incrementAndGet();
+            return List.of(assignments);
+        });
+    }
+
+    private FamilyAssignment assignment(Long id, String recipientName) {
+        FamilyAssignment assignment = new FamilyAssignment(2024, 1L, 3L);
+        assignment.setId(id);
+        assignment.setSanta(new FamilyMember(1L, 1, "A"));
+        assignment.setRecipient(new FamilyMember(3L, 2, recipientName));
+        return assignment;
+    }
+}
@@ -0,0 +1,248 @@
+package com.bettercloud.santa.service;
+
+import com.bettercloud.santa.config.AssignmentCacheProperties;
+import com.bettercloud.santa.config.SolverProperties;
+import com.bettercloud.santa.exception.InvalidPlanException;
+import com.bettercloud.santa.exception.PlanConflictException;
+import com.bettercloud.santa.exception.SolverBudgetExceededException;
+import com.bettercloud.santa.model.FamilyAssignment;
+import com.bettercloud.santa.model.FamilyMember;
+import com.bettercloud.santa.model.PlannedAssignment;
+import com.bettercloud.santa.model.PlannedYear;
+import com.bettercloud.santa.repository.AssignmentRepository;
+import com.bettercloud.santa.repository.MemberRepository;
+import com.bettercloud.santa.repository.PlannedAssignmentRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AssignmentPlannerTest {
+
+    @Mock
+    private MemberRepository memberRepository;
+    @Mock
+    private AssignmentRepository assignmentRepository;
+    @Mock
+    private PlannedAssignmentRepository planRepository;
+
+    private AssignmentPlanner planner;
+    private SolverScheduler solverScheduler;
+
+    @BeforeEach
+    void setUp() {
+        SolverProperties properties = new SolverProperties();
+        properties.getPlanning().setMaxBacktracks(1000);
+        solverScheduler = new SolverScheduler(properties, new SimpleMeterRegistry());
+        planner = new AssignmentPlanner(
+                memberRepository,
+                assignmentRepository,
+                planRepository,
+                new HamiltonianCycleStrategy(properties, ConstraintRules.defaults()),
+                new AssignmentValidator(ConstraintRules.defaults()),
+                ConstraintRules.defaults(),
+                new AssignmentCache(new AssignmentCacheProperties()),
+                new GiftHistoryIndex(assignmentRepository, properties, new AssignmentCacheProperties()),
+                solverScheduler,
+                new PassThroughTransactionalOperator(),
+                properties
+        );
+    }
+
+    @AfterEach
+    void tearDown() {
+        solverScheduler.shutdown();
+    }
+
+    @Test
+    void whenLaterYearsOnlyFitSomeEarlierChoices_thenPlanEveryYearWithoutRepeats() {
+        // Given: five singletons have exactly four recipients each, so four single-cycle years
+        // without repeats must split the pairs into four disjoint gift cycles
+        List<FamilyMember> members = new ArrayList<>();
+        for (long id = 1; id <= 5; id++) {
+            members.add(new FamilyMember(id, (int) id, "M" + id));
+        }
+        when(memberRepository.findAllWithRelations(1L)).thenReturn(Flux.fromIterable(members));
+        when(assignmentRepository.lockYear(any(), any())).thenReturn(Mono.just(1));
+        when(assignmentRepository.findByYearsBetween(1L, 2025, 2028)).thenReturn(Flux.empty());
+        stubNoHistory();
+        when(planRepository.deleteByYearsBetween(1L, 2025, 2028)).thenReturn(Mono.just(0));
+        when(planRepository.insertAll(anyList())).thenReturn(Mono.just(20));
+
+        // When
+        List<PlannedYear> plan = planner.planAssignments(1L, 2025, 4).collectList().block();
+
+        // Then
+        assertNotNull(plan);
+        assertEquals(List.of(2025, 2026, 2027, 2028), plan.stream().map(PlannedYear::getAssignmentYear).toList());
+        Set<String> pairs = new HashSet<>();
+        for (PlannedYear year : plan) {
+            assertEquals(5, year.getAssignments().size());
+            for (FamilyAssignment assignment : year.getAssignments()) {
+                assertNotEquals(assignment.getSantaId(), assignment.getRecipientId());
+                assertTrue(pairs.add(assignment.getSantaId() + "->" + assignment.getRecipientId()));
+            }
+        }
+        ArgumentCaptor<List<PlannedAssignment>> rows = ArgumentCaptor.forClass(List.class);
+        verify(planRepository).insertAll(rows.capture());
+        assertEquals(20, rows.getValue().size());
+    }
+
+    @Test
+    void whenFirstYearRunsOutOfBudget_thenSolveItAgainWithNewSeed() {
+        // Given - the first solve of the first year exceeds its budget
+        SolverProperties properties = new SolverProperties();
+        HamiltonianCycleStrategy cycles = new HamiltonianCycleStrategy(properties, ConstraintRules.defaults());
+        AtomicInteger calls = new AtomicInteger();
+        AssignmentStrategy flaky = (year, members, recent, seed, budget) -> {
+            if (calls.getAndIncrement() == 0) {
+                throw new SolverBudgetExceededException("Out of budget", 0, Duration.ZERO);
+            }
+            return cycles.generateAssignments(year, members, recent, seed, budget);
+        };
+        AssignmentPlanner flakyPlanner = new AssignmentPlanner(
+                memberRepository,
+                assignmentRepository,
+                planRepository,
+                flaky,
+                new AssignmentValidator(ConstraintRules.defaults()),
+                ConstraintRules.defaults(),
+                new AssignmentCache(new AssignmentCacheProperties()),
+                new GiftHistoryIndex(assignmentRepository, properties, new AssignmentCacheProperties()),
+                solverScheduler,
+                new PassThroughTransactionalOperator(),
+                properties
+        );
+        List<FamilyMember> members = List.of(
+                new FamilyMember(1L, 1, "A"),
+                new FamilyMember(2L, 2, "B"),
+                new FamilyMember(3L, 3, "C")
+        );
+        when(memberRepository.findAllWithRelations(1L)).thenReturn(Flux.fromIterable(members));
+        when(assignmentRepository.lockYear(any(), any())).thenReturn(Mono.just(1));
+        when(assignmentRepository.findByYearsBetween(1L, 2025, 2025)).thenReturn(Flux.empty());
+        stubNoHistory();
+        when(planRepository.deleteByYearsBetween(1L, 2025, 2025)).thenReturn(Mono.just(0));
+        when(planRepository.insertAll(anyList())).thenReturn(Mono.just(3));
+
+        // When
+        List<PlannedYear> plan = flakyPlanner.planAssignments(1L, 2025, 1).collectList().block();
+
+        // Then
+        assertNotNull(plan);
+        assertEquals(1, plan.size());
+        assertEquals(3, plan.get(0).getAssignments().size());
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void whenTooManyYearsRequested_thenThrowInvalidPlanException() {
+        // When & Then
+        assertThrows(InvalidPlanException.class, () -> planner.planAssignments(1L, 2025, 11).collectList().block());
+    }
+
+    @Test
+    void whenPlanIsConfirmed_thenInsertItsRowsWithoutSolving() {
+        // Given
+        List<FamilyMember> members = List.of(
+                new FamilyMember(1L, 1, "A"),
+                new FamilyMember(2L, 2, "B"),
+                new FamilyMember(3L, 3, "C")
+        );
+        List<PlannedAssignment> plan = List.of(planned(1L, 2L), planned(2L, 3L), planned(3L, 1L));
+        when(assignmentRepository.lockYear(1L, 2025)).thenReturn(Mono.just(1));
+        when(planRepository.findByYear(1L, 2025)).thenReturn(Flux.fromIterable(plan));
+        when(memberRepository.findAllWithRelations(1L)).thenReturn(Flux.fromIterable(members));
+        when(assignmentRepository.findByYearsBetween(1L, 2025, 2025)).thenReturn(Flux.empty());
+        stubNoHistory();
+        when(assignmentRepository.insertAllIfAbsent(anyList())).thenAnswer(invocation -> Flux.fromIterable(invocation.getArgument(0)));
+        when(planRepository.deleteByYearsBetween(1L, 2025, 2025)).thenReturn(Mono.just(3));
+
+        // When
+        List<FamilyAssignment> confirmed = planner.confirmPlan(1L, 2025).collectList().block();
+
+        // Then
+        assertNotNull(confirmed);
+        assertEquals(3, confirmed.size());
+        assertEquals("B", confirmed.get(0).getRecipient().getName());
+        verify(planRepository).deleteByYearsBetween(1L, 2025, 2025);
+    }
+
+    @Test
+    void whenSomeConfirmedRowsAlreadyExist_thenThrowPlanConflictAndKeepThePlan() {
+        // Given - one santa's row was written outside the lock, so only two rows are inserted
+        List<FamilyMember> members = List.of(
+                new FamilyMember(1L, 1, "A"),
+                new FamilyMember(2L, 2, "B"),
+                new FamilyMember(3L, 3, "C")
+        );
+        List<PlannedAssignment> plan = List.of(planned(1L, 2L), planned(2L, 3L), planned(3L, 1L));
+        when(assignmentRepository.lockYear(1L, 2025)).thenReturn(Mono.just(1));
+        when(planRepository.findByYear(1L, 2025)).thenReturn(Flux.fromIterable(plan));
+        when(memberRepository.findAllWithRelations(1L)).thenReturn(Flux.fromIterable(members));
+        when(assignmentRepository.findByYearsBetween(1L, 2025, 2025)).thenReturn(Flux.empty());
+        stubNoHistory();
+        when(assignmentRepository.insertAllIfAbsent(anyList()))
+                .thenAnswer(invocation -> Flux.fromIterable(((List<FamilyAssignment>) invocation.getArgument(0)).subList(0, 2)));
+
+        // When & Then
+        assertThrows(PlanConflictException.class, () -> planner.confirmPlan(1L, 2025).collectList().block());
+        verify(planRepository, never()).deleteByYearsBetween(anyLong(), anyInt(), anyInt());
+    }
+
+    @Test
+    void whenMemberLeftSincePlanning_thenThrowPlanConflictException() {
+        // Given
+        List<FamilyMember> members = List.of(
+                new FamilyMember(1L, 1, "A"),
+                new FamilyMember(2L, 2, "B")
+        );
+        List<PlannedAssignment> plan = List.of(planned(1L, 2L), planned(2L, 3L), planned(3L, 1L));
+        when(assignmentRepository.lockYear(1L, 2025)).thenReturn(Mono.just(1));
+        when(planRepository.findByYear(1L, 2025)).thenReturn(Flux.fromIterable(plan));
+        when(memberRepository.findAllWithRelations(1L)).thenReturn(Flux.fromIterable(members));
+        when(assignmentRepository.findByYearsBetween(1L, 2025, 2025)).thenReturn(Flux.empty());
+        stubNoHistory();
+
+        // When & Then
+        assertThrows(PlanConflictException.class, () -> planner.confirmPlan(1L, 2025).collectList().block());
+        verify(assignmentRepository, never()).insertAllIfAbsent(anyList());
+    }
+
+    private void stubNoHistory() {
+        when(assignmentRepository.findLatestYear(1L)).thenReturn(Mono.just(0));
+        when(assignmentRepository.findGiftHistory(1L, Integer.MIN_VALUE, Integer.MAX_VALUE)).thenReturn(Flux.empty());
+    }
+
+    private static PlannedAssignment planned(Long santaId, Long recipientId) {
+        PlannedAssignment planned = new PlannedAssignment();
+        planned.setGroupId(1L);
+        planned.setAssignmentYear(2025);
+        planned.setSantaId(santaId);
+        planned.setRecipientId(recipientId);
+        return planned;
+    }
+}
@@ -0,0 +1,113 @@
+package com.bettercloud.santa.service;
+
+import com.bettercloud.santa.model.FamilyAssignment;
+import com.bettercloud.santa.model.FamilyMember;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AssignmentRepairerTest {
+
+    private final AssignmentRepairer repairer = new AssignmentRepairer(ConstraintRules.defaults());
+
+    @Test
+    void whenMemberJoins_thenSpliceWithOneUpdateAndOneInsert() {
+        // Given - A -> C -> B -> D -> A, and E joins
+        List<FamilyMember> members = new ArrayList<>(Arrays.asList(
+                new FamilyMember(1L, 1, "A"),
+                new FamilyMember(2L, 1, "B"),
+                new FamilyMember(3L, 2, "C"),
+                new FamilyMember(4L, 2, "D")
+        ));
+        List<FamilyAssignment> existing = cycle(1L, 3L, 2L, 4L);
+        members.add(new FamilyMember(5L, 3, "E"));
+
+        // When
+        Optional<AssignmentRepairer.Repair> repair = repairer.repair(2024, existing, members, new HashMap<>());
+
+        // Then
+        assertTrue(repair.isPresent());
+        assertTrue(repair.get().deletedIds().isEmpty());
+        assertEquals(1, repair.get().updated().size());
+        assertEquals(1, repair.get().inserted().size());
+        assertEquals(5L, repair.get().inserted().get(0).getSantaId());
+        assertValidPermutation(apply(existing, repair.get()), members);
+    }
+
+    @Test
+    void whenMemberLeaves_thenBridgeAroundThem() {
+        // Given - A -> C -> E -> B -> D -> F -> A, and E leaves
+        List<FamilyMember> members = new ArrayList<>(Arrays.asList(
+                new FamilyMember(1L, 1, "A"),
+                new FamilyMember(2L, 1, "B"),
+                new FamilyMember(3L, 2, "C"),
+                new FamilyMember(4L, 2, "D"),
+                new FamilyMember(5L, 3, "E"),
+                new FamilyMember(6L, 3, "F")
+        ));
+        List<FamilyAssignment> existing = cycle(1L, 3L, 5L, 2L, 4L, 6L);
+        members.remove(4);
+
+        // When
+        Optional<AssignmentRepairer.Repair> repair = repairer.repair(2024, existing, members, new HashMap<>());
+
+        // Then
+        assertTrue(repair.isPresent());
+        assertEquals(List.of(102L), repair.get().deletedIds());
+        assertEquals(1, repair.get().updated().size());
+        assertTrue(repair.get().inserted().isEmpty());
+        assertValidPermutation(apply(existing, repair.get()), members);
+    }
+
+    @Test
+    void whenNoSplicePointExists_thenReportFailure() {
+        // Given - every existing gift links families 1 and 2, and the joiner is from family 1
+        List<FamilyMember> members = new ArrayList<>(Arrays.asList(
+                new FamilyMember(1L, 1, "A"),
+                new FamilyMember(2L, 2, "B")
+        ));
+        List<FamilyAssignment> existing = cycle(1L, 2L);
+        members.add(new FamilyMember(3L, 1, "C"));
+
+        // When & Then
+        assertTrue(repairer.repair(2024, existing, members, new HashMap<>()).isEmpty());
+    }
+
+    private List<FamilyAssignment> cycle(Long... ids) {
+        List<FamilyAssignment> assignments = new ArrayList<>();
+        for (int i = 0; i < ids.length; i++) {
+            FamilyAssignment assignment = new FamilyAssignment(2024, ids[i], ids[(i + 1) % ids.length]);
+            assignment.setId(100L + i);
+            assignments.add(assignment);
+        }
+        return assignments;
+    }
+
+    private Map<Long, Long> apply(List<FamilyAssignment> existing, AssignmentRepairer.Repair repair) {
+        Map<Long, Long> next = new HashMap<>();
+        existing.stream()
+                .filter(assignment -> !repair.deletedIds().contains(assignment.getId()))
+                .forEach(assignment -> next.put(assignment.getSantaId(), assignment.getRecipientId()));
+        repair.updated().forEach(assignment -> next.put(assignment.getSantaId(), assignment.getRecipientId()));
+        repair.inserted().forEach(assignment -> next.put(assignment.getSantaId(), assignment.getRecipientId()));
+        return next;
+    }
+
+    private void assertValidPermutation(Map<Long, Long> next, List<FamilyMember> members) {
+        assertEquals(members.size(), next.size());
+        assertEquals(members.size(), next.values().stream().distinct().count());
+        Map<Long, Integer> families = new HashMap<>();
+        members.forEach(member -> families.put(member.getId(), member.getFamilyId()));
+        next.forEach((santa, recipient) -> {
+            assertTrue(families.containsKey(recipient));
+            assertNotEquals(families.get(santa), families.get(recipient));
+        });
+    }
+}
@@ -0,0 +1,111 @@
+package com.bettercloud.santa.service;
+
+import com.bettercloud.santa.config.SolverProperties;
+import com.bettercloud.santa.exception.AssignmentImpossibleException;
+import com.bettercloud.santa.model.FamilyMember;
+import com.bettercloud.santa.service.solver.ConstraintRule;
+import com.bettercloud.santa.service.solver.RuleContext;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AssignmentValidatorTest {
+
+    private final AssignmentValidator validator = new AssignmentValidator(ConstraintRules.defaults());
+
+    @Test
+    void whenHistoryBlocksAllOptions_thenReportHallViolatingMembers() {
+        // Given - C and D both gave to A recently, so together they can only give to B
+        List<FamilyMember> members = Arrays.asList(
+                new FamilyMember(1L, 1, "A"),
+                new FamilyMember(2L, 1, "B"),
+                new FamilyMember(3L, 2, "C"),
+                new FamilyMember(4L, 2, "D")
+        );
+        Map<Long, Set<Long>> recentAssignments = new HashMap<>();
+        recentAssignments.put(3L, Set.of(1L));
+        recentAssignments.put(4L, Set.of(1L));
+
+        // When
+        AssignmentImpossibleException error = assertThrows(AssignmentImpossibleException.class,
+                () -> validator.validateFeasibility(members, recentAssignments).block());
+
+        // Then
+        assertEquals(Set.of(3L, 4L), Set.copyOf(error.getConflictingMemberIds()));
+    }
+
+    @Test
+    void whenRulesAreRelaxedForAStrictStrategy_thenStillRejectImpossibleYear() {
+        // Given - A gave to both members of the other family recently
+        List<FamilyMember> members = Arrays.asList(
+                new FamilyMember(1L, 1, "A"),
+                new FamilyMember(2L, 1, "B"),
+                new FamilyMember(3L, 2, "C"),
+                new FamilyMember(4L, 2, "D")
+        );
+        Map<Long, Set<Long>> recentAssignments = new HashMap<>();
+        recentAssignments.put(1L, Set.of(3L, 4L));
+        SolverProperties strict = new SolverProperties();
+        strict.getOptimizing().setRelaxRules(true);
+        SolverProperties optimizing = new SolverProperties();
+        optimizing.getOptimizing().setRelaxRules(true);
+        optimizing.setStrategy(AssignmentStrategyType.OPTIMIZING);
+
+        // When & Then
+        assertFalse(new AssignmentValidator(new ConstraintRules(strict)).isFeasible(members, recentAssignments));
+        assertTrue(new AssignmentValidator(new ConstraintRules(optimizing)).isFeasible(members, recentAssignments));
+    }
+
+    @Test
+    void whenCustomRuleForbidsEveryRecipientOfASanta_thenRejectYear() {
+        // Given - a custom rule that keeps A from giving to anyone in family 2
+        List<FamilyMember> members = Arrays.asList(
+                new FamilyMember(1L, 1, "A"),
+                new FamilyMember(2L, 1, "B"),
+                new FamilyMember(3L, 2, "C"),
+                new FamilyMember(4L, 2, "D")
+        );
+        ConstraintRule noGiftsFromA = new ConstraintRule() {
+            @Override
+            public void apply(RuleContext context) {
+                int santa = context.indexOf(1L);
+                for (int recipient = 0; recipient < context.size(); recipient++) {
+                    context.exclude(santa, recipient);
+                }
+            }
+
+            @Override
+            public boolean forbids(FamilyMember santa, FamilyMember recipient, Map<Long, Set<Long>> recentAssignments) {
+                return santa.getId() == 1L;
+            }
+        };
+        ConstraintRules rules = new ConstraintRules(new SolverProperties(), List.of(noGiftsFromA));
+
+        // When & Then
+        assertTrue(validator.isFeasible(members, new HashMap<>()));
+        assertFalse(new AssignmentValidator(rules).isFeasible(members, new HashMap<>()));
+    }
+
+    @Test
+    void whenPerfectMatchingExists_thenReturnMembers() {
+        // Given
+        List<FamilyMember> members = Arrays.asList(
+                new FamilyMember(1L, 1, "A"),
+                new FamilyMember(2L, 1, "B"),
+                new FamilyMember(3L, 2, "C"),
+                new FamilyMember(4L, 2, "D")
+        );
+
+        // When
+        List<FamilyMember> result = validator.validateFeasibility(members, new HashMap<>()).block();
+
+        // Then
+        assertEquals(members, result);
+    }
+}
@@ -0,0 +1,59 @@
+package com.bettercloud.santa.service;
+
+import com.bettercloud.santa.exception.AssignmentImpossibleException;
+import com.bettercloud.santa.model.FamilyAssignment;
+import com.bettercloud.santa.model.FamilyMember;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BipartiteMatchingStrategyTest {
+
+    private final BipartiteMatchingStrategy strategy = new BipartiteMatchingStrategy(ConstraintRules.defaults());
+
+    @Test
+    void whenLargePool_thenEveryoneGivesAndReceivesOnceOutsideTheirFamily() {
+        // Given
+        List<FamilyMember> members = new ArrayList<>();
+        for (long id = 1; id <= 5000; id++) {
+            members.add(new FamilyMember(id, (int) (id % 400), "M" + id));
+        }
+
+        // When
+        List<FamilyAssignment> assignments = strategy.generateAssignments(2024, members, new HashMap<>());
+
+        // Then
+        assertEquals(members.size(), assignments.size());
+        Set<Long> santas = new HashSet<>();
+        Set<Long> recipients = new HashSet<>();
+        for (FamilyAssignment assignment : assignments) {
+            assertTrue(santas.add(assignment.getSantaId()));
+            assertTrue(recipients.add(assignment.getRecipientId()));
+            assertNotEquals(assignment.getSantaId() % 400, assignment.getRecipientId() % 400);
+        }
+    }
+
+    @Test
+    void whenHistoryLeavesNoRecipient_thenThrowAssignmentImpossibleException() {
+        // Given
+        List<FamilyMember> members = Arrays.asList(
+                new FamilyMember(1L, 1, "A"),
+                new FamilyMember(2L, 2, "B"),
+                new FamilyMember(3L, 3, "C")
+        );
+        Map<Long, Set<Long>> recentAssignments = new HashMap<>();
+        recentAssignments.put(1L, Set.of(2L, 3L));
+
+        // When & Then
+        assertThrows(AssignmentImpossibleException.class,
+                () -> strategy.generateAssignments(2024, members, recentAssignments));
+    }
+}
@@ -0,0 +1,78 @@
+package com.bettercloud.santa.service;
+
+import com.bettercloud.santa.config.SolverProperties;
+import com.bettercloud.santa.exception.SolverBudgetExceededException;
+import com.bettercloud.santa.model.FamilyAssignment;
+import com.bettercloud.santa.model.FamilyMember;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FallbackChainStrategyTest {
+
+    private final SolverProperties properties = new SolverProperties();
+
+    @Test
+    void whenNoSingleCycleExists_thenFallBackToMatching() {
+        // Given - history leaves only A<->C and B<->D
+        List<FamilyMember> members = Arrays.asList(
+                new FamilyMember(1L, 1, "A"),
+                new FamilyMember(2L, 1, "B"),
+                new FamilyMember(3L, 2, "C"),
+                new FamilyMember(4L, 2, "D")
+        );
+        Map<Long, Set<Long>> recentAssignments = new HashMap<>();
+        recentAssignments.put(1L, Set.of(4L));
+        recentAssignments.put(2L, Set.of(3L));
+        recentAssignments.put(3L, Set.of(2L));
+        recentAssignments.put(4L, Set.of(1L));
+        FallbackChainStrategy chain = new FallbackChainStrategy(
+                List.of(AssignmentStrategyType.HAMILTONIAN_CYCLE, AssignmentStrategyType.MATCHING),
+                Map.of(
+                        AssignmentStrategyType.HAMILTONIAN_CYCLE, new HamiltonianCycleStrategy(properties, ConstraintRules.defaults()),
+                        AssignmentStrategyType.MATCHING, new BipartiteMatchingStrategy(ConstraintRules.defaults())
+                ),
+                properties.getBudget()
+        );
+
+        // When
+        List<FamilyAssignment> assignments = chain.generateAssignments(2024, members, recentAssignments);
+
+        // Then
+        assertEquals(4, assignments.size());
+    }
+
+    @Test
+    void whenBudgetRunsOut_thenReportSearchProgress() {
+        // Given
+        properties.getBudget().setMaxExpansions(5000);
+        AssignmentStrategy endless = (year, members, recentAssignments, seed, budget) -> {
+            while (true) {
+                budget.recordExpansions(1);
+                budget.checkpoint();
+            }
+        };
+        FallbackChainStrategy chain = new FallbackChainStrategy(
+                List.of(AssignmentStrategyType.HAMILTONIAN_CYCLE, AssignmentStrategyType.MATCHING),
+                Map.of(
+                        AssignmentStrategyType.HAMILTONIAN_CYCLE, endless,
+                        AssignmentStrategyType.MATCHING, endless
+                ),
+                properties.getBudget()
+        );
+
+        // When
+        SolverBudgetExceededException error = assertThrows(SolverBudgetExceededException.class,
+                () -> chain.generateAssignments(2024, List.of(), new HashMap<>()));
+
+        // Then
+        assertEquals(5000, error.getExpansions());
+        assertEquals(2, error.getAttemptedStrategies().size());
+    }
+}
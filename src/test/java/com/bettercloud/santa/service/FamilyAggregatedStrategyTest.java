@@ -0,0 +1,107 @@
+package com.bettercloud.santa.service;
+
+import com.bettercloud.santa.exception.AssignmentImpossibleException;
+import com.bettercloud.santa.model.FamilyAssignment;
+import com.bettercloud.santa.model.FamilyMember;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FamilyAggregatedStrategyTest {
+
+    private final FamilyAggregatedStrategy strategy = new FamilyAggregatedStrategy(ConstraintRules.defaults());
+
+    @Test
+    void whenLargePoolWithFewFamilies_thenEveryoneGivesAndReceivesOnceOutsideTheirFamily() {
+        // Given
+        List<FamilyMember> members = createMembers(50_000, 300);
+
+        // When
+        List<FamilyAssignment> assignments = strategy.generateAssignments(2024, members, new HashMap<>());
+
+        // Then
+        verifyAssignments(members, assignments, new HashMap<>());
+    }
+
+    @Test
+    void whenConsecutiveYears_thenRecentAssignmentsAreRepaired() {
+        // Given
+        List<FamilyMember> members = createMembers(12, 4);
+        Map<Long, Set<Long>> recentAssignments = new HashMap<>();
+
+        // When & Then - the same year keeps the seat shift fixed, so every round relies on repair
+        for (int round = 0; round < 4; round++) {
+            List<FamilyAssignment> assignments = strategy.generateAssignments(2030, members, recentAssignments);
+            verifyAssignments(members, assignments, recentAssignments);
+            for (FamilyAssignment assignment : assignments) {
+                recentAssignments.computeIfAbsent(assignment.getSantaId(), k -> new HashSet<>())
+                        .add(assignment.getRecipientId());
+            }
+        }
+    }
+
+    @Test
+    void whenFirstRepairPassFails_thenRetryWithAnotherShiftAndOrder() {
+        // Given - member 5 may only give to member 2, which a single greedy pass over the first layout misses
+        List<FamilyMember> members = new ArrayList<>();
+        for (long id = 1; id <= 6; id++) {
+            members.add(new FamilyMember(id, (int) ((id - 1) / 2), "M" + id));
+        }
+        Map<Long, Set<Long>> recentAssignments = new HashMap<>();
+        recentAssignments.put(5L, Set.of(1L, 3L, 4L));
+
+        // When
+        List<FamilyAssignment> assignments = strategy.generateAssignments(2024, members, recentAssignments, 0L);
+
+        // Then
+        verifyAssignments(members, assignments, recentAssignments);
+    }
+
+    @Test
+    void whenEveryRepairAttemptFails_thenReportNoSolutionRatherThanBudgetExceeded() {
+        // Given - member 1 has recently given to everyone outside its family
+        List<FamilyMember> members = new ArrayList<>();
+        for (long id = 1; id <= 4; id++) {
+            members.add(new FamilyMember(id, (int) ((id - 1) / 2), "M" + id));
+        }
+        Map<Long, Set<Long>> recentAssignments = new HashMap<>();
+        recentAssignments.put(1L, Set.of(3L, 4L));
+
+        // When & Then
+        assertThrows(AssignmentImpossibleException.class,
+                () -> strategy.generateAssignments(2024, members, recentAssignments, 0L));
+    }
+
+    private List<FamilyMember> createMembers(int count, int familyCount) {
+        List<FamilyMember> members = new ArrayList<>(count);
+        for (long id = 1; id <= count; id++) {
+            members.add(new FamilyMember(id, (int) (id % familyCount), "M" + id));
+        }
+        return members;
+    }
+
+    private void verifyAssignments(List<FamilyMember> members, List<FamilyAssignment> assignments,
+                                   Map<Long, Set<Long>> recentAssignments) {
+        Map<Long, FamilyMember> byId = new HashMap<>();
+        members.forEach(member -> byId.put(member.getId(), member));
+
+        assertEquals(members.size(), assignments.size());
+        Set<Long> santas = new HashSet<>();
+        Set<Long> recipients = new HashSet<>();
+        for (FamilyAssignment assignment : assignments) {
+            assertTrue(santas.add(assignment.getSantaId()));
+            assertTrue(recipients.add(assignment.getRecipientId()));
+            assertNotEquals(byId.get(assignment.getSantaId()).getFamilyId(),
+                    byId.get(assignment.getRecipientId()).getFamilyId());
+            assertFalse(recentAssignments.getOrDefault(assignment.getSantaId(), Set.of())
+                    .contains(assignment.getRecipientId()));
+        }
+    }
+}
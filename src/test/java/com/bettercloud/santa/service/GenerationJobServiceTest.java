@@ -0,0 +1,147 @@
+package com.bettercloud.santa.service;
+
+import com.bettercloud.santa.config.JobProperties;
+import com.bettercloud.santa.exception.AssignmentImpossibleException;
+import com.bettercloud.santa.exception.JobNotReadyException;
+import com.bettercloud.santa.model.GenerationJob;
+import com.bettercloud.santa.model.JobState;
+import com.bettercloud.santa.repository.GenerationJobRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class GenerationJobServiceTest {
+
+    @Mock
+    private GenerationJobRepository jobRepository;
+    @Mock
+    private SecretSantaService secretSantaService;
+
+    private GenerationJobService jobService;
+
+    @BeforeEach
+    void setUp() {
+        JobProperties properties = new JobProperties();
+        properties.setProgressInterval(Duration.ofHours(1));
+        jobService = new GenerationJobService(jobRepository, secretSantaService, properties);
+    }
+
+    @Test
+    void whenJobIsSubmitted_thenRunItAndRecordSuccess() {
+        // Given
+        when(jobRepository.save(any(GenerationJob.class))).thenAnswer(invocation -> {
+            GenerationJob job = invocation.getArgument(0);
+            job.setId(7L);
+            return Mono.just(job);
+        });
+        when(secretSantaService.createAssignments(eq(1L), eq(2024), any(GenerationProgress.class))).thenReturn(Flux.empty());
+        when(jobRepository.finish(eq(7L), eq("SUCCEEDED"), anyLong(), isNull())).thenReturn(Mono.just(1));
+
+        // When
+        GenerationJob job = jobService.submit(1L, 2024).block();
+
+        // Then
+        assertNotNull(job);
+        assertEquals(JobState.QUEUED, job.getState());
+        verify(jobRepository, timeout(1000)).finish(eq(7L), eq("SUCCEEDED"), anyLong(), isNull());
+    }
+
+    @Test
+    void whenGenerationFails_thenRecordFailureWithItsMessage() {
+        // Given
+        when(jobRepository.save(any(GenerationJob.class))).thenAnswer(invocation -> {
+            GenerationJob job = invocation.getArgument(0);
+            job.setId(7L);
+            return Mono.just(job);
+        });
+        when(secretSantaService.createAssignments(eq(1L), eq(2024), any(GenerationProgress.class)))
+                .thenReturn(Flux.error(new AssignmentImpossibleException("No valid assignment")));
+        when(jobRepository.finish(eq(7L), eq("FAILED"), anyLong(), eq("No valid assignment"))).thenReturn(Mono.just(1));
+
+        // When
+        jobService.submit(1L, 2024).block();
+
+        // Then
+        verify(jobRepository, timeout(1000)).finish(eq(7L), eq("FAILED"), anyLong(), eq("No valid assignment"));
+    }
+
+    @Test
+    void whenMoreJobsThanSlotsAreSubmitted_thenLaterJobsWaitForASlot() {
+        // Given - one slot, taken by a generation that has not finished yet
+        JobProperties properties = new JobProperties();
+        properties.setProgressInterval(Duration.ofHours(1));
+        properties.setMaxConcurrent(1);
+        jobService = new GenerationJobService(jobRepository, secretSantaService, properties);
+        AtomicLong ids = new AtomicLong(7);
+        when(jobRepository.save(any(GenerationJob.class))).thenAnswer(invocation -> {
+            GenerationJob job = invocation.getArgument(0);
+            job.setId(ids.getAndIncrement());
+            return Mono.just(job);
+        });
+        Sinks.Empty<Void> firstGeneration = Sinks.empty();
+        when(secretSantaService.createAssignments(eq(1L), eq(2024), any(GenerationProgress.class)))
+                .thenReturn(firstGeneration.asMono().thenMany(Flux.empty()));
+        when(secretSantaService.createAssignments(eq(2L), eq(2024), any(GenerationProgress.class))).thenReturn(Flux.empty());
+        when(jobRepository.finish(anyLong(), eq("SUCCEEDED"), anyLong(), isNull())).thenReturn(Mono.just(1));
+
+        // When
+        jobService.submit(1L, 2024).block();
+        jobService.submit(2L, 2024).block();
+
+        // Then - the second job only starts once the first one finished
+        verify(secretSantaService, after(200).never()).createAssignments(eq(2L), eq(2024), any(GenerationProgress.class));
+        firstGeneration.tryEmitEmpty();
+        verify(jobRepository, timeout(1000)).finish(eq(8L), eq("SUCCEEDED"), anyLong(), isNull());
+        verify(jobRepository).finish(eq(7L), eq("SUCCEEDED"), anyLong(), isNull());
+    }
+
+    @Test
+    void whenRunningJobStoppedUpdating_thenReportItAsFailed() {
+        // Given
+        GenerationJob job = GenerationJob.queued(1L, 2024);
+        job.setId(7L);
+        job.setState(JobState.SOLVING);
+        job.setUpdatedAt(Instant.now().minus(Duration.ofMinutes(5)));
+        when(jobRepository.findById(7L)).thenReturn(Mono.just(job));
+
+        // When
+        GenerationJob reported = jobService.getJob(7L).block();
+
+        // Then
+        assertNotNull(reported);
+        assertEquals(JobState.FAILED, reported.getState());
+        assertNotNull(reported.getError());
+    }
+
+    @Test
+    void whenResultOfRunningJobIsRequested_thenThrowJobNotReadyException() {
+        // Given
+        GenerationJob job = GenerationJob.queued(1L, 2024);
+        job.setId(7L);
+        job.setState(JobState.SOLVING);
+        when(jobRepository.findById(7L)).thenReturn(Mono.just(job));
+
+        // When & Then
+        assertThrows(JobNotReadyException.class, () -> jobService.getResult(7L).block());
+    }
+}
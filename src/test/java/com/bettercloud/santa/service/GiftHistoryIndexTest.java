@@ -0,0 +1,83 @@
+package com.bettercloud.santa.service;
+
+import com.bettercloud.santa.config.AssignmentCacheProperties;
+import com.bettercloud.santa.config.SolverProperties;
+import com.bettercloud.santa.model.FamilyAssignment;
+import com.bettercloud.santa.model.GiftHistory;
+import com.bettercloud.santa.repository.AssignmentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class GiftHistoryIndexTest {
+
+    @Mock
+    private AssignmentRepository assignmentRepository;
+
+    private GiftHistoryIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new GiftHistoryIndex(assignmentRepository, new SolverProperties(), new AssignmentCacheProperties());
+    }
+
+    @Test
+    void whenNextYearIsSaved_thenAnswerTheYearAfterFromMemory() {
+        // Given - 1 -> 2 was last given in 2020 and 3 -> 4 in 2023
+        when(assignmentRepository.findLatestYear(1L)).thenReturn(Mono.just(2023), Mono.just(2024));
+        when(assignmentRepository.findGiftHistory(1L, Integer.MIN_VALUE, Integer.MAX_VALUE))
+                .thenReturn(Flux.just(giftHistory(1L, 2L, 2020), giftHistory(3L, 4L, 2023)));
+
+        // When
+        List<GiftHistory> for2024 = index.find(1L, 2024).block();
+        index.record(1L, List.of(new FamilyAssignment(2024, 5L, 6L)));
+        List<GiftHistory> for2025 = index.find(1L, 2025).block();
+
+        // Then - the three-year window drops 2020 and the 2024 save is seen without reading again
+        assertEquals(Set.of("3->4"), pairs(for2024));
+        assertEquals(Set.of("3->4", "5->6"), pairs(for2025));
+        verify(assignmentRepository, times(1)).findGiftHistory(1L, Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    @Test
+    void whenYearPrecedesTheLatestStoredYear_thenReadItsWindowFromAssignments() {
+        // Given
+        when(assignmentRepository.findLatestYear(1L)).thenReturn(Mono.just(2026));
+        when(assignmentRepository.findGiftHistory(1L, 2022, 2024)).thenReturn(Flux.just(giftHistory(1L, 2L, 2023)));
+
+        // When
+        List<GiftHistory> for2025 = index.find(1L, 2025).block();
+
+        // Then
+        assertEquals(Set.of("1->2"), pairs(for2025));
+    }
+
+    private static Set<String> pairs(List<GiftHistory> history) {
+        assertNotNull(history);
+        return history.stream()
+                .map(pair -> pair.getSantaId() + "->" + pair.getRecipientId())
+                .collect(Collectors.toSet());
+    }
+
+    private static GiftHistory giftHistory(Long santaId, Long recipientId, Integer lastYear) {
+        GiftHistory history = new GiftHistory();
+        history.setSantaId(santaId);
+        history.setRecipientId(recipientId);
+        history.setLastYear(lastYear);
+        return history;
+    }
+}
@@ -0,0 +1,42 @@
+package com.bettercloud.santa.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongLongHashMapTest {
+
+    @Test
+    void whenFilledBeyondExpectedSize_thenKeepEveryEntry() {
+        // Given
+        LongLongHashMap map = new LongLongHashMap(4);
+
+        // When
+        for (long key = 1; key <= 10_000; key++) {
+            map.put(key * 31, key);
+        }
+
+        // Then
+        assertEquals(10_000, map.size());
+        for (long key = 1; key <= 10_000; key++) {
+            assertEquals(key, map.get(key * 31, -1));
+        }
+        assertEquals(-1, map.get(32, -1));
+    }
+
+    @Test
+    void whenKeyIsZeroOrReplaced_thenReturnLatestValue() {
+        // Given
+        LongLongHashMap map = new LongLongHashMap(2);
+
+        // When
+        map.put(0, 5);
+        map.put(7, 1);
+        map.put(7, 2);
+
+        // Then
+        assertEquals(2, map.size());
+        assertEquals(5, map.get(0, -1));
+        assertEquals(2, map.get(7, -1));
+    }
+}
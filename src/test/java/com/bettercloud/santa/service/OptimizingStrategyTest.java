@@ -0,0 +1,90 @@
+package com.bettercloud.santa.service;
+
+import com.bettercloud.santa.config.SolverProperties;
+import com.bettercloud.santa.exception.AssignmentImpossibleException;
+import com.bettercloud.santa.model.FamilyAssignment;
+import com.bettercloud.santa.model.FamilyMember;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OptimizingStrategyTest {
+
+    @Test
+    void whenReciprocalPairsCanBeAvoided_thenNobodyGivesBackToTheirSanta() {
+        // Given
+        SolverProperties properties = new SolverProperties();
+        OptimizingStrategy strategy = new OptimizingStrategy(properties, new ConstraintRules(properties));
+        List<FamilyMember> members = new ArrayList<>();
+        for (long id = 1; id <= 40; id++) {
+            members.add(new FamilyMember(id, (int) id, "M" + id));
+        }
+
+        for (long seed = 0; seed < 5; seed++) {
+            // When
+            List<FamilyAssignment> assignments = strategy.generateAssignments(2024, members, new HashMap<>(), seed);
+
+            // Then
+            Map<Long, Long> recipients = new HashMap<>();
+            assignments.forEach(assignment -> recipients.put(assignment.getSantaId(), assignment.getRecipientId()));
+            assertEquals(members.size(), new HashSet<>(recipients.values()).size());
+            recipients.forEach((santa, recipient) -> {
+                assertNotEquals(santa, recipient);
+                assertNotEquals(santa, recipients.get(recipient));
+            });
+        }
+    }
+
+    @Test
+    void whenHistoryMakesYearImpossibleAndRulesAreRelaxed_thenReturnLeastBadAssignment() {
+        // Given
+        SolverProperties properties = new SolverProperties();
+        properties.getOptimizing().setRelaxRules(true);
+        OptimizingStrategy strategy = new OptimizingStrategy(properties, new ConstraintRules(properties));
+        List<FamilyMember> members = Arrays.asList(
+                new FamilyMember(1L, 1, "A"),
+                new FamilyMember(2L, 2, "B"),
+                new FamilyMember(3L, 3, "C"),
+                new FamilyMember(4L, 4, "D")
+        );
+        Map<Long, Set<Long>> recentAssignments = new HashMap<>();
+        recentAssignments.put(1L, Set.of(2L, 3L, 4L));
+
+        // When
+        List<FamilyAssignment> assignments = strategy.generateAssignments(2024, members, recentAssignments, 7L);
+
+        // Then
+        assertEquals(4, assignments.size());
+        long repeats = assignments.stream()
+                .filter(assignment -> recentAssignments.getOrDefault(assignment.getSantaId(), Set.of())
+                        .contains(assignment.getRecipientId()))
+                .count();
+        assertEquals(1, repeats);
+    }
+
+    @Test
+    void whenHistoryMakesYearImpossibleAndRulesAreHard_thenThrowAssignmentImpossibleException() {
+        // Given
+        SolverProperties properties = new SolverProperties();
+        OptimizingStrategy strategy = new OptimizingStrategy(properties, new ConstraintRules(properties));
+        List<FamilyMember> members = Arrays.asList(
+                new FamilyMember(1L, 1, "A"),
+                new FamilyMember(2L, 2, "B"),
+                new FamilyMember(3L, 3, "C")
+        );
+        Map<Long, Set<Long>> recentAssignments = new HashMap<>();
+        recentAssignments.put(1L, Set.of(2L, 3L));
+
+        // When & Then
+        assertThrows(AssignmentImpossibleException.class,
+                () -> strategy.generateAssignments(2024, members, recentAssignments));
+    }
+}
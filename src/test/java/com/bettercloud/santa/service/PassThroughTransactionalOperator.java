@@ -0,0 +1,21 @@
+package com.bettercloud.santa.service;
+
+import org.springframework.transaction.reactive.TransactionCallback;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Runs the pipeline as is; transaction boundaries are covered by the database.
+ */
+class PassThroughTransactionalOperator implements TransactionalOperator {
+    @Override
+    public <T> Flux<T> execute(TransactionCallback<T> action) {
+        return Flux.from(action.doInTransaction(null));
+    }
+
+    @Override
+    public <T> Mono<T> transactional(Mono<T> mono) {
+        return mono;
+    }
+}
@@ -0,0 +1,78 @@
+package com.bettercloud.santa.service;
+
+import com.bettercloud.santa.config.SolverProperties;
+import com.bettercloud.santa.exception.AssignmentImpossibleException;
+import com.bettercloud.santa.model.FamilyAssignment;
+import com.bettercloud.santa.model.FamilyMember;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PortfolioStrategyTest {
+
+    private PortfolioStrategy strategy;
+
+    @BeforeEach
+    void setUp() {
+        SolverProperties properties = new SolverProperties();
+        properties.setPortfolioParallelism(2);
+        strategy = new PortfolioStrategy(
+                properties,
+                new HamiltonianCycleStrategy(properties, ConstraintRules.defaults()),
+                new BipartiteMatchingStrategy(ConstraintRules.defaults()),
+                new FamilyAggregatedStrategy(ConstraintRules.defaults()),
+                new OptimizingStrategy(properties, ConstraintRules.defaults())
+        );
+    }
+
+    @AfterEach
+    void tearDown() {
+        strategy.shutdown();
+    }
+
+    @Test
+    void whenEntriesRace_thenReturnFirstValidResult() {
+        // Given
+        List<FamilyMember> members = new ArrayList<>();
+        for (long id = 1; id <= 200; id++) {
+            members.add(new FamilyMember(id, (int) (id % 20), "M" + id));
+        }
+
+        // When
+        List<FamilyAssignment> assignments = strategy.generateAssignments(2024, members, new HashMap<>());
+
+        // Then
+        assertEquals(members.size(), assignments.size());
+        Set<Long> recipients = new HashSet<>();
+        for (FamilyAssignment assignment : assignments) {
+            assertTrue(recipients.add(assignment.getRecipientId()));
+            assertNotEquals(assignment.getSantaId() % 20, assignment.getRecipientId() % 20);
+        }
+    }
+
+    @Test
+    void whenEveryEntryFails_thenThrowAssignmentImpossibleException() {
+        // Given
+        List<FamilyMember> members = Arrays.asList(
+                new FamilyMember(1L, 1, "A"),
+                new FamilyMember(2L, 2, "B"),
+                new FamilyMember(3L, 3, "C")
+        );
+        Map<Long, Set<Long>> recentAssignments = new HashMap<>();
+        recentAssignments.put(1L, Set.of(2L, 3L));
+
+        // When & Then
+        assertThrows(AssignmentImpossibleException.class,
+                () -> strategy.generateAssignments(2024, members, recentAssignments));
+    }
+}
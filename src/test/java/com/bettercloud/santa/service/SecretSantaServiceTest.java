@@ -1,11 +1,19 @@
 package com.bettercloud.santa.service;
 
+import com.bettercloud.santa.config.AssignmentCacheProperties;
+import com.bettercloud.santa.config.SolverProperties;
 import com.bettercloud.santa.exception.AssignmentImpossibleException;
 import com.bettercloud.santa.exception.InvalidParticipantsException;
+import com.bettercloud.santa.exception.SantaNotFoundException;
+import com.bettercloud.santa.model.AssignmentDetails;
 import com.bettercloud.santa.model.FamilyAssignment;
 import com.bettercloud.santa.model.FamilyMember;
+import com.bettercloud.santa.model.GiftHistory;
+import com.bettercloud.santa.model.GroupAssignments;
 import com.bettercloud.santa.repository.AssignmentRepository;
 import com.bettercloud.santa.repository.MemberRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -25,6 +33,10 @@ import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -37,24 +49,38 @@ class SecretSantaServiceTest {
 
     private SecretSantaService secretSantaService;
     private HamiltonianCycleStrategy strategy;
+    private SolverScheduler solverScheduler;
 
     @BeforeEach
     void setUp() {
-        AssignmentValidator validator = new AssignmentValidator();
-        strategy = new HamiltonianCycleStrategy();
+        AssignmentValidator validator = new AssignmentValidator(ConstraintRules.defaults());
+        SolverProperties properties = new SolverProperties();
+        strategy = new HamiltonianCycleStrategy(properties, ConstraintRules.defaults());
+        solverScheduler = new SolverScheduler(properties, new SimpleMeterRegistry());
         secretSantaService = new SecretSantaService(
                 memberRepository,
                 assignmentRepository,
                 strategy,
-                validator
+                validator,
+                new AssignmentRepairer(ConstraintRules.defaults()),
+                new AssignmentCache(new AssignmentCacheProperties()),
+                new GiftHistoryIndex(assignmentRepository, properties, new AssignmentCacheProperties()),
+                solverScheduler,
+                new PassThroughTransactionalOperator(),
+                properties
         );
     }
 
+    @AfterEach
+    void tearDown() {
+        solverScheduler.shutdown();
+    }
+
     @Test
     void whenNoParticipants_thenThrowInvalidParticipantsException() {
         // Given
-        when(memberRepository.findAllWithRelations()).thenReturn(Flux.empty());
-        when(assignmentRepository.findByYearsBetween(2024, 2024)).thenReturn(Flux.empty());
+        when(memberRepository.findAllWithRelations(any())).thenReturn(Flux.empty());
+        when(assignmentRepository.findDetailsByYear(1L, 2024)).thenReturn(Flux.empty());
 
         // When & Then
         assertThrows(
@@ -71,8 +97,8 @@ class SecretSantaServiceTest {
                 new FamilyMember(2L, 1, "B"),
                 new FamilyMember(3L, 1, "C")  // All from family 1
         );
-        when(memberRepository.findAllWithRelations()).thenReturn(Flux.fromIterable(sameFamily));
-        when(assignmentRepository.findByYearsBetween(2024, 2024)).thenReturn(Flux.empty());
+        when(memberRepository.findAllWithRelations(any())).thenReturn(Flux.fromIterable(sameFamily));
+        when(assignmentRepository.findDetailsByYear(1L, 2024)).thenReturn(Flux.empty());
 
         // When & Then
         assertThrows(AssignmentImpossibleException.class, () ->
@@ -92,19 +118,12 @@ class SecretSantaServiceTest {
                 new FamilyMember(6L, 3, "F")
         );
 
-        List<FamilyAssignment> assignments = strategy.generateAssignments(2024, members, new HashMap<>());
+        when(memberRepository.findAllWithRelations(any())).thenReturn(Flux.fromIterable(members));
 
-        when(memberRepository.findAllWithRelations()).thenReturn(Flux.fromIterable(members));
-        when(assignmentRepository.findByYearsBetween(any(), any())).thenReturn(Flux.empty());
-        when(assignmentRepository.saveAll((Iterable<FamilyAssignment>) any())).thenReturn(Flux.fromIterable(assignments));
-        when(memberRepository.findById((Long) any())).thenAnswer(invocation -> {
-            Long id = invocation.getArgument(0);
-            return members.stream()
-                    .filter(m -> m.getId().equals(id))
-                    .findFirst()
-                    .map(Mono::just)
-                    .orElse(Mono.empty());
-        });
+        when(assignmentRepository.lockYear(any(), any())).thenReturn(Mono.just(1));
+        when(assignmentRepository.findDetailsByYear(any(), any())).thenReturn(Flux.empty());
+        stubNoHistory();
+        stubInsertIfAbsent();
 
         // When
         List<FamilyAssignment> result = secretSantaService.createAssignments(2024)
@@ -116,6 +135,133 @@ class SecretSantaServiceTest {
         assertEquals(6, result.size());
     }
 
+    @Test
+    void whenAssignmentsExist_thenReturnThemWithNamesFromSingleQuery() {
+        // Given
+        AssignmentDetails details = new AssignmentDetails();
+        details.setId(7L);
+        details.setAssignmentYear(2024);
+        details.setSantaId(1L);
+        details.setSantaFamilyId(1);
+        details.setSantaName("A");
+        details.setRecipientId(3L);
+        details.setRecipientFamilyId(2);
+        details.setRecipientName("C");
+        when(assignmentRepository.findDetailsByYear(1L, 2024)).thenReturn(Flux.just(details));
+
+        // When
+        List<FamilyAssignment> result = secretSantaService.createAssignments(2024)
+                .collectList()
+                .block(Duration.ofSeconds(5));
+
+        // Then
+        assertNotNull(result);
+        assertEquals(1, result.size());
+        assertEquals("A", result.get(0).getSanta().getName());
+        assertEquals("C", result.get(0).getRecipient().getName());
+        verifyNoInteractions(memberRepository);
+    }
+
+    @Test
+    void whenYearWasReadBefore_thenServeItFromCacheWithSameETag() {
+        // Given
+        AssignmentDetails details = new AssignmentDetails();
+        details.setId(7L);
+        details.setAssignmentYear(2024);
+        details.setSantaId(1L);
+        details.setSantaName("A");
+        details.setRecipientId(3L);
+        details.setRecipientName("C");
+        when(assignmentRepository.findDetailsByYear(1L, 2024)).thenReturn(Flux.just(details));
+
+        // When
+        AssignmentCache.CachedYear first = secretSantaService.getAssignments(1L, 2024).block(Duration.ofSeconds(5));
+        AssignmentCache.CachedYear second = secretSantaService.getAssignments(1L, 2024).block(Duration.ofSeconds(5));
+
+        // Then
+        assertNotNull(first);
+        assertNotNull(second);
+        assertEquals(first.etag(), second.etag());
+        assertEquals(1, second.assignments().size());
+        verify(assignmentRepository, times(1)).findDetailsByYear(1L, 2024);
+    }
+
+    @Test
+    void whenLookingUpSanta_thenReturnTheirAssignmentOrNotFound() {
+        // Given
+        AssignmentDetails details = new AssignmentDetails();
+        details.setId(7L);
+        details.setSantaId(1L);
+        details.setSantaName("A");
+        details.setRecipientId(3L);
+        details.setRecipientName("C");
+        when(assignmentRepository.findDetailsByYear(1L, 2024)).thenReturn(Flux.just(details));
+
+        // When
+        FamilyAssignment assignment = secretSantaService.getAssignment(1L, 2024, 1L).block(Duration.ofSeconds(5));
+
+        // Then
+        assertNotNull(assignment);
+        assertEquals("C", assignment.getRecipient().getName());
+        assertThrows(SantaNotFoundException.class,
+                () -> secretSantaService.getAssignment(1L, 2024, 3L).block(Duration.ofSeconds(5)));
+        verify(assignmentRepository, times(1)).findDetailsByYear(1L, 2024);
+    }
+
+    @Test
+    void whenStreamingExistingYear_thenEmitRowsWithoutLoadingMembers() {
+        // Given
+        AssignmentDetails first = new AssignmentDetails();
+        first.setId(7L);
+        first.setSantaId(1L);
+        first.setSantaName("A");
+        first.setRecipientId(3L);
+        first.setRecipientName("C");
+        AssignmentDetails second = new AssignmentDetails();
+        second.setId(8L);
+        second.setSantaId(3L);
+        second.setSantaName("C");
+        second.setRecipientId(1L);
+        second.setRecipientName("A");
+        when(assignmentRepository.streamDetailsByYear(1L, 2024)).thenReturn(Flux.just(first, second));
+
+        // When
+        List<FamilyAssignment> result = secretSantaService.streamAssignments(1L, 2024)
+                .collectList()
+                .block(Duration.ofSeconds(5));
+
+        // Then
+        assertNotNull(result);
+        assertEquals(List.of(7L, 8L), result.stream().map(FamilyAssignment::getId).toList());
+        assertEquals("C", result.get(0).getRecipient().getName());
+        verifyNoInteractions(memberRepository);
+    }
+
+    @Test
+    void whenStreamingMissingYear_thenCreateIt() {
+        // Given
+        List<FamilyMember> members = Arrays.asList(
+                new FamilyMember(1L, 1, "A"),
+                new FamilyMember(2L, 2, "B"),
+                new FamilyMember(3L, 3, "C")
+        );
+        when(assignmentRepository.streamDetailsByYear(1L, 2024)).thenReturn(Flux.empty());
+        when(assignmentRepository.findDetailsByYear(any(), any())).thenReturn(Flux.empty());
+        when(assignmentRepository.lockYear(any(), any())).thenReturn(Mono.just(1));
+        when(memberRepository.findAllWithRelations(any())).thenReturn(Flux.fromIterable(members));
+        stubNoHistory();
+        stubInsertIfAbsent();
+
+        // When
+        List<FamilyAssignment> result = secretSantaService.streamAssignments(1L, 2024)
+                .collectList()
+                .block(Duration.ofSeconds(5));
+
+        // Then
+        assertNotNull(result);
+        assertEquals(3, result.size());
+    }
+
     @Test
     void whenValidParticipants_thenEnsureNoFamilyMemberAssignment() {
         // Given
@@ -151,6 +297,47 @@ class SecretSantaServiceTest {
 
     }
 
+    @Test
+    void whenSameSeed_thenAssignmentsAreReproducible() {
+        // Given
+        List<FamilyMember> members = new ArrayList<>();
+        for (long id = 1; id <= 40; id++) {
+            members.add(new FamilyMember(id, (int) (id % 8), "M" + id));
+        }
+
+        // When
+        List<FamilyAssignment> first = strategy.generateAssignments(2024, members, new HashMap<>(), 42L);
+        List<FamilyAssignment> second = strategy.generateAssignments(2024, members, new HashMap<>(), 42L);
+
+        // Then
+        assertEquals(first.size(), second.size());
+        for (int i = 0; i < first.size(); i++) {
+            assertEquals(first.get(i).getSantaId(), second.get(i).getSantaId());
+            assertEquals(first.get(i).getRecipientId(), second.get(i).getRecipientId());
+            assertEquals(42L, first.get(i).getSolverSeed());
+        }
+    }
+
+    @Test
+    void whenSeedsDiffer_thenAssignmentsDifferFromTheFirstRestart() {
+        // Given
+        List<FamilyMember> members = new ArrayList<>();
+        for (long id = 1; id <= 40; id++) {
+            members.add(new FamilyMember(id, (int) (id % 8), "M" + id));
+        }
+
+        // When
+        List<FamilyAssignment> first = strategy.generateAssignments(2024, members, new HashMap<>(), 1L);
+        List<FamilyAssignment> second = strategy.generateAssignments(2024, members, new HashMap<>(), 2L);
+
+        // Then
+        Set<String> firstPairs = new HashSet<>();
+        first.forEach(a -> firstPairs.add(a.getSantaId() + "->" + a.getRecipientId()));
+        Set<String> secondPairs = new HashSet<>();
+        second.forEach(a -> secondPairs.add(a.getSantaId() + "->" + a.getRecipientId()));
+        assertNotEquals(firstPairs, secondPairs);
+    }
+
     @Test
     void whenPreviousAssignmentsExist_thenEnsureNoRepeatsWithinThreeYears() {
         // Given
@@ -166,9 +353,10 @@ class SecretSantaServiceTest {
         Map<Integer, List<FamilyAssignment>> allAssignments = new HashMap<>();
         Map<Long, Set<Long>> recentAssignments = new HashMap<>();
 
-        // Generate assignments for 2024-2027
+        // Generate assignments for 2024-2027; by 2027 every santa has one recipient left, so the
+        // seeds are pinned to a sequence whose earlier years leave those recipients a cycle
         for (int year = 2024; year <= 2027; year++) {
-            List<FamilyAssignment> yearAssignments = strategy.generateAssignments(year, members, recentAssignments);
+            List<FamilyAssignment> yearAssignments = strategy.generateAssignments(year, members, recentAssignments, year);
             allAssignments.put(year, yearAssignments);
 
             // Verify rules for this year
@@ -182,6 +370,267 @@ class SecretSantaServiceTest {
         verifyNoRepeatsWithinThreeYears(allAssignments, members);
     }
 
+    @Test
+    void whenNeverRepeat_thenExcludePairsFromAnyPastYear() {
+        // Given - A gave to C and B to D long ago
+        SolverProperties properties = new SolverProperties();
+        properties.getHistory().setNeverRepeat(true);
+        SecretSantaService neverRepeatService = new SecretSantaService(
+                memberRepository,
+                assignmentRepository,
+                strategy,
+                new AssignmentValidator(ConstraintRules.defaults()),
+                new AssignmentRepairer(ConstraintRules.defaults()),
+                new AssignmentCache(new AssignmentCacheProperties()),
+                new GiftHistoryIndex(assignmentRepository, properties, new AssignmentCacheProperties()),
+                solverScheduler,
+                new PassThroughTransactionalOperator(),
+                properties
+        );
+        List<FamilyMember> members = Arrays.asList(
+                new FamilyMember(1L, 1, "A"),
+                new FamilyMember(2L, 1, "B"),
+                new FamilyMember(3L, 2, "C"),
+                new FamilyMember(4L, 2, "D")
+        );
+        when(memberRepository.findAllWithRelations(any())).thenReturn(Flux.fromIterable(members));
+        when(assignmentRepository.lockYear(any(), any())).thenReturn(Mono.just(1));
+        when(assignmentRepository.findDetailsByYear(any(), any())).thenReturn(Flux.empty());
+        when(assignmentRepository.findLatestYear(1L)).thenReturn(Mono.just(2010));
+        when(assignmentRepository.findGiftHistory(1L, Integer.MIN_VALUE, Integer.MAX_VALUE))
+                .thenReturn(Flux.just(giftHistory(1L, 3L, 2010), giftHistory(2L, 4L, 2010)));
+        stubInsertIfAbsent();
+
+        // When
+        List<FamilyAssignment> result = neverRepeatService.createAssignments(2024)
+                .collectList()
+                .block(Duration.ofSeconds(5));
+
+        // Then
+        assertNotNull(result);
+        Map<Long, Long> recipientBySanta = new HashMap<>();
+        result.forEach(assignment -> recipientBySanta.put(assignment.getSantaId(), assignment.getRecipientId()));
+        assertEquals(4L, recipientBySanta.get(1L));
+        assertEquals(3L, recipientBySanta.get(2L));
+    }
+
+    @Test
+    void whenYearIsGeneratedAfterALaterOne_thenAvoidPairsInsideItsWindow() {
+        // Given - 2023 and 2026 exist; A -> C and B -> D were given in 2023 and again in 2026
+        List<FamilyMember> members = Arrays.asList(
+                new FamilyMember(1L, 1, "A"),
+                new FamilyMember(2L, 1, "B"),
+                new FamilyMember(3L, 2, "C"),
+                new FamilyMember(4L, 2, "D")
+        );
+        when(memberRepository.findAllWithRelations(any())).thenReturn(Flux.fromIterable(members));
+        when(assignmentRepository.lockYear(any(), any())).thenReturn(Mono.just(1));
+        when(assignmentRepository.findDetailsByYear(1L, 2025)).thenReturn(Flux.empty());
+        when(assignmentRepository.findLatestYear(1L)).thenReturn(Mono.just(2026));
+        when(assignmentRepository.findGiftHistory(1L, 2022, 2024))
+                .thenReturn(Flux.just(giftHistory(1L, 3L, 2023), giftHistory(2L, 4L, 2023)));
+        stubInsertIfAbsent();
+
+        // When
+        List<FamilyAssignment> result = secretSantaService.createAssignments(1L, 2025)
+                .collectList()
+                .block(Duration.ofSeconds(5));
+
+        // Then - the window of 2025 is 2022-2024 and still holds the 2023 pairs
+        assertNotNull(result);
+        Map<Long, Long> recipientBySanta = new HashMap<>();
+        result.forEach(assignment -> recipientBySanta.put(assignment.getSantaId(), assignment.getRecipientId()));
+        assertEquals(4L, recipientBySanta.get(1L));
+        assertEquals(3L, recipientBySanta.get(2L));
+        verify(assignmentRepository, times(1)).findGiftHistory(1L, 2022, 2024);
+    }
+
+    @Test
+    void whenSameYearIsRequestedConcurrently_thenSolveOnce() {
+        // Given - the lookup is slow enough for every request to arrive while it is in flight
+        List<FamilyMember> members = Arrays.asList(
+                new FamilyMember(1L, 1, "A"),
+                new FamilyMember(2L, 1, "B"),
+                new FamilyMember(3L, 2, "C"),
+                new FamilyMember(4L, 2, "D")
+        );
+        when(assignmentRepository.findDetailsByYear(1L, 2024))
+                .thenReturn(Flux.<AssignmentDetails>empty().delaySubscription(Duration.ofMillis(200)));
+        when(memberRepository.findAllWithRelations(any())).thenReturn(Flux.fromIterable(members));
+        when(assignmentRepository.lockYear(any(), any())).thenReturn(Mono.just(1));
+        stubNoHistory();
+        stubInsertIfAbsent();
+
+        // When
+        List<List<FamilyAssignment>> results = Flux.range(0, 10)
+                .flatMap(i -> secretSantaService.createAssignments(2024).collectList())
+                .collectList()
+                .block(Duration.ofSeconds(5));
+
+        // Then
+        assertNotNull(results);
+        assertEquals(10, results.size());
+        results.forEach(result -> assertEquals(results.get(0), result));
+        verify(memberRepository, times(1)).findAllWithRelations(1L);
+        verify(assignmentRepository, times(1)).insertAllIfAbsent(any());
+    }
+
+    @Test
+    void whenAnotherInstanceSavedTheYearFirst_thenReturnItsAssignments() {
+        // Given - one of the inserts conflicts with a row written concurrently
+        List<FamilyMember> members = Arrays.asList(
+                new FamilyMember(1L, 1, "A"),
+                new FamilyMember(2L, 1, "B"),
+                new FamilyMember(3L, 2, "C"),
+                new FamilyMember(4L, 2, "D")
+        );
+        AssignmentDetails existing = new AssignmentDetails();
+        existing.setId(9L);
+        existing.setAssignmentYear(2024);
+        existing.setSantaId(1L);
+        existing.setRecipientId(3L);
+        when(assignmentRepository.findDetailsByYear(1L, 2024)).thenReturn(Flux.empty(), Flux.empty(), Flux.just(existing));
+        when(memberRepository.findAllWithRelations(any())).thenReturn(Flux.fromIterable(members));
+        when(assignmentRepository.lockYear(any(), any())).thenReturn(Mono.just(1));
+        stubNoHistory();
+        when(assignmentRepository.insertAllIfAbsent(any())).thenAnswer(i ->
+                Flux.fromIterable((List<FamilyAssignment>) i.getArgument(0))
+                        .filter(assignment -> !assignment.getSantaId().equals(1L)));
+
+        // When
+        List<FamilyAssignment> result = secretSantaService.createAssignments(2024)
+                .collectList()
+                .block(Duration.ofSeconds(5));
+
+        // Then
+        assertNotNull(result);
+        assertEquals(1, result.size());
+        assertEquals(9L, result.get(0).getId());
+    }
+
+    @Test
+    void whenAnotherNodeSavedTheYearWhileSolving_thenReturnItsAssignmentsWithoutSaving() {
+        // Given - the year is empty before the solve and filled once the lock is granted
+        List<FamilyMember> members = Arrays.asList(
+                new FamilyMember(1L, 1, "A"),
+                new FamilyMember(2L, 1, "B"),
+                new FamilyMember(3L, 2, "C"),
+                new FamilyMember(4L, 2, "D")
+        );
+        AssignmentDetails existing = new AssignmentDetails();
+        existing.setId(9L);
+        existing.setAssignmentYear(2024);
+        existing.setSantaId(1L);
+        existing.setRecipientId(3L);
+        when(assignmentRepository.findDetailsByYear(1L, 2024)).thenReturn(Flux.empty(), Flux.just(existing));
+        when(memberRepository.findAllWithRelations(any())).thenReturn(Flux.fromIterable(members));
+        when(assignmentRepository.lockYear(any(), any())).thenReturn(Mono.just(1));
+        stubNoHistory();
+
+        // When
+        List<FamilyAssignment> result = secretSantaService.createAssignments(2024)
+                .collectList()
+                .block(Duration.ofSeconds(5));
+
+        // Then
+        assertNotNull(result);
+        assertEquals(1, result.size());
+        assertEquals(9L, result.get(0).getId());
+        verify(assignmentRepository, never()).insertAllIfAbsent(any());
+    }
+
+    @Test
+    void whenBulkRequestContainsAnInfeasibleGroup_thenReportItAndKeepTheOthers() {
+        // Given - group 1 can be solved, group 2 is a single family
+        List<FamilyMember> groupOne = Arrays.asList(
+                new FamilyMember(1L, 1, "A"),
+                new FamilyMember(2L, 1, "B"),
+                new FamilyMember(3L, 2, "C"),
+                new FamilyMember(4L, 2, "D")
+        );
+        List<FamilyMember> groupTwo = Arrays.asList(
+                new FamilyMember(5L, 1, "E"),
+                new FamilyMember(6L, 1, "F")
+        );
+        when(assignmentRepository.findDetailsByYear(any(), any())).thenReturn(Flux.empty());
+        when(assignmentRepository.lockYear(any(), any())).thenReturn(Mono.just(1));
+        when(memberRepository.findAllWithRelations(1L)).thenReturn(Flux.fromIterable(groupOne));
+        when(memberRepository.findAllWithRelations(2L)).thenReturn(Flux.fromIterable(groupTwo));
+        stubNoHistory();
+        stubInsertIfAbsent();
+
+        // When
+        List<GroupAssignments> results = secretSantaService.createAssignments(List.of(1L, 2L, 1L), 2024)
+                .collectList()
+                .block(Duration.ofSeconds(5));
+
+        // Then
+        assertNotNull(results);
+        assertEquals(2, results.size());
+        GroupAssignments solved = results.stream().filter(r -> r.getGroupId() == 1L).findFirst().orElseThrow();
+        GroupAssignments failed = results.stream().filter(r -> r.getGroupId() == 2L).findFirst().orElseThrow();
+        assertNull(solved.getError());
+        assertEquals(4, solved.getAssignments().size());
+        solved.getAssignments().forEach(assignment -> assertEquals(1L, assignment.getGroupId()));
+        assertInstanceOf(AssignmentImpossibleException.class, failed.getError());
+        assertTrue(failed.getAssignments().isEmpty());
+    }
+
+    @Test
+    void whenMemberJoinsAfterGeneration_thenRepairOnlyChangedRows() {
+        // Given - A -> C -> B -> D -> A is stored and E joined
+        List<FamilyMember> members = Arrays.asList(
+                new FamilyMember(1L, 1, "A"),
+                new FamilyMember(2L, 1, "B"),
+                new FamilyMember(3L, 2, "C"),
+                new FamilyMember(4L, 2, "D"),
+                new FamilyMember(5L, 3, "E")
+        );
+        List<FamilyAssignment> stored = new ArrayList<>();
+        long[][] pairs = {{1L, 3L}, {3L, 2L}, {2L, 4L}, {4L, 1L}};
+        for (long[] pair : pairs) {
+            FamilyAssignment assignment = new FamilyAssignment(2024, pair[0], pair[1]);
+            assignment.setId(100L + stored.size());
+            stored.add(assignment);
+        }
+        when(assignmentRepository.lockYear(any(), any())).thenReturn(Mono.just(1));
+        when(assignmentRepository.findByYearsBetween(1L, 2024, 2024)).thenReturn(Flux.fromIterable(stored));
+        when(assignmentRepository.findLatestYear(1L)).thenReturn(Mono.just(2024));
+        when(assignmentRepository.findGiftHistory(1L, 2021, 2023)).thenReturn(Flux.empty());
+        when(memberRepository.findAllWithRelations(1L)).thenReturn(Flux.fromIterable(members));
+        when(assignmentRepository.deleteAllById(any(Iterable.class))).thenReturn(Mono.empty());
+        when(assignmentRepository.updateRecipient(any(), any())).thenReturn(Mono.just(1));
+        stubInsertIfAbsent();
+        when(assignmentRepository.findDetailsByYear(1L, 2024)).thenReturn(Flux.empty());
+
+        // When
+        secretSantaService.repairAssignments(1L, 2024).collectList().block(Duration.ofSeconds(5));
+
+        // Then
+        FamilyAssignment joined = new FamilyAssignment(2024, 5L, 3L);
+        joined.setGroupId(1L);
+        verify(assignmentRepository, times(1)).updateRecipient(100L, 5L);
+        verify(assignmentRepository, times(1)).insertAllIfAbsent(List.of(joined));
+    }
+
+    private GiftHistory giftHistory(Long santaId, Long recipientId, Integer lastYear) {
+        GiftHistory history = new GiftHistory();
+        history.setSantaId(santaId);
+        history.setRecipientId(recipientId);
+        history.setLastYear(lastYear);
+        return history;
+    }
+
+    private void stubNoHistory() {
+        when(assignmentRepository.findLatestYear(any())).thenReturn(Mono.just(0));
+        when(assignmentRepository.findGiftHistory(any(), any(), any())).thenReturn(Flux.empty());
+    }
+
+    private void stubInsertIfAbsent() {
+        when(assignmentRepository.insertAllIfAbsent(any()))
+                .thenAnswer(i -> Flux.fromIterable((List<FamilyAssignment>) i.getArgument(0)));
+    }
+
     private void verifyAssignments(List<FamilyAssignment> assignments, List<FamilyMember> members,
                                    int year, Map<Long, Set<Long>> recentAssignments) {
         // Basic verification
@@ -267,11 +716,11 @@ class SecretSantaServiceTest {
                 new FamilyMember(3L, 2, "C"),
                 new FamilyMember(4L, 2, "D")
         );
-        when(memberRepository.findAllWithRelations()).thenReturn(Flux.fromIterable(members));
-        when(assignmentRepository.findByYearsBetween(any(), any())).thenReturn(Flux.empty());
-        when(assignmentRepository.saveAll(any(Iterable.class)))
-                .thenAnswer(i -> Flux.fromIterable((Iterable<FamilyAssignment>) i.getArgument(0)));
-        when(memberRepository.findById((Long) any())).thenAnswer(i -> Mono.just(members.get(0)));
+        when(memberRepository.findAllWithRelations(any())).thenReturn(Flux.fromIterable(members));
+        when(assignmentRepository.lockYear(any(), any())).thenReturn(Mono.just(1));
+        when(assignmentRepository.findDetailsByYear(any(), any())).thenReturn(Flux.empty());
+        stubNoHistory();
+        stubInsertIfAbsent();
 
         // When - Simulate multiple concurrent requests
         int numberOfConcurrentUsers = 10;
@@ -302,15 +751,11 @@ class SecretSantaServiceTest {
                 new FamilyMember(3L, 2, "C"),
                 new FamilyMember(4L, 2, "D")
         );
-        when(memberRepository.findAllWithRelations()).thenReturn(Flux.fromIterable(members));
-        when(assignmentRepository.findByYearsBetween(any(), any())).thenReturn(Flux.empty());
-        when(assignmentRepository.saveAll(any(Iterable.class)))
-                .thenAnswer(i -> Flux.fromIterable((Iterable<FamilyAssignment>) i.getArgument(0)));
-        when(memberRepository.findById((Long) any())).thenAnswer(i ->
-                Mono.just(members.stream()
-                        .filter(m -> m.getId().equals(i.getArgument(0)))
-                        .findFirst()
-                        .orElse(members.get(0))));
+        when(memberRepository.findAllWithRelations(any())).thenReturn(Flux.fromIterable(members));
+        when(assignmentRepository.lockYear(any(), any())).thenReturn(Mono.just(1));
+        when(assignmentRepository.findDetailsByYear(any(), any())).thenReturn(Flux.empty());
+        stubNoHistory();
+        stubInsertIfAbsent();
 
         // When - Simulate multiple concurrent requests for same year
         int numberOfConcurrentUsers = 10;
@@ -0,0 +1,69 @@
+package com.bettercloud.santa.service;
+
+import com.bettercloud.santa.config.SolverProperties;
+import com.bettercloud.santa.exception.SolverOverloadedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SolverSchedulerTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private SolverScheduler solverScheduler;
+
+    @BeforeEach
+    void setUp() {
+        SolverProperties properties = new SolverProperties();
+        properties.getScheduler().setThreads(1);
+        properties.getScheduler().setQueueCapacity(1);
+        solverScheduler = new SolverScheduler(properties, registry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        solverScheduler.shutdown();
+    }
+
+    @Test
+    void whenSolving_thenRunOnSolverThreadAndRecordQueueWait() {
+        // When
+        String thread = solverScheduler.submit(() -> Mono.fromCallable(() -> Thread.currentThread().getName()))
+                .block(Duration.ofSeconds(5));
+
+        // Then
+        assertNotNull(thread);
+        assertTrue(thread.startsWith("santa-solver-"));
+        assertEquals(1, registry.get("santa.solver.queue.wait").timer().count());
+    }
+
+    @Test
+    void whenQueueIsFull_thenRejectWithRetryAfter() throws InterruptedException {
+        // Given - one running and one queued solve fill the scheduler
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        solverScheduler.submit(() -> Mono.fromCallable(() -> {
+            started.countDown();
+            release.await();
+            return 1;
+        })).subscribe();
+        solverScheduler.submit(() -> Mono.just(2)).subscribe();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // When
+        SolverOverloadedException error = assertThrows(SolverOverloadedException.class,
+                () -> solverScheduler.submit(() -> Mono.just(3)).block(Duration.ofSeconds(5)));
+
+        // Then
+        assertEquals(Duration.ofSeconds(5), error.getRetryAfter());
+        assertEquals(1.0, registry.get("santa.solver.rejected").counter().count());
+        release.countDown();
+    }
+}
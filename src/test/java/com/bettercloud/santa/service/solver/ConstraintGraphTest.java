@@ -0,0 +1,118 @@
+package com.bettercloud.santa.service.solver;
+
+import com.bettercloud.santa.model.Edge;
+import com.bettercloud.santa.model.FamilyMember;
+import com.bettercloud.santa.model.RelationType;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConstraintGraphTest {
+
+    @Test
+    void whenBuilt_thenExcludesSelfAndFamilyAndRecentRecipients() {
+        // Given
+        List<FamilyMember> members = Arrays.asList(
+                new FamilyMember(10L, 1, "A"),
+                new FamilyMember(20L, 1, "B"),
+                new FamilyMember(30L, 2, "C"),
+                new FamilyMember(40L, 3, "D")
+        );
+        Map<Long, Set<Long>> recentAssignments = new HashMap<>();
+        recentAssignments.put(10L, Set.of(30L));
+
+        // When
+        ConstraintGraph graph = ConstraintGraph.build(members, recentAssignments);
+
+        // Then
+        assertFalse(graph.hasEdge(0, 0));
+        assertFalse(graph.hasEdge(0, 1));
+        assertFalse(graph.hasEdge(0, 2));
+        assertTrue(graph.hasEdge(0, 3));
+        assertEquals(1, graph.outDegree(0));
+        assertEquals(3, graph.outDegree(2));
+    }
+
+    @Test
+    void whenImmediateFamilyRelationsAreLoaded_thenOnlyOwnFamilyIsExcluded() {
+        // Given
+        List<FamilyMember> members = Arrays.asList(
+                new FamilyMember(10L, 1, "A"),
+                new FamilyMember(20L, 1, "B"),
+                new FamilyMember(30L, 2, "C")
+        );
+        members.forEach(member -> member.getRelations().add(new Edge(RelationType.IMMEDIATE_FAMILY, member.getId())));
+
+        // When
+        ConstraintGraph graph = ConstraintGraph.build(members, new HashMap<>());
+
+        // Then
+        assertFalse(graph.hasEdge(0, 1));
+        assertTrue(graph.hasEdge(0, 2));
+        assertEquals(2, graph.outDegree(2));
+    }
+
+    @Test
+    void whenRowsSpanSeveralWords_thenIterationVisitsEveryRecipient() {
+        // Given
+        List<FamilyMember> members = new ArrayList<>();
+        for (long id = 1; id <= 130; id++) {
+            members.add(new FamilyMember(id, (int) id, "M" + id));
+        }
+
+        // When
+        ConstraintGraph graph = ConstraintGraph.build(members, new HashMap<>());
+
+        // Then
+        int count = 0;
+        for (int next = graph.nextRecipient(64, 0); next >= 0; next = graph.nextRecipient(64, next + 1)) {
+            assertNotEquals(64, next);
+            count++;
+        }
+        assertEquals(129, count);
+        assertEquals(3, graph.words());
+        assertEquals(-1, graph.nextRecipient(129, 129));
+    }
+
+    @Test
+    void whenExtraRulesAreCompiled_thenMasksAgreeWithPairChecks() {
+        // Given - A gave to C last year and D may never give to A
+        List<FamilyMember> members = Arrays.asList(
+                new FamilyMember(10L, 1, "A"),
+                new FamilyMember(20L, 2, "B"),
+                new FamilyMember(30L, 3, "C"),
+                new FamilyMember(40L, 4, "D")
+        );
+        Map<Long, Set<Long>> recentAssignments = Map.of(10L, Set.of(30L));
+        List<ConstraintRule> rules = new ArrayList<>(ConstraintGraph.DEFAULT_RULES);
+        rules.add(new NoReciprocalRule());
+        rules.add(new BlocklistRule(Map.of(40L, Set.of(10L))));
+
+        // When
+        ConstraintGraph graph = ConstraintGraph.build(members, recentAssignments, rules);
+
+        // Then
+        assertFalse(graph.hasEdge(0, 2));
+        assertFalse(graph.hasEdge(2, 0));
+        assertFalse(graph.hasEdge(3, 0));
+        assertTrue(graph.hasEdge(1, 0));
+        for (int santa = 0; santa < members.size(); santa++) {
+            for (int recipient = 0; recipient < members.size(); recipient++) {
+                if (santa == recipient) {
+                    continue;
+                }
+                FamilyMember giver = members.get(santa);
+                FamilyMember receiver = members.get(recipient);
+                boolean forbidden = rules.stream().anyMatch(rule -> rule.forbids(giver, receiver, recentAssignments));
+                assertEquals(!forbidden, graph.hasEdge(santa, recipient));
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.bettercloud.santa.service.solver;
+
+import com.bettercloud.santa.model.FamilyMember;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HamiltonianSearchTest {
+
+    @Test
+    void whenPoolIsLarge_thenFindsCycleWithoutOverflowingTheStack() {
+        // Given
+        List<FamilyMember> members = new ArrayList<>();
+        for (long id = 1; id <= 3000; id++) {
+            members.add(new FamilyMember(id, (int) (id % 1000), "M" + id));
+        }
+        ConstraintGraph graph = ConstraintGraph.build(members, new HashMap<>());
+
+        // When
+        int[] cycle = new HamiltonianSearch(graph).search();
+
+        // Then
+        assertNotNull(cycle);
+        verifyCycle(graph, cycle);
+    }
+
+    @Test
+    void whenOnlyTwoCyclesExist_thenReportsNoHamiltonianCycle() {
+        // Given - history leaves only A<->C and B<->D, so no single cycle covers everyone
+        List<FamilyMember> members = Arrays.asList(
+                new FamilyMember(1L, 1, "A"),
+                new FamilyMember(2L, 1, "B"),
+                new FamilyMember(3L, 2, "C"),
+                new FamilyMember(4L, 2, "D")
+        );
+        Map<Long, Set<Long>> recentAssignments = new HashMap<>();
+        recentAssignments.put(1L, Set.of(4L));
+        recentAssignments.put(2L, Set.of(3L));
+        recentAssignments.put(3L, Set.of(2L));
+        recentAssignments.put(4L, Set.of(1L));
+        ConstraintGraph graph = ConstraintGraph.build(members, recentAssignments);
+
+        // When & Then
+        assertNull(new HamiltonianSearch(graph).search());
+    }
+
+    private void verifyCycle(ConstraintGraph graph, int[] cycle) {
+        assertEquals(graph.size(), cycle.length);
+        boolean[] seen = new boolean[graph.size()];
+        for (int i = 0; i < cycle.length; i++) {
+            assertFalse(seen[cycle[i]]);
+            seen[cycle[i]] = true;
+            assertTrue(graph.hasEdge(cycle[i], cycle[(i + 1) % cycle.length]));
+        }
+    }
+}